@@ -0,0 +1,47 @@
+package bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * BenchmarkMain runs the benchmarks of this source set with the gc
+ * profiler, so every result reports the allocation rate
+ * (gc.alloc.rate.norm, bytes per operation) next to ns/op.
+ *
+ * The source set needs the JMH core and annotation processor jars
+ * (org.openjdk.jmh:jmh-core and jmh-generator-annprocess) on the
+ * classpath, along with the classes of src. Compile it with annotation
+ * processing enabled, then run
+ *
+ * <pre>
+ * java bench.BenchmarkMain                run every benchmark
+ * java bench.BenchmarkMain Piece          run the benchmarks matching a pattern
+ * </pre>
+ *
+ * @author Omar Khalil
+ * @author Michelle Hwang
+ */
+public class BenchmarkMain {
+
+	/**
+	 * Runs the benchmarks.
+	 *
+	 * @param args Optional regular expressions selecting benchmarks
+	 * @throws RunnerException If a benchmark fails
+	 */
+	public static void main(String[] args) throws RunnerException {
+		OptionsBuilder options = new OptionsBuilder();
+		if (args.length == 0) {
+			options.include("bench\\..*Benchmark");
+		}
+		for (String pattern : args) {
+			options.include(pattern);
+		}
+		Options opt = options.addProfiler(GCProfiler.class).build();
+		new Runner(opt).run();
+	}
+
+}
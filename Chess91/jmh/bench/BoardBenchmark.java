@@ -0,0 +1,98 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import board.Bitboard;
+import board.ChessBoard;
+import board.GameStatus;
+import pieces.ChessPiece;
+
+/**
+ * BoardBenchmark measures the board queries the game loop runs after
+ * every move: piece lookup and the check, checkmate and stalemate
+ * tests, for the player to move in each position.
+ *
+ * @author Omar Khalil
+ * @author Michelle Hwang
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+
+	@Param({Positions.START, Positions.OPEN_MIDDLEGAME, Positions.CLOSED_MIDDLEGAME,
+			Positions.ROOK_ENDGAME, Positions.PAWN_ENDGAME})
+	public String position;
+
+	ChessBoard board;
+	String color;
+
+	/**
+	 * Loads the position.
+	 */
+	@Setup
+	public void setup() {
+		board = Positions.board(position);
+		color = Bitboard.colorName(board.getSideToMove());
+	}
+
+	/**
+	 * Looks up every square of the board.
+	 *
+	 * @param bh Blackhole consuming the pieces
+	 */
+	@Benchmark
+	public void getPiece(Blackhole bh) {
+		for (int square = 0; square < 64; square++) {
+			ChessPiece piece = board.getPiece(square);
+			bh.consume(piece);
+		}
+	}
+
+	/**
+	 * Tests whether the player to move is in check.
+	 *
+	 * @return The result of the test
+	 */
+	@Benchmark
+	public GameStatus check() {
+		return board.check(color, board);
+	}
+
+	/**
+	 * Tests whether the player to move is checkmated.
+	 *
+	 * @return The result of the test
+	 */
+	@Benchmark
+	public boolean checkmate() {
+		return board.checkmate(color, board);
+	}
+
+	/**
+	 * Tests whether the player to move is stalemated.
+	 *
+	 * @return The result of the test
+	 */
+	@Benchmark
+	public GameStatus stalemate() {
+		return board.stalemate(color, board);
+	}
+
+}
@@ -0,0 +1,83 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import board.Bitboard;
+import board.ChessBoard;
+import pieces.ChessPiece;
+
+/**
+ * PieceBenchmark measures possibleMoves of one kind of piece at a time,
+ * over every piece of that kind the player to move has in each
+ * position. A kind the player has none of measures an empty loop.
+ *
+ * @author Omar Khalil
+ * @author Michelle Hwang
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PieceBenchmark {
+
+	@Param({Positions.START, Positions.OPEN_MIDDLEGAME, Positions.CLOSED_MIDDLEGAME,
+			Positions.ROOK_ENDGAME, Positions.PAWN_ENDGAME})
+	public String position;
+
+	/**
+	 * Kind of piece, by the letter of its type label.
+	 */
+	@Param({"K", "Q", "R", "B", "N", "p"})
+	public String kind;
+
+	ChessBoard board;
+	ChessPiece piece;
+	int[] squares;
+	int[] moves = new int[256];
+
+	/**
+	 * Loads the position and collects the squares of the benchmarked kind.
+	 */
+	@Setup
+	public void setup() {
+		board = Positions.board(position);
+		int side = board.getSideToMove();
+		int code = side * 6 + Bitboard.kindIndex("?" + kind);
+		long bits = board.getPieces(side, code % 6);
+		piece = ChessPiece.of(code);
+		squares = new int[Long.bitCount(bits)];
+		for (int i = 0; bits != 0; i++) {
+			squares[i] = Long.numberOfTrailingZeros(bits);
+			bits &= bits - 1;
+		}
+	}
+
+	/**
+	 * Generates the moves of every piece of the kind.
+	 *
+	 * @return The number of moves generated
+	 */
+	@Benchmark
+	public int possibleMoves() {
+		int count = 0;
+		for (int square : squares) {
+			count = piece.possibleMoves(board, square, moves, count);
+		}
+		return count;
+	}
+
+}
@@ -0,0 +1,55 @@
+package bench;
+
+import board.ChessBoard;
+
+/**
+ * Positions holds the fixed positions the benchmarks are run on, by
+ * name, so that every benchmark can be parameterized the same way.
+ * None of them has a player in check or stalemated, so check and
+ * stalemate run their full tests rather than stopping early.
+ *
+ * @author Omar Khalil
+ * @author Michelle Hwang
+ */
+public class Positions {
+
+	public static final String START = "start";
+	public static final String OPEN_MIDDLEGAME = "open-middlegame";
+	public static final String CLOSED_MIDDLEGAME = "closed-middlegame";
+	public static final String ROOK_ENDGAME = "rook-endgame";
+	public static final String PAWN_ENDGAME = "pawn-endgame";
+
+	/**
+	 * Returns the FEN of a named position.
+	 *
+	 * @param name One of the position names above
+	 * @return The position in FEN
+	 */
+	public static String fen(String name) {
+		switch (name) {
+		case START:
+			return "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+		case OPEN_MIDDLEGAME:
+			return "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+		case CLOSED_MIDDLEGAME:
+			return "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10";
+		case ROOK_ENDGAME:
+			return "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+		case PAWN_ENDGAME:
+			return "8/5k2/3p4/1p1Pp2p/pP2Pp1P/P4P1K/8/8 b - - 0 50";
+		default:
+			throw new IllegalArgumentException("Unknown position: " + name);
+		}
+	}
+
+	/**
+	 * Creates a board holding a named position.
+	 *
+	 * @param name One of the position names above
+	 * @return The board
+	 */
+	public static ChessBoard board(String name) {
+		return ChessBoard.fromFen(fen(name));
+	}
+
+}
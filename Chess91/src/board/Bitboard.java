@@ -0,0 +1,278 @@
+package board;
+
+/**
+ * Bitboard holds the constants and helpers used by the 64-bit board
+ * representation. Each square of the board is one bit of a long, with
+ * a1 as bit 0, h1 as bit 7 and h8 as bit 63.
+ *
+ * @author Omar Khalil
+ * @author Michelle Hwang
+ */
+public class Bitboard {
+
+	/** Index of the white pieces in the color-indexed arrays. */
+	public static final int WHITE = 0;
+	/** Index of the black pieces in the color-indexed arrays. */
+	public static final int BLACK = 1;
+
+	public static final int KING = 0;
+	public static final int QUEEN = 1;
+	public static final int ROOK = 2;
+	public static final int BISHOP = 3;
+	public static final int KNIGHT = 4;
+	public static final int PAWN = 5;
+
+	/** Type labels indexed by color * 6 + kind. */
+	public static final String[] TYPES = {
+		"wK", "wQ", "wR", "wB", "wN", "wp",
+		"bK", "bQ", "bR", "bB", "bN", "bp"
+	};
+
+	/** Rank and file steps of the rook directions, then the bishop directions. */
+	static final int[] DIRECTION_RANKS = {1, -1, 0, 0, 1, 1, -1, -1};
+	static final int[] DIRECTION_FILES = {0, 0, 1, -1, 1, -1, 1, -1};
+
+	/** Rank and file offsets of the knight jumps. */
+	static final int[] KNIGHT_RANKS = {2, 2, -2, -2, 1, 1, -1, -1};
+	static final int[] KNIGHT_FILES = {1, -1, 1, -1, 2, -2, 2, -2};
+
+	/** Rank and file offsets of the pawn captures of each color. */
+	static final int[] WHITE_PAWN_RANKS = {1, 1};
+	static final int[] BLACK_PAWN_RANKS = {-1, -1};
+	static final int[] PAWN_FILES = {-1, 1};
+
+	/**
+	 * Squares strictly between two squares on a common rank, file or
+	 * diagonal, indexed by a * 64 + b; 0 if they are not aligned.
+	 */
+	static final long[] BETWEEN = new long[64 * 64];
+
+	/**
+	 * The whole rank, file or diagonal through two aligned squares,
+	 * indexed by a * 64 + b; 0 if they are not aligned.
+	 */
+	static final long[] LINE = new long[64 * 64];
+
+	/** Squares a knight attacks, indexed by its square. */
+	static final long[] KNIGHT_ATTACKS = new long[64];
+
+	/** Squares a king attacks, indexed by its square. */
+	static final long[] KING_ATTACKS = new long[64];
+
+	/** Squares a pawn attacks, indexed by color * 64 + square. */
+	static final long[] PAWN_ATTACKS = new long[2 * 64];
+
+	static {
+		for (int square = 0; square < 64; square++) {
+			KNIGHT_ATTACKS[square] = leaps(square, KNIGHT_RANKS, KNIGHT_FILES);
+			KING_ATTACKS[square] = leaps(square, DIRECTION_RANKS, DIRECTION_FILES);
+			PAWN_ATTACKS[WHITE * 64 + square] = leaps(square, WHITE_PAWN_RANKS, PAWN_FILES);
+			PAWN_ATTACKS[BLACK * 64 + square] = leaps(square, BLACK_PAWN_RANKS, PAWN_FILES);
+		}
+		for (int a = 0; a < 64; a++) {
+			for (int d = 0; d < 8; d++) {
+				long line = slide(a, 0, DIRECTION_RANKS[d], DIRECTION_FILES[d])
+						| slide(a, 0, -DIRECTION_RANKS[d], -DIRECTION_FILES[d]) | bit(a);
+				long between = 0;
+				int r = Square.rank(a) + DIRECTION_RANKS[d];
+				int f = Square.file(a) + DIRECTION_FILES[d];
+				while (r >= 0 && r < 8 && f >= 0 && f < 8) {
+					int b = Square.of(r, f);
+					BETWEEN[a * 64 + b] = between;
+					LINE[a * 64 + b] = line;
+					between |= bit(b);
+					r += DIRECTION_RANKS[d];
+					f += DIRECTION_FILES[d];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the bit of a square.
+	 *
+	 * @param square Square index, 0 (a1) to 63 (h8)
+	 * @return A long with only the bit of the square set
+	 */
+	public static long bit(int square) {
+		return 1L << square;
+	}
+
+	/**
+	 * Returns the squares strictly between two squares.
+	 *
+	 * @param a Square index
+	 * @param b Square index
+	 * @return The squares between, or 0 if a and b are not on a common
+	 * rank, file or diagonal
+	 */
+	public static long between(int a, int b) {
+		return BETWEEN[a * 64 + b];
+	}
+
+	/**
+	 * Returns the rank, file or diagonal through two squares.
+	 *
+	 * @param a Square index
+	 * @param b Square index
+	 * @return The whole line, or 0 if a and b are not aligned
+	 */
+	public static long line(int a, int b) {
+		return LINE[a * 64 + b];
+	}
+
+	/**
+	 * Returns the squares a rook on a square attacks.
+	 *
+	 * @param square Square index
+	 * @param occupied Bitboard of the pieces that block the rook
+	 * @return Bitboard of the attacked squares, blockers included
+	 */
+	public static long rookAttacks(int square, long occupied) {
+		return Magic.rook(square, occupied);
+	}
+
+	/**
+	 * Returns the squares a bishop on a square attacks.
+	 *
+	 * @param square Square index
+	 * @param occupied Bitboard of the pieces that block the bishop
+	 * @return Bitboard of the attacked squares, blockers included
+	 */
+	public static long bishopAttacks(int square, long occupied) {
+		return Magic.bishop(square, occupied);
+	}
+
+	/**
+	 * Returns the squares a queen on a square attacks.
+	 *
+	 * @param square Square index
+	 * @param occupied Bitboard of the pieces that block the queen
+	 * @return Bitboard of the attacked squares, blockers included
+	 */
+	public static long queenAttacks(int square, long occupied) {
+		return Magic.rook(square, occupied) | Magic.bishop(square, occupied);
+	}
+
+	/**
+	 * Returns the squares a knight on a square attacks.
+	 *
+	 * @param square Square index
+	 * @return Bitboard of the attacked squares
+	 */
+	public static long knightAttacks(int square) {
+		return KNIGHT_ATTACKS[square];
+	}
+
+	/**
+	 * Returns the squares a king on a square attacks.
+	 *
+	 * @param square Square index
+	 * @return Bitboard of the attacked squares
+	 */
+	public static long kingAttacks(int square) {
+		return KING_ATTACKS[square];
+	}
+
+	/**
+	 * Returns the squares a pawn on a square attacks.
+	 *
+	 * @param color Color of the pawn, WHITE or BLACK
+	 * @param square Square index
+	 * @return Bitboard of the attacked squares
+	 */
+	public static long pawnAttacks(int color, int square) {
+		return PAWN_ATTACKS[color * 64 + square];
+	}
+
+	/**
+	 * Returns the squares along one direction from a square, up to and
+	 * including the first occupied square.
+	 *
+	 * @param square Square index
+	 * @param occupied Bitboard of the blocking pieces
+	 * @param dRank Rank step, -1, 0 or 1
+	 * @param dFile File step, -1, 0 or 1
+	 * @return Bitboard of the squares
+	 */
+	static long slide(int square, long occupied, int dRank, int dFile) {
+		long attacks = 0;
+		int r = Square.rank(square) + dRank;
+		int f = Square.file(square) + dFile;
+		while (r >= 0 && r < 8 && f >= 0 && f < 8) {
+			long b = bit(Square.of(r, f));
+			attacks |= b;
+			if ((occupied & b) != 0) {
+				break;
+			}
+			r += dRank;
+			f += dFile;
+		}
+		return attacks;
+	}
+
+	/**
+	 * Returns the squares reached from a square by a set of rank and
+	 * file offsets, skipping those off the board.
+	 *
+	 * @param square Square index
+	 * @param dRanks Rank offsets
+	 * @param dFiles File offsets, same length as dRanks
+	 * @return Bitboard of the squares
+	 */
+	static long leaps(int square, int[] dRanks, int[] dFiles) {
+		long attacks = 0;
+		for (int i = 0; i < dRanks.length; i++) {
+			int r = Square.rank(square) + dRanks[i];
+			int f = Square.file(square) + dFiles[i];
+			if (r >= 0 && r < 8 && f >= 0 && f < 8) {
+				attacks |= bit(Square.of(r, f));
+			}
+		}
+		return attacks;
+	}
+
+	/**
+	 * Returns the color index of a color name.
+	 *
+	 * @param color Either "white" or "black"
+	 * @return WHITE or BLACK
+	 */
+	public static int colorIndex(String color) {
+		return color.equals("white") ? WHITE : BLACK;
+	}
+
+	/**
+	 * Returns the color name of a color index.
+	 *
+	 * @param color WHITE or BLACK
+	 * @return Either "white" or "black"
+	 */
+	public static String colorName(int color) {
+		return color == WHITE ? "white" : "black";
+	}
+
+	/**
+	 * Returns the kind index encoded in the second letter of a type label.
+	 *
+	 * @param type Type label, ex. "wK" or "bp"
+	 * @return The kind index of the piece
+	 */
+	public static int kindIndex(String type) {
+		switch (type.charAt(1)) {
+		case 'K':
+			return KING;
+		case 'Q':
+			return QUEEN;
+		case 'R':
+			return ROOK;
+		case 'B':
+			return BISHOP;
+		case 'N':
+			return KNIGHT;
+		default:
+			return PAWN;
+		}
+	}
+
+}
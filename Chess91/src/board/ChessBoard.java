@@ -1,15 +1,8 @@
 package board;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
-import pieces.Bishop;
 import pieces.ChessPiece;
-import pieces.King;
-import pieces.Knight;
-import pieces.Pawn;
-import pieces.Queen;
-import pieces.Rook;
 
 /**
  * The ChessBoard class implements the game board object, and methods helpful 
@@ -21,64 +14,437 @@ import pieces.Rook;
  */
 public class ChessBoard {	
 	
-	FileRank fr = new FileRank();
+	/** Castling right of white's king towards the h rook. */
+	public static final int WHITE_KINGSIDE = 1;
+	/** Castling right of white's king towards the a rook. */
+	public static final int WHITE_QUEENSIDE = 2;
+	/** Castling right of black's king towards the h rook. */
+	public static final int BLACK_KINGSIDE = 4;
+	/** Castling right of black's king towards the a rook. */
+	public static final int BLACK_QUEENSIDE = 8;
+	
+	/**
+	 * Castling rights kept when a piece moves from or to each square.
+	 * Moving the king or a rook, or capturing a rook in its corner, 
+	 * clears the matching rights.
+	 */
+	static final int[] CASTLING_MASK = new int[64];
+	
+	/**
+	 * The starting position in Forsyth-Edwards Notation.
+	 */
+	public static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+	
+	/**
+	 * Letters of the piece kinds in FEN, indexed by kind; white pieces
+	 * use the upper case letter.
+	 */
+	static final String FEN_LETTERS = "kqrbnp";
+	
+	/**
+	 * Home squares of the kings and rooks, and the code of the piece 
+	 * each castling right needs there.
+	 */
+	static final int[] CASTLING_HOMES = {Square.E1, Square.H1, Square.A1, Square.E8, Square.H8, Square.A8};
+	static final int[] CASTLING_PIECES = {Bitboard.KING, Bitboard.ROOK, Bitboard.ROOK, 
+			Bitboard.BLACK * 6 + Bitboard.KING, Bitboard.BLACK * 6 + Bitboard.ROOK, Bitboard.BLACK * 6 + Bitboard.ROOK};
+	
+	static {
+		Arrays.fill(CASTLING_MASK, 15);
+		CASTLING_MASK[Square.E1] = ~(WHITE_KINGSIDE | WHITE_QUEENSIDE) & 15;
+		CASTLING_MASK[Square.H1] = ~WHITE_KINGSIDE & 15;
+		CASTLING_MASK[Square.A1] = ~WHITE_QUEENSIDE & 15;
+		CASTLING_MASK[Square.E8] = ~(BLACK_KINGSIDE | BLACK_QUEENSIDE) & 15;
+		CASTLING_MASK[Square.H8] = ~BLACK_KINGSIDE & 15;
+		CASTLING_MASK[Square.A8] = ~BLACK_QUEENSIDE & 15;
+	}
+	
 	String[][] board = new String[9][9];
 	
-	ArrayList<ChessPiece> black = new ArrayList<ChessPiece>();
-	ArrayList<ChessPiece> white = new ArrayList<ChessPiece>();
-	private int runningGame = 0;
+	/**
+	 * One bitboard per piece kind and color, indexed by color * 6 + kind.
+	 * These are the source of truth for where pieces stand.
+	 */
+	long[] pieces = new long[12];
+	
+	/**
+	 * Occupancy of each color, indexed by Bitboard.WHITE and Bitboard.BLACK.
+	 */
+	long[] occupancy = new long[2];
+	
+	/**
+	 * Occupancy of both colors.
+	 */
+	long occupied;
+	
+	/**
+	 * Mailbox of the board: the code (color * 6 + kind) of the piece 
+	 * standing on each square, indexed by square, or EMPTY. Kept in 
+	 * sync with the bitboards by place and lift.
+	 */
+	byte[] squares = new byte[64];
+	
+	/**
+	 * Mailbox code of an empty square.
+	 */
+	public static final int EMPTY = -1;
+	
+	/**
+	 * Scratch buffer for one-off move lookups, so that validating a 
+	 * single move does not allocate.
+	 */
+	int[] moveBuffer = new int[256];
+	
+	/**
+	 * Color index of the player to move.
+	 */
+	int sideToMove = Bitboard.WHITE;
+	
+	/**
+	 * Castling rights still available, a combination of WHITE_KINGSIDE,
+	 * WHITE_QUEENSIDE, BLACK_KINGSIDE and BLACK_QUEENSIDE.
+	 */
+	int castling = WHITE_KINGSIDE | WHITE_QUEENSIDE | BLACK_KINGSIDE | BLACK_QUEENSIDE;
+	
+	/**
+	 * Square of the pawn that has just moved forward by 2 and can be 
+	 * captured en passant, or Square.NONE.
+	 */
+	int enPassant = Square.NONE;
+	
+	/**
+	 * Moves made since the last capture or pawn move, for the fifty 
+	 * move rule.
+	 */
+	int halfmoveClock;
+	
+	/**
+	 * Number of the move being played, starting at 1 and going up 
+	 * after each move of black.
+	 */
+	int fullmoveNumber = 1;
+	
+	/**
+	 * Zobrist hash of the position, kept up to date by place, lift and
+	 * makeMove.
+	 */
+	long hash;
+	
+	/**
+	 * Squares attacked by the piece on each square, indexed by square, 
+	 * or 0 for an empty square.
+	 */
+	long[] attacksFrom = new long[64];
+	
+	/**
+	 * Squares attacked by each color, indexed by Bitboard.WHITE and 
+	 * Bitboard.BLACK. Kept up to date after every move by updateAttacks.
+	 */
+	long[] attackMap = new long[2];
+	
+	/**
+	 * Squares a piece has been placed on or lifted from since the attack
+	 * maps were last updated.
+	 */
+	long changed;
+	
+	/**
+	 * Line a pinned piece may move along, indexed by the piece's square.
+	 * Only valid for the pieces found pinned by the last legal move
+	 * generation.
+	 */
+	long[] pinLine = new long[64];
+	
+	/**
+	 * Undo stack of makeMove, one entry per move made and not yet
+	 * taken back. The arrays are allocated up front and only grow if
+	 * a game outlasts them.
+	 */
+	int undoCount;
+	int[] undoMove = new int[MAX_PLY];
+	byte[] undoMoved = new byte[MAX_PLY];
+	byte[] undoCaptured = new byte[MAX_PLY];
+	byte[] undoEnPassant = new byte[MAX_PLY];
+	int[] undoCastling = new int[MAX_PLY];
+	int[] undoHalfmove = new int[MAX_PLY];
+	long[] undoHash = new long[MAX_PLY];
+	
+	/**
+	 * Initial depth of the undo stack.
+	 */
+	static final int MAX_PLY = 128;
 	
 	/**
 	 * Constructor that initializes the chess board with its game
 	 * pieces.
 	 */
 	public ChessBoard() {
-		black.add(new King("black", "bK", "8","e"));
-		black.add(new Pawn("black", "bp", "7", "a"));
-		black.add(new Pawn("black", "bp", "7", "b"));
-		black.add(new Pawn("black", "bp", "7", "c"));
-		black.add(new Pawn("black", "bp", "7", "d"));
-		black.add(new Pawn("black", "bp", "7", "e"));
-		black.add(new Pawn("black", "bp", "7", "f"));
-		black.add(new Pawn("black", "bp", "7", "g"));
-		black.add(new Pawn("black", "bp", "7", "h"));
-		black.add(new Rook("black", "bR", "8", "a"));
-		black.add(new Knight("black", "bN", "8", "b"));
-		black.add(new Bishop("black", "bB", "8", "c"));
-		black.add(new Queen("black", "bQ", "8", "d"));
-		black.add(new Bishop("black", "bB", "8", "f"));
-		black.add(new Knight("black", "bN", "8", "g"));
-		black.add(new Rook("black", "bR", "8", "h"));
+		this(START_FEN);
+	}
+	
+	/**
+	 * Constructor that sets up the position of a FEN string. 
+	 * 
+	 * @param fen Position in FEN
+	 * @throws IllegalArgumentException If the FEN is malformed
+	 */
+	ChessBoard(String fen) {
+		clear();
+		String[] fields = fen.trim().split("\\s+");
+		if (fields.length > 6) {
+			throw badFen(fen, "too many fields");
+		}
 		
-		white.add(new King("white", "wK", "1","e"));
-		white.add(new Pawn("white", "wp", "2", "a"));
-		white.add(new Pawn("white", "wp", "2", "b"));
-		white.add(new Pawn("white", "wp", "2", "c"));
-		white.add(new Pawn("white", "wp", "2", "d"));
-		white.add(new Pawn("white", "wp", "2", "e"));
-		white.add(new Pawn("white", "wp", "2", "f"));
-		white.add(new Pawn("white", "wp", "2", "g"));
-		white.add(new Pawn("white", "wp", "2", "h"));
-		white.add(new Rook("white", "wR", "1", "a"));
-		white.add(new Knight("white", "wN", "1", "b"));
-		white.add(new Bishop("white", "wB", "1", "c"));
-		white.add(new Queen("white", "wQ", "1", "d"));
-		white.add(new Bishop("white", "wB", "1", "f"));
-		white.add(new Knight("white", "wN", "1", "g"));
-		white.add(new Rook("white", "wR", "1", "h"));
+		int rank = 7, file = 0;
+		String placement = fields[0];
+		for (int i = 0; i < placement.length(); i++) {
+			char ch = placement.charAt(i);
+			if (ch == '/') {
+				if (file != 8 || rank == 0) {
+					throw badFen(fen, "rank " + (rank + 1) + " does not hold 8 squares");
+				}
+				rank--;
+				file = 0;
+			} else if (ch >= '1' && ch <= '8') {
+				file += ch - '0';
+				if (file > 8) {
+					throw badFen(fen, "rank " + (rank + 1) + " holds more than 8 squares");
+				}
+			} else {
+				int kind = FEN_LETTERS.indexOf(Character.toLowerCase(ch));
+				if (kind < 0) {
+					throw badFen(fen, "unknown piece '" + ch + "'");
+				}
+				if (file > 7) {
+					throw badFen(fen, "rank " + (rank + 1) + " holds more than 8 squares");
+				}
+				int color = Character.isUpperCase(ch) ? Bitboard.WHITE : Bitboard.BLACK;
+				place(color * 6 + kind, Square.of(rank, file));
+				file++;
+			}
+		}
+		if (rank != 0 || file != 8) {
+			throw badFen(fen, "the placement does not hold 8 ranks of 8 squares");
+		}
+		if (Long.bitCount(pieces[Bitboard.WHITE * 6 + Bitboard.KING]) != 1
+				|| Long.bitCount(pieces[Bitboard.BLACK * 6 + Bitboard.KING]) != 1) {
+			throw badFen(fen, "each player must have exactly one king");
+		}
 		
-		/*// for stalemate testing
-		black.add(new King("black", "bK", "8","e"));
-		white.add(new King("white", "wK", "7","c"));
-		white.add(new Queen("white", "wQ", "5", "f"));*/
+		if (fields.length > 1) {
+			if (fields[1].equals("b")) {
+				sideToMove = Bitboard.BLACK;
+			} else if (!fields[1].equals("w")) {
+				throw badFen(fen, "side to move must be w or b");
+			}
+		}
+		if (fields.length > 2 && !fields[2].equals("-")) {
+			for (int i = 0; i < fields[2].length(); i++) {
+				switch (fields[2].charAt(i)) {
+				case 'K': castling |= WHITE_KINGSIDE; break;
+				case 'Q': castling |= WHITE_QUEENSIDE; break;
+				case 'k': castling |= BLACK_KINGSIDE; break;
+				case 'q': castling |= BLACK_QUEENSIDE; break;
+				default: throw badFen(fen, "bad castling rights " + fields[2]);
+				}
+			}
+			// a right is only kept while its king and rook are on their home squares
+			for (int i = 0; i < CASTLING_HOMES.length; i++) {
+				if (squares[CASTLING_HOMES[i]] != CASTLING_PIECES[i]) {
+					castling &= CASTLING_MASK[CASTLING_HOMES[i]];
+				}
+			}
+		}
+		if (fields.length > 3 && !fields[3].equals("-")) {
+			// the square the pawn passed over: rank 3 after a white push, rank 6 after a black one
+			char passed = sideToMove == Bitboard.WHITE ? '6' : '3';
+			String square = fields[3];
+			if (square.length() != 2 || square.charAt(0) < 'a' || square.charAt(0) > 'h' || square.charAt(1) != passed) {
+				throw badFen(fen, "bad en passant square " + square);
+			}
+			// the pawn that moved forward by 2 stands just past the en passant square
+			int target = Square.of(square.charAt(1) - '1', square.charAt(0) - 'a');
+			int pawn = sideToMove == Bitboard.WHITE ? target - 8 : target + 8;
+			int origin = sideToMove == Bitboard.WHITE ? target + 8 : target - 8;
+			if (squares[pawn] != (sideToMove ^ 1) * 6 + Bitboard.PAWN || squares[target] != EMPTY
+					|| squares[origin] != EMPTY) {
+				throw badFen(fen, "no pawn has just moved forward by 2 past " + square);
+			}
+			enPassant = pawn;
+		}
+		if (fields.length > 4) {
+			halfmoveClock = counter(fen, fields[4], 0);
+		}
+		if (fields.length > 5) {
+			fullmoveNumber = counter(fen, fields[5], 1);
+		}
 		
+		hash = computeHash();
+		computeAttacks();
+	}
+	
+	/**
+	 * Reads a move counter of a FEN.
+	 * 
+	 * @param fen The whole FEN, for the error message
+	 * @param field The counter field
+	 * @param min Smallest value allowed
+	 * @return The counter
+	 * @throws IllegalArgumentException If the field is not a number of 
+	 * at least min
+	 */
+	static int counter(String fen, String field, int min) {
+		int value;
+		try {
+			value = Integer.parseInt(field);
+		} catch (NumberFormatException e) {
+			throw badFen(fen, "bad move counter " + field);
+		}
+		if (value < min) {
+			throw badFen(fen, "bad move counter " + field);
+		}
+		return value;
+	}
+	
+	/**
+	 * Makes the exception thrown for a malformed FEN.
+	 * 
+	 * @param fen The FEN
+	 * @param why What is wrong with it
+	 * @return The exception to throw
+	 */
+	static IllegalArgumentException badFen(String fen, String why) {
+		return new IllegalArgumentException("Bad FEN \"" + fen + "\": " + why);
+	}
+	
+	/**
+	 * Creates a board from a position in Forsyth-Edwards Notation, ex. 
+	 * "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1". The 
+	 * piece placement, side to move, castling rights, en passant square
+	 * and move counters are read; missing trailing fields keep their 
+	 * defaults, so "8/8/8/8/8/8/8/K1k5 w" is enough. Castling rights 
+	 * whose king or rook has left its home square are dropped.
+	 * 
+	 * @param fen Position in FEN
+	 * @return The board holding that position
+	 * @throws IllegalArgumentException If the FEN is malformed
+	 */
+	public static ChessBoard fromFen(String fen) {
+		return new ChessBoard(fen);
+	}
+	
+	/**
+	 * Writes the position in Forsyth-Edwards Notation. A board read 
+	 * with fromFen writes back the same FEN.
+	 * 
+	 * @return The position in FEN
+	 */
+	public String toFen() {
+		StringBuilder fen = new StringBuilder(90);
+		for (int rank = 7; rank >= 0; rank--) {
+			int empty = 0;
+			for (int file = 0; file < 8; file++) {
+				int code = squares[Square.of(rank, file)];
+				if (code == EMPTY) {
+					empty++;
+					continue;
+				}
+				if (empty > 0) {
+					fen.append(empty);
+					empty = 0;
+				}
+				char ch = FEN_LETTERS.charAt(code % 6);
+				fen.append(code / 6 == Bitboard.WHITE ? Character.toUpperCase(ch) : ch);
+			}
+			if (empty > 0) {
+				fen.append(empty);
+			}
+			if (rank > 0) {
+				fen.append('/');
+			}
+		}
+		
+		fen.append(sideToMove == Bitboard.WHITE ? " w " : " b ");
+		if (castling == 0) {
+			fen.append('-');
+		}
+		if (canCastle(WHITE_KINGSIDE)) {
+			fen.append('K');
+		}
+		if (canCastle(WHITE_QUEENSIDE)) {
+			fen.append('Q');
+		}
+		if (canCastle(BLACK_KINGSIDE)) {
+			fen.append('k');
+		}
+		if (canCastle(BLACK_QUEENSIDE)) {
+			fen.append('q');
+		}
 		
-		/*// for checkmate testing
-		black.add(new King("black", "bK", "8","e"));
-		white.add(new King("white", "wK", "7","c"));
-		white.add(new Queen("white", "wQ", "6", "f"));
-		white.add(new Queen("white", "wQ", "1", "d"));*/
+		fen.append(' ');
+		if (enPassant == Square.NONE) {
+			fen.append('-');
+		} else {
+			fen.append(Move.square(sideToMove == Bitboard.WHITE ? enPassant + 8 : enPassant - 8));
+		}
+		fen.append(' ').append(halfmoveClock).append(' ').append(fullmoveNumber);
+		return fen.toString();
+	}
+	
+	/**
+	 * Creates an independent copy of the board and its undo stack, so 
+	 * that moves can be made and taken back on the copy from another 
+	 * thread. Pieces are shared and hold no state, so only the arrays 
+	 * of the board are copied.
+	 * 
+	 * @return The copy
+	 */
+	public ChessBoard copy() {
+		ChessBoard b = new ChessBoard();
+		b.pieces = pieces.clone();
+		b.occupancy = occupancy.clone();
+		b.occupied = occupied;
+		b.squares = squares.clone();
+		b.sideToMove = sideToMove;
+		b.castling = castling;
+		b.enPassant = enPassant;
+		b.halfmoveClock = halfmoveClock;
+		b.fullmoveNumber = fullmoveNumber;
+		b.hash = hash;
+		b.attacksFrom = attacksFrom.clone();
+		b.attackMap = attackMap.clone();
+		b.changed = changed;
 		
+		b.undoCount = undoCount;
+		b.undoMove = undoMove.clone();
+		b.undoMoved = undoMoved.clone();
+		b.undoCaptured = undoCaptured.clone();
+		b.undoEnPassant = undoEnPassant.clone();
+		b.undoCastling = undoCastling.clone();
+		b.undoHalfmove = undoHalfmove.clone();
+		b.undoHash = undoHash.clone();
+		return b;
+	}
+	
+	/**
+	 * Removes every piece and resets the castling rights, en passant 
+	 * pawn, side to move, move counters and undo stack.
+	 */
+	void clear() {
+		Arrays.fill(pieces, 0);
+		Arrays.fill(occupancy, 0);
+		occupied = 0;
+		Arrays.fill(squares, (byte) EMPTY);
+		sideToMove = Bitboard.WHITE;
+		castling = 0;
+		enPassant = Square.NONE;
+		halfmoveClock = 0;
+		fullmoveNumber = 1;
+		undoCount = 0;
+		hash = 0;
+		Arrays.fill(attacksFrom, 0);
+		Arrays.fill(attackMap, 0);
+		changed = 0;
 	}
 	
 	/**
@@ -95,33 +461,19 @@ public class ChessBoard {
 	}
 	
 	/**
-	 * Prints out the chess board.
+	 * Prints out the chess board. Piece labels are read from the
+	 * mailbox, the row and column labels from the board array.
 	 */
 	public void displayBoard() {
 		
-		int row = 0;
-		int col = 0;
-
-		// gives coordinates of each piece corr. to board 2D array
-		if (runningGame == 0) {
-			for(ChessPiece piece : white) {
-				row = Math.abs(Integer.parseInt(piece.getRow()) - 8);
-				col = Math.abs(fr.letterToNumber(piece.getCol().charAt(0)) - 1);
-				board[row][col] = piece.type;
-				//System.out.println(row + " " + col);
-			}
-
-			for(ChessPiece piece : black) {
-				row = Math.abs(Integer.parseInt(piece.getRow()) - 8);
-				col = Math.abs(fr.letterToNumber(piece.getCol().charAt(0)) - 1);
-				board[row][col] = piece.type;
-				//System.out.println(row + " " + col);
-			}
-		}
-
 		for(int i = 0; i < 9; i++) {
 			for (int j = 0; j < 9; j++) {
-				if (board[i][j] == null) {
+				String label = board[i][j];
+				if (i < 8 && j < 8) {
+					label = typeAt(Square.of(7 - i, j));
+				}
+				
+				if (label == null) {
 					if (i%2 == 0) {
 						if (j%2 != 0) {
 							System.out.print("## ");							
@@ -136,7 +488,7 @@ public class ChessBoard {
 						}
 					}
 				} else {
-					System.out.print(board[i][j] + " ");
+					System.out.print(label + " ");
 				}
 			}
 			System.out.println();
@@ -147,656 +499,767 @@ public class ChessBoard {
 	}
 	
 	/**
-	 * Checks that user input matches expected format (ex. "e5 e4").
+	 * Returns the type label of the piece on a square.
 	 * 
-	 * @param from String coordinate of origin
-	 * @param to String coordinate of destination
-	 * @return True if input is in correct format, false otherwise
+	 * @param square Square index
+	 * @return The type label, ex. "wK", or null if the square is empty
 	 */
-	public boolean checkInput(String from, String to) {
-		if (from.length() == 2 && to.length() == 2) {
-			if (Character.isLetter(from.charAt(0)) && Character.isLetter(to.charAt(0))) {
-				if (Character.isDigit(from.charAt(1)) && Character.isDigit(to.charAt(1))) {
-					return true;
-				}
-			}
-		}
-		return false;
+	public String typeAt(int square) {
+		int code = squares[square];
+		return code == EMPTY ? null : Bitboard.TYPES[code];
 	}
 	
 	/**
-	 * Checks if king has been captured and announces to user.
+	 * Returns the code of the piece on a square.
 	 * 
-	 * @param color Color of the player to be checked
-	 * @param board ChessBoard object
+	 * @param square Square index
+	 * @return The piece code, color * 6 + kind, or EMPTY
 	 */
-	public void captureKing(String color, ChessBoard board) {
-		if (color.equals("black")) {
-			for (ChessPiece p : black) {
-				if (p.getType().equals("bK")) {
-					return;
-				}
-			}
-		} else {
-			for (ChessPiece p : white) {
-				if (p.getType().equals("wK")) {
-					return;
-				}
+	public int getCode(int square) {
+		return squares[square];
+	}
+	
+	/**
+	 * Checks if a square holds any piece.
+	 * 
+	 * @param square Square index
+	 * @return True if a piece is on the square, false otherwise
+	 */
+	public boolean isOccupied(int square) {
+		return (occupied & Bitboard.bit(square)) != 0;
+	}
+	
+	/**
+	 * Checks if a square holds a piece of the given color.
+	 * 
+	 * @param color Bitboard.WHITE or Bitboard.BLACK
+	 * @param square Square index
+	 * @return True if a piece of that color is on the square, false otherwise
+	 */
+	public boolean isOccupiedBy(int color, int square) {
+		return (occupancy[color] & Bitboard.bit(square)) != 0;
+	}
+	
+	/**
+	 * Returns the bitboard of one kind of piece.
+	 * 
+	 * @param color Bitboard.WHITE or Bitboard.BLACK
+	 * @param kind Kind index, ex. Bitboard.ROOK
+	 * @return The bitboard of those pieces
+	 */
+	public long getPieces(int color, int kind) {
+		return pieces[color * 6 + kind];
+	}
+	
+	/**
+	 * Returns the occupancy mask of both colors.
+	 * 
+	 * @return The bitboard of all pieces on the board
+	 */
+	public long getOccupied() {
+		return occupied;
+	}
+	
+	/**
+	 * Returns the occupancy mask of one color.
+	 * 
+	 * @param color Bitboard.WHITE or Bitboard.BLACK
+	 * @return The bitboard of all pieces of that color
+	 */
+	public long getOccupancy(int color) {
+		return occupancy[color];
+	}
+	
+	/**
+	 * Returns the square of a player's king.
+	 * 
+	 * @param color Bitboard.WHITE or Bitboard.BLACK
+	 * @return The square of the king, or 64 if it has been captured
+	 */
+	public int getKingSquare(int color) {
+		return Long.numberOfTrailingZeros(pieces[color * 6 + Bitboard.KING]);
+	}
+	
+	/**
+	 * Returns the color index of the player to move.
+	 * 
+	 * @return Bitboard.WHITE or Bitboard.BLACK
+	 */
+	public int getSideToMove() {
+		return sideToMove;
+	}
+	
+	/**
+	 * Checks if a castling right is still available.
+	 * 
+	 * @param right One of WHITE_KINGSIDE, WHITE_QUEENSIDE, BLACK_KINGSIDE
+	 * or BLACK_QUEENSIDE
+	 * @return True if the right has not been lost, false otherwise
+	 */
+	public boolean canCastle(int right) {
+		return (castling & right) != 0;
+	}
+	
+	/**
+	 * Returns the number of moves made since the last capture or pawn
+	 * move.
+	 * 
+	 * @return The halfmove clock
+	 */
+	public int getHalfmoveClock() {
+		return halfmoveClock;
+	}
+	
+	/**
+	 * Returns the number of the move being played, which starts at 1 and
+	 * goes up after each move of black.
+	 * 
+	 * @return The fullmove number
+	 */
+	public int getFullmoveNumber() {
+		return fullmoveNumber;
+	}
+	
+	/**
+	 * Returns the square of the pawn that has just moved forward by 2, 
+	 * the only pawn that can be captured en passant.
+	 * 
+	 * @return The square of the pawn, or Square.NONE
+	 */
+	public int getEnPassantPawn() {
+		return enPassant;
+	}
+	
+	/**
+	 * Returns the Zobrist hash of the position. Positions with the same
+	 * pieces on the same squares, side to move, castling rights and en
+	 * passant capture have the same hash; a pawn that has just moved 
+	 * forward by 2 only counts when it can be taken.
+	 * 
+	 * @return The hash of the position
+	 */
+	public long getHash() {
+		return hash;
+	}
+	
+	/**
+	 * Computes the Zobrist hash of the position from scratch.
+	 * 
+	 * @return The hash of the position
+	 */
+	public long computeHash() {
+		long h = Zobrist.CASTLING[castling];
+		for (int piece = 0; piece < 12; piece++) {
+			long bits = pieces[piece];
+			while (bits != 0) {
+				h ^= Zobrist.piece(piece, Long.numberOfTrailingZeros(bits));
+				bits &= bits - 1;
 			}
 		}
-		if (color.equals("white")) {
-			System.out.println("Black wins");
-		} else {
-			System.out.println("White wins");
+		if (canCaptureEnPassant()) {
+			h ^= Zobrist.EN_PASSANT[Square.file(enPassant)];
+		}
+		if (sideToMove == Bitboard.BLACK) {
+			h ^= Zobrist.BLACK_TO_MOVE;
 		}
-		//System.out.println(color + "'s king has been captured. " + color + " loses.");
-		System.exit(0);
+		return h;
 	}
 	
 	/**
-	 * Checks if the move is valid and not out of bounds or illegal.
+	 * Checks if the player to move has a pawn next to the pawn that has
+	 * just moved forward by 2, so that an en passant capture may be 
+	 * possible. The board keeps the en passant pawn after every such 
+	 * move, but the position only differs from the same placement 
+	 * reached otherwise when the pawn can be taken, so only then is its
+	 * file hashed.
 	 * 
-	 * @param row String row coordinate of destination
-	 * @param col String column coordinate of destination
-	 * @return True if the move is in bounds, false otherwise
+	 * @return True if a pawn of the player to move can reach the square
+	 * behind the en passant pawn
 	 */
-	public boolean isValidMove(String row, String col) {
-		int r = Integer.parseInt(row);
-		int c = fr.letterToNumber(col.charAt(0));
-		//System.out.println(r + " " + c);
-		if ((c < 0 || c > 8) || (r < 1 || r > 8)) {
-			//System.out.println("out of bounds");
+	public boolean canCaptureEnPassant() {
+		if (enPassant == Square.NONE) {
 			return false;
 		}
-		
-		return true;
+		int behind = sideToMove == Bitboard.WHITE ? enPassant + 8 : enPassant - 8;
+		// the capturing pawns are those a pawn of the other color on that square would attack
+		return (Bitboard.pawnAttacks(sideToMove ^ 1, behind) & pieces[sideToMove * 6 + Bitboard.PAWN]) != 0;
 	}
 	
 	/**
-	 * Retrieves the ChessPiece object at (row, col).
+	 * Returns the board's scratch move buffer. It is large enough for 
+	 * every move of a position but is shared, so callers must be done 
+	 * with it before the next lookup.
 	 * 
-	 * @param row Row of object to be returned
-	 * @param col Column of object to be returned
-	 * @return The ChessPiece object located at the specified coordinate or null
+	 * @return The scratch move buffer
 	 */
-	public ChessPiece getPiece(String row, String col) {
-		if (!isValidMove(row, col)) {
-			System.out.println("out of bounds");
-			return null;
-		}
-
-		for(ChessPiece p : white) {
-			if (p.getRow().compareTo(row) == 0 && p.getCol().compareTo(col) == 0) {
-				return p;
-			}
-		}	
-		for(ChessPiece p : black) {
-			if (p.getRow().compareTo(row) == 0 && p.getCol().compareTo(col) == 0) {
-				return p;
+	public int[] getMoveBuffer() {
+		return moveBuffer;
+	}
+	
+	/**
+	 * Writes the possible moves of every piece of a player into a move
+	 * buffer. The pieces are visited kind by kind, so that each kind's
+	 * move code runs for all of its pieces in a row.
+	 * 
+	 * @param color Color of the player
+	 * @param moves Buffer of at least 256 entries
+	 * @return The number of moves written
+	 */
+	public int generateMoves(String color, int[] moves) {
+		int base = Bitboard.colorIndex(color) * 6;
+		int count = 0;
+		for (int code = base; code < base + 6; code++) {
+			ChessPiece piece = ChessPiece.of(code);
+			long bits = pieces[code];
+			while (bits != 0) {
+				int square = Long.numberOfTrailingZeros(bits);
+				bits &= bits - 1;
+				count = piece.possibleMoves(this, square, moves, count);
 			}
 		}
-		return null;
+		return count;
 	}
 	
-	
-
 	/**
-	 * Checks to see if there is stalemate, where king has no 
-	 * available moves to go but is not in checkmate. 
+	 * Writes the legal moves of a player into a move buffer: the moves 
+	 * that do not leave the player's own king attacked. The pieces that 
+	 * give check and the pieces pinned to the king are found once, then
+	 * each piece's moves are kept only if they block or capture the 
+	 * checking piece and stay on the pinning line; no move has to be 
+	 * made to test it.
 	 * 
-	 * @param color Color of player
-	 * @param board Chessboard object
+	 * @param color Bitboard.WHITE or Bitboard.BLACK
+	 * @param moves Buffer of at least 256 entries
+	 * @return The number of moves written
 	 */
-	public void stalemate(String color, ChessBoard board) {
-		List<String> temp;
-		List<String> k_moves = new ArrayList<String>();
-		List<String> tempMoves = new ArrayList<String>();
-	
-		if (color.equals("white")) {
-			// check if any other piece can move
-			for (ChessPiece p : white) {
-				if ((p.possibleMoves("white", board) != null) && !(p instanceof King)) {
-					return;
-				}
-			}
-			
-			ChessPiece king = white.get(0);
-			//System.out.println(king);
-			temp = king.possibleMoves("white", board);
-			for (String s : temp) {
-				String row = s.substring(0,1);
-				String col = s.substring(2);
-				//System.out.println(row + " " + col);
-				if (board.isEmpty(board, row, col)) {
-					k_moves.add(s);
-				} else if (board.getPiece(row, col).color.equals("black")) {
-					k_moves.add(s);
-				}
+	public int generateLegalMoves(int color, int[] moves) {
+		int king = getKingSquare(color);
+		if (king == 64) {
+			return generateMoves(Bitboard.colorName(color), moves);
+		}
+		int opponent = color ^ 1;
+		int base = opponent * 6;
+		long kingBit = Bitboard.bit(king);
+		long checkers = attackersTo(king, opponent, occupied);
+		
+		// a piece is pinned if it is the only piece between the king and a slider
+		long pinned = 0;
+		long snipers = (Bitboard.rookAttacks(king, 0) & (pieces[base + Bitboard.ROOK] | pieces[base + Bitboard.QUEEN]))
+				| (Bitboard.bishopAttacks(king, 0) & (pieces[base + Bitboard.BISHOP] | pieces[base + Bitboard.QUEEN]));
+		while (snipers != 0) {
+			int sniper = Long.numberOfTrailingZeros(snipers);
+			snipers &= snipers - 1;
+			long blockers = Bitboard.between(king, sniper) & occupied;
+			if (Long.bitCount(blockers) == 1 && (blockers & occupancy[color]) != 0) {
+				pinned |= blockers;
+				pinLine[Long.numberOfTrailingZeros(blockers)] = Bitboard.line(king, sniper);
 			}
-			
-			tempMoves.addAll(k_moves);
-			//System.out.println("temp:" + tempMoves);
-			
-			String kingPos = king.getRow() + " " + king.getCol();
-			
-			for (String coord : tempMoves) {
-				for (ChessPiece p : black) {
-					if (p instanceof Pawn) {
-						Pawn pawn = (Pawn) p;
-						if (pawn.possibleAttacks("black", board).contains(kingPos)) {
-							return;
-						}
-						if (pawn.possibleAttacks("black", board).contains(coord)) {
-							k_moves.remove(coord);
-							continue;
-						}
-					} else {
-						if (p.possibleMoves("black", board).contains(kingPos)) {
-							return;
-						}
-						if (p.possibleMoves("black", board).contains(coord)) {
-							k_moves.remove(coord);
-							continue;
+		}
+		
+		int count = 0;
+		// against two checkers only the king can move
+		if (Long.bitCount(checkers) < 2) {
+			// against one checker, capture it or block its ray
+			long target = checkers == 0 ? ~0L
+					: checkers | Bitboard.between(king, Long.numberOfTrailingZeros(checkers));
+			for (int code = color * 6 + Bitboard.QUEEN; code <= color * 6 + Bitboard.PAWN; code++) {
+				ChessPiece piece = ChessPiece.of(code);
+				long bits = pieces[code];
+				while (bits != 0) {
+					int square = Long.numberOfTrailingZeros(bits);
+					bits &= bits - 1;
+					long allowed = (pinned & Bitboard.bit(square)) != 0 ? target & pinLine[square] : target;
+					
+					int start = count;
+					count = piece.possibleMoves(this, square, moves, count);
+					int kept = start;
+					for (int i = start; i < count; i++) {
+						int move = moves[i];
+						if (Move.isEnPassant(move) ? isLegalEnPassant(move, king, opponent)
+								: (allowed & Bitboard.bit(Move.to(move))) != 0) {
+							moves[kept++] = move;
 						}
 					}
+					count = kept;
 				}
 			}
-			
-		} else {
-			// check if any other piece can move
-			for (ChessPiece p : black) {
-				if ((p.possibleMoves("black", board) != null) && !(p instanceof King)) {
-					return;
-				}
+		}
+		
+		int start = count;
+		count = ChessPiece.of(color * 6 + Bitboard.KING).possibleMoves(this, king, moves, count);
+		int kept = start;
+		for (int i = start; i < count; i++) {
+			int move = moves[i];
+			int to = Move.to(move);
+			boolean safe;
+			if (checkers == 0) {
+				// castling moves were already tested against the attack map
+				safe = Move.isCastle(move) || !isSquareAttacked(to, opponent);
+			} else {
+				// the king no longer blocks the ray of a slider giving check
+				safe = !Move.isCastle(move) && attackersTo(to, opponent, occupied ^ kingBit) == 0;
 			}
-			
-			ChessPiece king = black.get(0);
-			//System.out.println(king);
-			temp = king.possibleMoves("black", board);
-			for (String s : temp) {
-				String row = s.substring(0,1);
-				String col = s.substring(2);
-				//System.out.println(row + " " + col);
-				if (board.isEmpty(board, row, col)) {
-					k_moves.add(s);
-				} else if (board.getPiece(row, col).color.equals("white")) {
-					k_moves.add(s);
-				}
+			if (safe) {
+				moves[kept++] = move;
 			}
-			
-			tempMoves.addAll(k_moves);
-			//System.out.println("temp:" + tempMoves);
-			
-			String kingPos = king.getRow() + " " + king.getCol();
-			
-			for (String coord : tempMoves) {
-				for (ChessPiece p : white) {
-					if (p instanceof Pawn) {
-						Pawn pawn = (Pawn) p;
-						if (pawn.possibleAttacks("white", board).contains(kingPos)) {
-							return;
-						}
-						if (pawn.possibleAttacks("white", board).contains(coord)) {
-							k_moves.remove(coord);
-							continue;
-						}
-					} else {
-						if (p.possibleMoves("white", board).contains(kingPos)) {
-							return;
-						}
-						if (p.possibleMoves("white", board).contains(coord)) {
-							k_moves.remove(coord);
-							continue;
-						}
-					}
+		}
+		return kept;
+	}
+	
+	/**
+	 * Checks that an en passant capture does not leave the king attacked,
+	 * including along the rank both pawns leave.
+	 * 
+	 * @param move Packed en passant move
+	 * @param king Square of the moving player's king
+	 * @param opponent Color index of the opponent
+	 * @return True if the capture is legal, false otherwise
+	 */
+	boolean isLegalEnPassant(int move, int king, int opponent) {
+		int to = Move.to(move);
+		long captured = Bitboard.bit(opponent == Bitboard.BLACK ? to - 8 : to + 8);
+		long occ = (occupied ^ Bitboard.bit(Move.from(move)) ^ captured) | Bitboard.bit(to);
+		return (attackersTo(king, opponent, occ) & ~captured) == 0;
+	}
+	
+	/**
+	 * Returns the pieces of a player that attack a square, given the 
+	 * pieces that block sliding pieces.
+	 * 
+	 * @param square Square index
+	 * @param byColor Bitboard.WHITE or Bitboard.BLACK
+	 * @param occ Bitboard of the blocking pieces
+	 * @return Bitboard of the squares of the attacking pieces
+	 */
+	public long attackersTo(int square, int byColor, long occ) {
+		int base = byColor * 6;
+		return (Bitboard.knightAttacks(square) & pieces[base + Bitboard.KNIGHT])
+				| (Bitboard.kingAttacks(square) & pieces[base + Bitboard.KING])
+				| (Bitboard.pawnAttacks(byColor ^ 1, square) & pieces[base + Bitboard.PAWN])
+				| (Bitboard.rookAttacks(square, occ) & (pieces[base + Bitboard.ROOK] | pieces[base + Bitboard.QUEEN]))
+				| (Bitboard.bishopAttacks(square, occ) & (pieces[base + Bitboard.BISHOP] | pieces[base + Bitboard.QUEEN]));
+	}
+	
+	/**
+	 * Returns every square attacked by a player's pieces.
+	 * 
+	 * @param color Color of the attacking player
+	 * @return Bitboard of the attacked squares
+	 */
+	public long attacks(String color) {
+		return attackMap[Bitboard.colorIndex(color)];
+	}
+	
+	/**
+	 * Returns every square attacked by a player's pieces.
+	 * 
+	 * @param color Bitboard.WHITE or Bitboard.BLACK
+	 * @return Bitboard of the attacked squares
+	 */
+	public long getAttacks(int color) {
+		return attackMap[color];
+	}
+	
+	/**
+	 * Checks if a square is attacked by any piece of a player.
+	 * 
+	 * @param square Square index
+	 * @param byColor Bitboard.WHITE or Bitboard.BLACK
+	 * @return True if the square is attacked, false otherwise
+	 */
+	public boolean isSquareAttacked(int square, int byColor) {
+		return (attackMap[byColor] & Bitboard.bit(square)) != 0;
+	}
+	
+	/**
+	 * Brings the attack maps up to date with the squares changed since 
+	 * the last update. Only the pieces on changed squares and the 
+	 * sliding pieces whose rays reach a changed square can attack 
+	 * differently: a ray includes its first blocker, so a square that is 
+	 * emptied or filled is always part of the rays it shortens or 
+	 * lengthens.
+	 */
+	void updateAttacks() {
+		long dirty = changed;
+		long sliders = (pieces[Bitboard.QUEEN] | pieces[Bitboard.ROOK] | pieces[Bitboard.BISHOP]
+				| pieces[6 + Bitboard.QUEEN] | pieces[6 + Bitboard.ROOK] | pieces[6 + Bitboard.BISHOP]) & ~dirty;
+		while (sliders != 0) {
+			int square = Long.numberOfTrailingZeros(sliders);
+			sliders &= sliders - 1;
+			if ((attacksFrom[square] & changed) != 0) {
+				dirty |= Bitboard.bit(square);
+			}
+		}
+		
+		while (dirty != 0) {
+			int square = Long.numberOfTrailingZeros(dirty);
+			dirty &= dirty - 1;
+			int code = squares[square];
+			attacksFrom[square] = code == EMPTY ? 0 : ChessPiece.of(code).attacks(this, square);
+		}
+		
+		attackMap[Bitboard.WHITE] = union(occupancy[Bitboard.WHITE]);
+		attackMap[Bitboard.BLACK] = union(occupancy[Bitboard.BLACK]);
+		changed = 0;
+	}
+	
+	/**
+	 * Recomputes the attacks of every piece.
+	 */
+	void computeAttacks() {
+		changed = ~0L;
+		updateAttacks();
+	}
+	
+	/**
+	 * Returns the squares attacked by a set of pieces.
+	 * 
+	 * @param from Bitboard of the squares of the pieces
+	 * @return Bitboard of the attacked squares
+	 */
+	long union(long from) {
+		long attacks = 0;
+		while (from != 0) {
+			int square = Long.numberOfTrailingZeros(from);
+			from &= from - 1;
+			attacks |= attacksFrom[square];
+		}
+		return attacks;
+	}
+	
+	/**
+	 * Sets the bit of a piece in its bitboard and the occupancy masks,
+	 * and puts it in the mailbox.
+	 * 
+	 * @param code Code of the piece, color * 6 + kind
+	 * @param square Square the piece is placed on
+	 */
+	void place(int code, int square) {
+		int color = code / 6;
+		long bit = Bitboard.bit(square);
+		pieces[code] |= bit;
+		occupancy[color] |= bit;
+		occupied |= bit;
+		changed |= bit;
+		squares[square] = (byte) code;
+		hash ^= Zobrist.piece(code, square);
+	}
+	
+	/**
+	 * Clears the bit of a piece from its bitboard and the occupancy masks,
+	 * and takes it out of the mailbox.
+	 * 
+	 * @param square Square of the piece to be lifted
+	 * @return Code of the lifted piece
+	 */
+	int lift(int square) {
+		int code = squares[square];
+		int color = code / 6;
+		long bit = ~Bitboard.bit(square);
+		pieces[code] &= bit;
+		occupancy[color] &= bit;
+		occupied &= bit;
+		changed |= ~bit;
+		squares[square] = (byte) EMPTY;
+		hash ^= Zobrist.piece(code, square);
+		return code;
+	}
+	
+	/**
+	 * Checks that user input matches expected format (ex. "e5 e4").
+	 * 
+	 * @param from String coordinate of origin
+	 * @param to String coordinate of destination
+	 * @return True if input is in correct format, false otherwise
+	 */
+	public boolean checkInput(String from, String to) {
+		if (from.length() == 2 && to.length() == 2) {
+			if (Character.isLetter(from.charAt(0)) && Character.isLetter(to.charAt(0))) {
+				if (Character.isDigit(from.charAt(1)) && Character.isDigit(to.charAt(1))) {
+					return true;
 				}
 			}
 		}
+		return false;
+	}
+	
+	/**
+	 * Checks if king has been captured.
+	 * 
+	 * @param color Color of the player to be checked
+	 * @param board ChessBoard object
+	 * @return GameStatus.KING_CAPTURED if the king is gone, 
+	 * GameStatus.ONGOING otherwise
+	 */
+	public GameStatus captureKing(String color, ChessBoard board) {
+		if (board.getPieces(Bitboard.colorIndex(color), Bitboard.KING) != 0) {
+			return GameStatus.ONGOING;
+		}
+		return GameStatus.KING_CAPTURED;
+	}
+	
+	/**
+	 * Retrieves the ChessPiece object at a square.
+	 * 
+	 * @param square Square index of object to be returned
+	 * @return The ChessPiece object located at the specified square or null
+	 */
+	public ChessPiece getPiece(int square) {
+		int code = squares[square];
+		return code == EMPTY ? null : ChessPiece.of(code);
+	}
+
+	/**
+	 * Checks to see if there is stalemate, where the player is not in 
+	 * check but has no legal move with the king or any other piece. 
+	 * 
+	 * @param color Color of player
+	 * @param board Chessboard object
+	 * @return GameStatus.STALEMATE or GameStatus.ONGOING
+	 */
+	public GameStatus stalemate(String color, ChessBoard board) {
+		int side = Bitboard.colorIndex(color);
 		
-		// king has no where to move and no other piece can move
-		if (k_moves.isEmpty()) {
-			System.out.println("Stalemate");
-			System.exit(0);
+		// not in check, and no legal move for the king or any other piece
+		if (!board.isInCheck(side) && board.generateLegalMoves(side, moveBuffer) == 0) {
+			return GameStatus.STALEMATE;
 		} 
-		
-		//System.out.println("No stalemate");
+		return GameStatus.ONGOING;
 	}
 	
 	/**
-	 * Checks to see if one of the players is in checkmate and 
-	 * announces the results.
+	 * Checks to see if one of the players is in checkmate.
 	 * 
 	 * @param color Color of the player to be tested that is in check
 	 * @param board ChessBoard object
 	 * @return True if checkmate, false otherwise
 	 */
 	public boolean checkmate(String color, ChessBoard board) {
-		// can be in checkmate w/o check
-		// generate possible moves of player 1's king
-		// for each possible move
-		// check if move is contained in opponent's all possible moves (all pieces)
-		// match --> continue to king's next possible move
-		// no match --> return false immediately
-
-		List<String> k_moves;
-		boolean match = false;
-
-		if (color.equals("white")) {
-			ChessPiece king = white.get(0);
-			//System.out.println(king);
-			k_moves = king.possibleMoves("white", board);
-			k_moves.add(king.getRow() + " " + king.getCol());
-			//System.out.println(k_moves);
-
-			for (String coord : k_moves) {
-				//System.out.println(coord);
-				for (ChessPiece p : black) {
-					//System.out.println(p);
-					if (p instanceof Pawn) {
-						Pawn pawn = (Pawn) p;
-						//System.out.println(pawn.possibleAttacks("black", board));
-						if (pawn.possibleAttacks("black", board).contains(coord)) {
-							//System.out.println("Match found");
-							match = true;
-							continue;
-						}
-					} else {
-						if (p.possibleMoves("black", board).contains(coord)) {
-							//System.out.println("Match found");
-							match = true;
-							continue;
-						}
-					}
-				}
-				if (!match) {
-					//System.out.println("No Checkmate");
-					return false;
-				} else {
-					match = false; // reset
-				}
-			}
-		} else {
-			ChessPiece king = black.get(0);
-			//System.out.println(king);
-			k_moves = king.possibleMoves("black", board);
-			k_moves.add(king.getRow() + " " + king.getCol());
-			//System.out.println(k_moves);
-
-			for (String coord : k_moves) {
-				//System.out.println(coord);
-				for (ChessPiece p : white) {
-					//System.out.println(p);
-					if (p instanceof Pawn) {
-						Pawn pawn = (Pawn) p;
-						//System.out.println(pawn.possibleAttacks("white", board));
-						if (pawn.possibleAttacks("white", board).contains(coord)) {
-							//System.out.println("Match found");
-							match = true;
-							continue;
-						}
-					} else {
-						//System.out.println(p.possibleMoves("white", board));
-						if (p.possibleMoves("white", board).contains(coord)) {
-							//System.out.println("Match found");
-							match = true;
-							continue;
-						}
-					}
-				}
-				if (!match) {
-					//System.out.println("No Checkmate");
-					return false;
-				} else {
-					match = false; // reset
-				}
-			}
-		}
-		//System.out.println("Checkmate");
-
-		return true;
+		// in check, and no legal move gets out of it: the king cannot step 
+		// away and no other piece can capture the checker or block it
+		
+		int side = Bitboard.colorIndex(color);
+		return board.isInCheck(side) && board.generateLegalMoves(side, moveBuffer) == 0;
 	}
 
 	/**
-	 * Checks to see if one of the players is in check and announces
-	 * the results.
+	 * Checks if a player's king is attacked.
+	 * 
+	 * @param color Bitboard.WHITE or Bitboard.BLACK
+	 * @return True if the king is attacked, false otherwise
+	 */
+	public boolean isInCheck(int color) {
+		return (attackMap[color ^ 1] & pieces[color * 6 + Bitboard.KING]) != 0;
+	}
+	
+	/**
+	 * Checks to see if one of the players is in check.
 	 * 
 	 * @param color Color of the player to be tested that is in check
 	 * @param board ChessBoard object
+	 * @return GameStatus.CHECK or GameStatus.ONGOING
 	 */
-	public void check(String color, ChessBoard board) {
+	public GameStatus check(String color, ChessBoard board) {
 		
 		// algorithm
 		// get coordinate of player 1's king
-		// go through player 2's pieces & generate list of possible moves + only pawn's attack moves
-		// if list contains king's coordinates announce check
+		// go through player 2's pieces & collect the squares they attack
+		// if the set contains king's coordinates announce check
 
-		if (color.equals("white")) {
-			String k_row = white.get(0).getRow();	// KINGS HAVE TO BE FIRST IN ARRAYLIST
-			String k_col = white.get(0).getCol();
-			String coord = k_row + " " + k_col;
-			//coord = "6 e";
-			//System.out.println("White King is at " + coord);
-
-			for (ChessPiece p : black) {				
-				if (p instanceof Pawn) {
-					Pawn pawn = (Pawn) p;
-					if (pawn.possibleAttacks("black", board).contains(coord)) {
-						System.out.println("Check");
-						return;
-					}
-				} else {
-					if (p.possibleMoves("black", board).contains(coord)) {
-						System.out.println("Check");
-						return;
-					}
-				}
-			}
-		} else {
-			String k_row = black.get(0).getRow();
-			String k_col = black.get(0).getCol();
-			String coord = k_row + " " + k_col;
-			//coord = "7 e";
-
-			for (ChessPiece p : white) {
-				if (p instanceof Pawn) {
-					Pawn pawn = (Pawn) p;
-					if (pawn.possibleAttacks("white", board).contains(coord)) {
-						System.out.println("Check");
-						return;
-					}
-				} else {
-					if (p.possibleMoves("white", board).contains(coord)) {
-						System.out.println("Check");
-						return;
-					}
-				}
-			}
+		long king = getPieces(Bitboard.colorIndex(color), Bitboard.KING);
+		String opponent = color.equals("white") ? "black" : "white";
+		
+		if ((board.attacks(opponent) & king) != 0) {
+			return GameStatus.CHECK;
 		}
-	
+		return GameStatus.ONGOING;
 	}
 
 	/**
-	 * Moves both king and rook, checks if space is empty between king and rook
-	 * 
-	 * @param color Color of the player that wishes to castle
-	 * @param row Row of destination for king to move
-	 * @param col Col of destination for king to move
-	 * @param b Chessboard object
-	 */
-	public boolean castling(String color, String row, String col, ChessBoard b) {
-		if (color.equals("white")) {
-			// king move is c 1, move rook to d 1
-			if (row.equals("1") && col.equals("c") && (!b.isEmpty(b, "1", "e"))) {
-				if (b.getPiece("1", "e").type.equals("wK")) {
-					ChessPiece rook = b.getPiece("1", "a");
-					rook.setRow(row);
-					rook.setCol("d");
-					board[7][3] = rook.type;
-					board[7][0] = null;
-
-					ChessPiece king = b.getPiece("1", "e");
-					king.setRow(row);
-					king.setCol(col);
-					board[7][2] = king.type;
-					board[7][4] = null;
-
-					return true;
-				}
-				
-			}
-
-			// king move is g 1, move rook to f 1
-			if (row.equals("1") && col.equals("g") && (!b.isEmpty(b, "1", "e"))) {
-				if (b.getPiece("1", "e").type.equals("wK")) {
-					ChessPiece rook = b.getPiece("1", "h");
-					rook.setRow(row);
-					rook.setCol("f");
-					board[7][5] = rook.type;
-					board[7][7] = null;
-
-					ChessPiece king = b.getPiece("1", "e");
-					king.setRow(row);
-					king.setCol(col);
-					board[7][6] = king.type;
-					board[7][4] = null;
-
-					return true;
-				}
-
-			}
-
-		} else {
-			// king move is c 8, move rook to d 8
-			if (row.equals("8") && col.equals("c") && (!b.isEmpty(b, "8", "e"))) {
-				if (b.getPiece("8", "e").type.equals("bK")) {
-					ChessPiece rook = b.getPiece("8", "a");
-					rook.setRow(row);
-					rook.setCol("d");
-					board[0][3] = rook.type;
-					board[0][0] = null;
-
-					ChessPiece king = b.getPiece("8", "e");
-					king.setRow(row);
-					king.setCol(col);
-					board[0][2] = king.type;
-					board[0][4] = null;
-
-					return true;
-				}
-			}
-
-			// king move is g 8, move rook to f 8
-			if (row.equals("8") && col.equals("g") && (!b.isEmpty(b, "8", "e"))) {
-				if (b.getPiece("8", "e").type.equals("bK")) {
-					ChessPiece rook = b.getPiece("8", "h");
-					rook.setRow(row);
-					rook.setCol("f");
-					board[0][5] = rook.type;
-					board[0][7] = null;
-
-					ChessPiece king = b.getPiece("8", "e");
-					king.setRow(row);
-					king.setCol(col);
-					board[0][6] = king.type;
-					board[0][4] = null;
-
-					return true;
-				}
-			}
+	 * Finds the state of the game for a player: whether their king is 
+	 * gone, whether they are mated, stalemated or in check, or none of 
+	 * these.
+	 * 
+	 * @param color Bitboard.WHITE or Bitboard.BLACK
+	 * @return The status of the game for the player
+	 */
+	public GameStatus status(int color) {
+		if (pieces[color * 6 + Bitboard.KING] == 0) {
+			return GameStatus.KING_CAPTURED;
 		}
-		return false;
+		boolean inCheck = isInCheck(color);
+		if (generateLegalMoves(color, moveBuffer) == 0) {
+			return inCheck ? GameStatus.CHECKMATE : GameStatus.STALEMATE;
+		}
+		return inCheck ? GameStatus.CHECK : GameStatus.ONGOING;
 	}
 
 	/**
 	 * Checks and see if a spot on the board contains a piece or not
 	 * 
-	 * @param board Chessboard object
-	 * @param row Row of spot
-	 * @param col Col of spot
+	 * @param square Square index of spot
 	 * @return True if spot is null, false otherwise
 	 */
-	public boolean isEmpty(ChessBoard board, String row, String col) {
-		if (board.getPiece(row, col) == null) {
-			//System.out.println("empty at " + row + " " + col);
-			return true;
-		}
-		return false;
+	public boolean isEmpty(int square) {
+		return (occupied & Bitboard.bit(square)) == 0;
 	}
 
 	/**
-	 * Promotes a pawn to queen, knight, rook, or bishop once it
-	 * reaches the 8th (for white) or 1st (for black) row. Assumes 
-	 * that piece is a pawn and satisfies criteria for promotion.
-	 * Gets the choice from the user and updates the board.
+	 * Makes a move generated by one of the pieces, and pushes what is 
+	 * needed to take it back onto the undo stack. The codes of the 
+	 * moved and captured pieces are kept on the stack, promotions replace 
+	 * the pawn with the promoted piece, and castling moves the rook as well.
 	 * 
-	 * @param piece The piece to be promoted
+	 * @param move Packed move
 	 */
-	public void promotion(ChessPiece piece, String extra) {
-		String col = piece.getCol();
-		String row = piece.getRow();
-		int r = Math.abs(Integer.parseInt(row) - 8);
-		int c = Math.abs(fr.letterToNumber(col.charAt(0)) - 1);
+	public void makeMove(int move) {
+		int from = Move.from(move);
+		int to = Move.to(move);
 		
-		if (piece.getColor().equals("white") && piece.getRow().equals("8")) {
-			white.remove(piece);
-
-			switch(extra) {
-			case "Q":
-				piece = new Queen("white", "wQ", row, col);
-				white.add(piece);
-				break;
-			case "N":
-				piece = new Knight("white", "wN", row, col);
-				white.add(piece);
-				break;
-			case "B":
-				piece = new Bishop("white", "wB", row, col);
-				white.add(piece);
-				break;
-			case "R":
-				piece = new Rook("white", "wR", row, col);
-				white.add(piece);
-				break;
-			case "":
-				piece = new Queen("white", "wQ", row, col);
-				white.add(piece);
-				break;
-			default:
-				piece = new Queen("white", "wQ", row, col);
-				white.add(piece);
-				break;
-			}
-			board[r][c] = piece.type;
-
-		} else if (piece.getColor().equals("black") && piece.getRow().equals("1")) {
-			black.remove(piece);
-
-			switch(extra) {
-			case "Q":
-				piece = new Queen("black", "bQ", row, col);
-				black.add(piece);
-				break;
-			case "N":
-				piece = new Knight("black", "bN", row, col);
-				black.add(piece);
-				break;
-			case "B":
-				piece = new Bishop("black", "bB", row, col);
-				black.add(piece);
-				break;
-			case "R":
-				piece = new Rook("black", "bR", row, col);
-				black.add(piece);
-				break;
-			case "":
-				piece = new Queen("black", "bQ", row, col);
-				black.add(piece);
-				break;
-			default:
-				piece = new Queen("black", "wQ", row, col);
-				black.add(piece);
-				break;
+		if (undoCount == undoMove.length) {
+			growUndoStack();
+		}
+		int ply = undoCount++;
+		undoMove[ply] = move;
+		undoCastling[ply] = castling;
+		undoEnPassant[ply] = (byte) enPassant;
+		undoHalfmove[ply] = halfmoveClock;
+		undoHash[ply] = hash;
+		
+		// only the pawn that has just moved forward by 2 can be taken en passant
+		if (canCaptureEnPassant()) {
+			hash ^= Zobrist.EN_PASSANT[Square.file(enPassant)];
+		}
+		enPassant = Move.isDoublePush(move) ? to : Square.NONE;
+		
+		// take the captured piece off the board, keeping it for unmakeMove
+		int captured = EMPTY;
+		if (Move.isEnPassant(move)) {
+			captured = lift(sideToMove == Bitboard.WHITE ? to - 8 : to + 8);
+		} else if (squares[to] != EMPTY) {
+			captured = lift(to);
+		}
+		undoCaptured[ply] = (byte) captured;
+		
+		int piece = lift(from);
+		undoMoved[ply] = (byte) piece;
+		if (Move.promotion(move) != Move.NO_PROMOTION) {
+			place(sideToMove * 6 + Move.promotion(move), to);
+		} else {
+			place(piece, to);
+		}
+		
+		if (Move.isCastle(move)) {
+			// king move is c 1/c 8, move rook to d; g 1/g 8, move rook to f
+			if (Square.file(to) == 2) {
+				shiftRook(to - 2, to + 1);
+			} else {
+				shiftRook(to + 1, to - 1);
 			}
-			board[r][c] = piece.type;
-			
 		}
 		
-		//board[Math.abs(Integer.parseInt(piece.getRow()) - 8)][Math.abs(fr.letterToNumber(piece.getCol().charAt(0)) - 1)] = piece.getType();
+		hash ^= Zobrist.CASTLING[castling];
+		castling &= CASTLING_MASK[from] & CASTLING_MASK[to];
+		hash ^= Zobrist.CASTLING[castling] ^ Zobrist.BLACK_TO_MOVE;
+		
+		// captures and pawn moves restart the count of the fifty move rule
+		if (captured != EMPTY || piece % 6 == Bitboard.PAWN) {
+			halfmoveClock = 0;
+		} else {
+			halfmoveClock++;
+		}
+		if (sideToMove == Bitboard.BLACK) {
+			fullmoveNumber++;
+		}
+		sideToMove ^= 1;
+		if (canCaptureEnPassant()) {
+			hash ^= Zobrist.EN_PASSANT[Square.file(enPassant)];
+		}
+		updateAttacks();
 	}
-
+	
 	/**
-	 * Moves a piece to a new position and updates the board.
-	 * 
-	 * @param piece ChessPiece to be moved
-	 * @param row Row coordinate of the destination
-	 * @param col Column coordinate of the destination
+	 * Takes back the last move made with makeMove, restoring captured
+	 * pieces, castling rights, the en passant pawn and the hash from the 
+	 * undo stack.
 	 */
-	public void move(ChessPiece piece, String row, String col) {
-		//System.out.println("moving from " + piece.getRow() + " " + piece.getCol() + " to " + row + " " + col);
-
-		int oldR = Math.abs(Integer.parseInt(piece.getRow()) - 8);
-		int oldC = Math.abs(fr.letterToNumber(piece.getCol().charAt(0)) - 1);
-
-		int newR = Math.abs(Integer.parseInt(row) - 8);
-		int newC = Math.abs(fr.letterToNumber(col.charAt(0)) - 1);
-
-		// move piece from old pos to new pos 
-		// make sure legal
-		// follows from isValidMove in each piece type
-		// update board 
+	public void unmakeMove() {
+		int ply = --undoCount;
+		int move = undoMove[ply];
+		int from = Move.from(move);
+		int to = Move.to(move);
+		
+		sideToMove ^= 1;
+		castling = undoCastling[ply];
+		enPassant = undoEnPassant[ply];
+		halfmoveClock = undoHalfmove[ply];
+		if (sideToMove == Bitboard.BLACK) {
+			fullmoveNumber--;
+		}
 		
-		ChessPiece p = getPiece(row, col);
-		if (p != null) {
-			if (piece.color.equals("white")) {
-				black.remove(p);
+		if (Move.isCastle(move)) {
+			if (Square.file(to) == 2) {
+				shiftRook(to + 1, to - 2);
 			} else {
-				white.remove(p);
+				shiftRook(to - 1, to + 1);
 			}
 		}
 		
-		runningGame = 1;
-		piece.setRow(row);
-		piece.setCol(col);
-		board[newR][newC] = piece.type;
-		board[oldR][oldC] = null;
-		//System.out.println(piece.getRow() + " " + piece.getCol());
+		// lifts the promoted piece as well as a plain move's piece
+		lift(to);
+		place(undoMoved[ply], from);
 		
-		if (piece instanceof Pawn) {
-			if (Math.abs(newR - oldR) == 2) {
-				((Pawn) piece).setForward(true);
-				return;
-			}
-			if (((Pawn) piece).getForward()) {
-				((Pawn) piece).setForward(false);
+		int captured = undoCaptured[ply];
+		if (captured != EMPTY) {
+			if (Move.isEnPassant(move)) {
+				place(captured, sideToMove == Bitboard.WHITE ? to - 8 : to + 8);
+			} else {
+				place(captured, to);
 			}
 		}
+		hash = undoHash[ply];
+		updateAttacks();
 	}
 	
 	/**
-	 * Executes the capture of the pawn after an en passant is
-	 * identified and updates the chess board.
-	 * 
-	 * @param piece The piece that has just been moved
+	 * Checks if the position has already occurred with the same player
+	 * to move since the last capture or pawn move.
+	 *
+	 * @return True if the position is a repetition, false otherwise
 	 */
-	public void removeEnpassant(ChessPiece piece) {
-		if (piece.getColor().equals("white")) {
-			int row = Integer.parseInt(piece.getRow()) - 1;
-			ChessPiece p = this.getPiece(Integer.toString(row), piece.getCol());
-			System.out.println("Enpassant: Captured " + p.getType());
-			black.remove(p);
-			runningGame = 1;
-			board[Math.abs(row - 8)][Math.abs(fr.letterToNumber(piece.getCol().charAt(0)) - 1)] = null;
-			//System.out.println(Math.abs(row - 8) + " " + Math.abs(fr.letterToNumber(piece.getCol().charAt(0)) - 1));
-		} else {
-			int row = Integer.parseInt(piece.getRow()) + 1;
-			ChessPiece p = this.getPiece(Integer.toString(row), piece.getCol());
-			System.out.println("Enpassant: Captured " + p.getType());
-			white.remove(p);
-			runningGame = 1;
-			board[Math.abs(row - 8)][Math.abs(fr.letterToNumber(piece.getCol().charAt(0)) - 1)] = null;
-			//System.out.println(Math.abs(row - 8) + " " + Math.abs(fr.letterToNumber(piece.getCol().charAt(0)) - 1));
+	public boolean isRepetition() {
+		// positions before a capture or pawn move cannot come back
+		int oldest = Math.max(0, undoCount - halfmoveClock);
+		for (int ply = undoCount - 2; ply >= oldest; ply -= 2) {
+			if (undoHash[ply] == hash) {
+				return true;
+			}
 		}
+		return false;
+	}
+
+	/**
+	 * Doubles the depth of the undo stack.
+	 */
+	void growUndoStack() {
+		int size = undoMove.length * 2;
+		undoMove = Arrays.copyOf(undoMove, size);
+		undoMoved = Arrays.copyOf(undoMoved, size);
+		undoCaptured = Arrays.copyOf(undoCaptured, size);
+		undoEnPassant = Arrays.copyOf(undoEnPassant, size);
+		undoCastling = Arrays.copyOf(undoCastling, size);
+		undoHalfmove = Arrays.copyOf(undoHalfmove, size);
+		undoHash = Arrays.copyOf(undoHash, size);
 	}
 	
 	/**
-	 * Retrieves a list of pieces a player currently has.
+	 * Moves the rook of a castling move.
 	 * 
-	 * @param color
-	 * @return currentPieces
+	 * @param from Origin of the rook
+	 * @param to Destination of the rook
 	 */
-	public List<String> getCurrentPieces(String color) {
-		List<String> currentPieces = new ArrayList<String>();
-		
-		if (color.equals("white")) {
-			for (ChessPiece p : white) {
-				currentPieces.add(p.type);
-			}
-		} else {
-			for (ChessPiece p : black) {
-				currentPieces.add(p.type);
-			}
-		}
-		return currentPieces;
+	void shiftRook(int from, int to) {
+		place(lift(from), to);
 	}
 
 }
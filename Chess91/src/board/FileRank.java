@@ -2,8 +2,8 @@ package board;
 
 /**
  * FileRank implements methods used to convert the letter
- * in a coordinate to a number, which is then useful in 
- * implementing moves, retrieval of chess pieces, etc. 
+ * in a coordinate to a number, and coordinates such as "e2" to 
+ * and from the integer squares used by the board and pieces. 
  *  
  * @author Omar Khalil
  * @author Michelle Hwang
@@ -92,6 +92,30 @@ public class FileRank {
 		return s;
 	}
 	
+	/**
+	 * Converts a coordinate such as "e2" to its square index.
+	 * 
+	 * @param coord Column letter followed by row number
+	 * @return The square index, or Square.NONE if the coordinate is
+	 * not on the board
+	 */
+	public int toSquare(String coord) {
+		int col = letterToNumber(coord.charAt(0));
+		int row = coord.charAt(1) - '0';
+		if (col > 8 || row < 1 || row > 8) {
+			return Square.NONE;
+		}
+		return Square.of(row - 1, col - 1);
+	}
 	
+	/**
+	 * Converts a square index to a coordinate such as "e2".
+	 * 
+	 * @param square The square index
+	 * @return Column letter followed by row number
+	 */
+	public String toCoordinate(int square) {
+		return numberToLetter(Square.file(square) + 1) + (Square.rank(square) + 1);
+	}
 
 }
@@ -0,0 +1,39 @@
+package board;
+
+/**
+ * GameStatus is the state of the game for the player to move, as found
+ * by ChessBoard.status. The board only reports it; announcing it and
+ * ending the game are left to the caller, so a program can play many
+ * games one after another or at the same time.
+ *
+ * @author Omar Khalil
+ * @author Michelle Hwang
+ */
+public enum GameStatus {
+
+	/** The player has a legal move and is not in check. */
+	ONGOING,
+	/** The player is in check and has a legal move out of it. */
+	CHECK,
+	/** The player is in check and has no legal move. */
+	CHECKMATE,
+	/** The player is not in check and has no legal move. */
+	STALEMATE,
+	/** The player's king has been taken off the board. */
+	KING_CAPTURED,
+	/**
+	 * Neither player can mate whatever is played, as found in the
+	 * endgame tables (engine.Tablebase); the board alone never reports it.
+	 */
+	DRAWN;
+
+	/**
+	 * Checks if the game ends with this status.
+	 *
+	 * @return True for checkmate, stalemate, a captured king or a draw
+	 */
+	public boolean isOver() {
+		return this != ONGOING && this != CHECK;
+	}
+
+}
@@ -0,0 +1,169 @@
+package board;
+
+/**
+ * Magic holds the attack tables of the sliding pieces (magic
+ * bitboards). For each square, the pieces that can block a rook or a
+ * bishop are masked out of the occupancy, multiplied by a number picked
+ * for that square and shifted down, which gives a different index for
+ * every set of blockers with a different attack set. The attacks of
+ * every set of blockers are stored at those indexes, so a lookup costs
+ * one AND, one multiply, one shift and one load.
+ *
+ * The numbers are searched for when the class is loaded, from a fixed
+ * seed, so the tables are the same in every run.
+ *
+ * @author Omar Khalil
+ * @author Michelle Hwang
+ */
+public class Magic {
+
+	/** Squares whose pieces can block a rook or bishop, edges left out. */
+	static final long[] ROOK_MASKS = new long[64];
+	static final long[] BISHOP_MASKS = new long[64];
+
+	/** Multipliers of each square. */
+	static final long[] ROOK_MAGICS = new long[64];
+	static final long[] BISHOP_MAGICS = new long[64];
+
+	/** Shift of each square, 64 minus the number of bits in its mask. */
+	static final int[] ROOK_SHIFTS = new int[64];
+	static final int[] BISHOP_SHIFTS = new int[64];
+
+	/** Start of each square's attacks in ATTACKS. */
+	static final int[] ROOK_OFFSETS = new int[64];
+	static final int[] BISHOP_OFFSETS = new int[64];
+
+	/** Attacks of every square and set of blockers, rooks then bishops. */
+	static final long[] ATTACKS;
+
+	static {
+		int size = 0;
+		for (int square = 0; square < 64; square++) {
+			ROOK_MASKS[square] = mask(square, 0);
+			ROOK_SHIFTS[square] = 64 - Long.bitCount(ROOK_MASKS[square]);
+			ROOK_OFFSETS[square] = size;
+			size += 1 << Long.bitCount(ROOK_MASKS[square]);
+		}
+		for (int square = 0; square < 64; square++) {
+			BISHOP_MASKS[square] = mask(square, 4);
+			BISHOP_SHIFTS[square] = 64 - Long.bitCount(BISHOP_MASKS[square]);
+			BISHOP_OFFSETS[square] = size;
+			size += 1 << Long.bitCount(BISHOP_MASKS[square]);
+		}
+		ATTACKS = new long[size];
+
+		long seed = 0x2545F4914F6CDD1DL;
+		for (int square = 0; square < 64; square++) {
+			seed = fill(square, 0, ROOK_MASKS, ROOK_MAGICS, ROOK_SHIFTS, ROOK_OFFSETS, seed);
+			seed = fill(square, 4, BISHOP_MASKS, BISHOP_MAGICS, BISHOP_SHIFTS, BISHOP_OFFSETS, seed);
+		}
+	}
+
+	/**
+	 * Returns the squares a rook on a square attacks.
+	 *
+	 * @param square Square index
+	 * @param occupied Bitboard of the pieces that block the rook
+	 * @return Bitboard of the attacked squares, blockers included
+	 */
+	public static long rook(int square, long occupied) {
+		return ATTACKS[ROOK_OFFSETS[square]
+				+ (int) (((occupied & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square])];
+	}
+
+	/**
+	 * Returns the squares a bishop on a square attacks.
+	 *
+	 * @param square Square index
+	 * @param occupied Bitboard of the pieces that block the bishop
+	 * @return Bitboard of the attacked squares, blockers included
+	 */
+	public static long bishop(int square, long occupied) {
+		return ATTACKS[BISHOP_OFFSETS[square]
+				+ (int) (((occupied & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square])];
+	}
+
+	/**
+	 * Returns the squares that can block a slider on a square. The last
+	 * square of each ray is left out, since a piece there blocks nothing.
+	 *
+	 * @param square Square index
+	 * @param first First of the four directions in Bitboard's direction
+	 * tables, 0 for the rook, 4 for the bishop
+	 * @return Bitboard of the blocking squares
+	 */
+	static long mask(int square, int first) {
+		long mask = 0;
+		for (int d = first; d < first + 4; d++) {
+			long ray = Bitboard.slide(square, 0, Bitboard.DIRECTION_RANKS[d], Bitboard.DIRECTION_FILES[d]);
+			// the farthest square of the ray is its highest or lowest bit
+			int end = Bitboard.DIRECTION_RANKS[d] * 8 + Bitboard.DIRECTION_FILES[d] > 0
+					? 63 - Long.numberOfLeadingZeros(ray) : Long.numberOfTrailingZeros(ray);
+			mask |= ray & ~Bitboard.bit(end);
+		}
+		return mask;
+	}
+
+	/**
+	 * Searches for a multiplier of one square that sends every set of
+	 * blockers to an index holding its attacks, and fills the square's
+	 * part of ATTACKS.
+	 *
+	 * @param square Square index
+	 * @param first 0 for the rook, 4 for the bishop
+	 * @param masks Masks of the piece
+	 * @param magics Multipliers of the piece, filled in
+	 * @param shifts Shifts of the piece
+	 * @param offsets Offsets of the piece
+	 * @param seed Seed of the random numbers
+	 * @return The seed to use next
+	 */
+	static long fill(int square, int first, long[] masks, long[] magics, int[] shifts, int[] offsets, long seed) {
+		long mask = masks[square];
+		int count = 1 << Long.bitCount(mask);
+		long[] blockers = new long[count];
+		long[] attacks = new long[count];
+
+		// every subset of the mask, from the empty set up
+		long subset = 0;
+		for (int i = 0; i < count; i++) {
+			blockers[i] = subset;
+			for (int d = first; d < first + 4; d++) {
+				attacks[i] |= Bitboard.slide(square, subset, Bitboard.DIRECTION_RANKS[d], Bitboard.DIRECTION_FILES[d]);
+			}
+			subset = (subset - mask) & mask;
+		}
+
+		// which try last wrote each index, so the table need not be cleared
+		int[] used = new int[count];
+		for (int attempt = 1;; attempt++) {
+			// numbers with few bits set make good multipliers
+			seed = Zobrist.next(seed);
+			long magic = Zobrist.mix(seed);
+			seed = Zobrist.next(seed);
+			magic &= Zobrist.mix(seed);
+			seed = Zobrist.next(seed);
+			magic &= Zobrist.mix(seed);
+			if (Long.bitCount((mask * magic) >>> 56) < 6) {
+				continue;
+			}
+
+			boolean fits = true;
+			for (int i = 0; i < count && fits; i++) {
+				int index = (int) ((blockers[i] * magic) >>> shifts[square]);
+				if (used[index] != attempt) {
+					used[index] = attempt;
+					ATTACKS[offsets[square] + index] = attacks[i];
+				} else if (ATTACKS[offsets[square] + index] != attacks[i]) {
+					// two sets of blockers with different attacks collide
+					fits = false;
+				}
+			}
+			if (fits) {
+				magics[square] = magic;
+				return seed;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,157 @@
+package board;
+
+/**
+ * Move implements the packed int encoding of a move. The origin and
+ * destination squares take 6 bits each, the promotion kind 3 bits, and
+ * the remaining bits flag captures, en passant, castling and the pawn's
+ * forward 2 move. Generators write these ints into caller-supplied
+ * arrays so that no objects are created while generating moves.
+ *
+ * <pre>
+ * bits  0- 5  origin square
+ * bits  6-11  destination square
+ * bits 12-14  promotion kind (Bitboard.QUEEN etc., 0 for none)
+ * bit  15     capture
+ * bit  16     en passant
+ * bit  17     castling
+ * bit  18     pawn forward 2
+ * </pre>
+ *
+ * @author Omar Khalil
+ * @author Michelle Hwang
+ */
+public class Move {
+
+	/** Marker for "no move". a1 to a1 is never generated. */
+	public static final int NONE = 0;
+
+	public static final int CAPTURE = 1 << 15;
+	public static final int EN_PASSANT = 1 << 16;
+	public static final int CASTLE = 1 << 17;
+	public static final int DOUBLE_PUSH = 1 << 18;
+
+	/**
+	 * Kind stored for moves that are not promotions. The king can never
+	 * be promoted to, so its kind index doubles as "none".
+	 */
+	public static final int NO_PROMOTION = Bitboard.KING;
+
+	/**
+	 * Packs a move into an int.
+	 *
+	 * @param from Origin square
+	 * @param to Destination square
+	 * @param promotion Kind promoted to, or NO_PROMOTION
+	 * @param flags Any of CAPTURE, EN_PASSANT, CASTLE and DOUBLE_PUSH
+	 * @return The packed move
+	 */
+	public static int encode(int from, int to, int promotion, int flags) {
+		return from | (to << 6) | (promotion << 12) | flags;
+	}
+
+	/**
+	 * Returns a copy of a move promoting to a different kind.
+	 *
+	 * @param move Packed promotion move
+	 * @param promotion Kind promoted to
+	 * @return The packed move with the new promotion kind
+	 */
+	public static int withPromotion(int move, int promotion) {
+		return (move & ~(7 << 12)) | (promotion << 12);
+	}
+
+	/**
+	 * Returns the origin square of a move.
+	 *
+	 * @param move Packed move
+	 * @return The origin square
+	 */
+	public static int from(int move) {
+		return move & 63;
+	}
+
+	/**
+	 * Returns the destination square of a move.
+	 *
+	 * @param move Packed move
+	 * @return The destination square
+	 */
+	public static int to(int move) {
+		return (move >>> 6) & 63;
+	}
+
+	/**
+	 * Returns the kind a move promotes to.
+	 *
+	 * @param move Packed move
+	 * @return The kind promoted to, or NO_PROMOTION
+	 */
+	public static int promotion(int move) {
+		return (move >>> 12) & 7;
+	}
+
+	/**
+	 * Checks if a move captures a piece, en passant included.
+	 *
+	 * @param move Packed move
+	 * @return True if the move captures, false otherwise
+	 */
+	public static boolean isCapture(int move) {
+		return (move & CAPTURE) != 0;
+	}
+
+	/**
+	 * Checks if a move is an en passant capture.
+	 *
+	 * @param move Packed move
+	 * @return True if the move is en passant, false otherwise
+	 */
+	public static boolean isEnPassant(int move) {
+		return (move & EN_PASSANT) != 0;
+	}
+
+	/**
+	 * Checks if a move is a castling move of the king.
+	 *
+	 * @param move Packed move
+	 * @return True if the move castles, false otherwise
+	 */
+	public static boolean isCastle(int move) {
+		return (move & CASTLE) != 0;
+	}
+
+	/**
+	 * Checks if a move is a pawn's forward 2 move.
+	 *
+	 * @param move Packed move
+	 * @return True if the pawn moves forward by 2, false otherwise
+	 */
+	public static boolean isDoublePush(int move) {
+		return (move & DOUBLE_PUSH) != 0;
+	}
+
+	/**
+	 * Returns a move in coordinate notation, ex. "e2e4" or "e7e8q".
+	 *
+	 * @param move Packed move
+	 * @return The move as a String
+	 */
+	public static String toString(int move) {
+		String s = square(from(move)) + square(to(move));
+		if (promotion(move) != NO_PROMOTION) {
+			s += "kqrbnp".charAt(promotion(move));
+		}
+		return s;
+	}
+
+	/**
+	 * Returns the coordinate of a square, ex. "e4".
+	 *
+	 * @param square Square index
+	 * @return The coordinate
+	 */
+	static String square(int square) {
+		return "" + (char) ('a' + Square.file(square)) + (Square.rank(square) + 1);
+	}
+
+}
@@ -0,0 +1,111 @@
+package board;
+
+/**
+ * San resolves moves written in standard algebraic notation, as found
+ * in PGN files, against a board. A SAN move names the piece and the
+ * destination, and only as much of the origin as is needed to tell two
+ * pieces apart, so it is matched against the legal moves of the
+ * position rather than decoded on its own.
+ *
+ * <pre>
+ * e4  exd5  e8=Q  Nf3  Nbd7  R1e2  Qh4xe1+  O-O  O-O-O#
+ * </pre>
+ *
+ * @author Omar Khalil
+ * @author Michelle Hwang
+ */
+public class San {
+
+	/** Piece letters in kind order, KING to KNIGHT. */
+	static final String PIECE_LETTERS = "KQRBN";
+
+	/**
+	 * Returns the legal move a SAN move names in a position. Check and
+	 * annotation marks at the end are ignored, and castling may be
+	 * written with letter O or digit 0.
+	 *
+	 * @param board ChessBoard object, with the mover to play
+	 * @param san Move in standard algebraic notation
+	 * @param moves Buffer the legal moves are generated into
+	 * @return The packed move, or Move.NONE if the move is not legal,
+	 * names more than one legal move, or cannot be read
+	 */
+	public static int parse(ChessBoard board, String san, int[] moves) {
+		int end = san.length();
+		while (end > 0 && "+#!?".indexOf(san.charAt(end - 1)) >= 0) {
+			end--;
+		}
+		if (end < 2) {
+			return Move.NONE;
+		}
+		int count = board.generateLegalMoves(board.getSideToMove(), moves);
+
+		char first = san.charAt(0);
+		if (first == 'O' || first == '0') {
+			// O-O goes to the g file, O-O-O to the c file
+			int file = end == 3 ? 6 : end == 5 ? 2 : -1;
+			for (int i = 0; i < count; i++) {
+				if (Move.isCastle(moves[i]) && Square.file(Move.to(moves[i])) == file) {
+					return moves[i];
+				}
+			}
+			return Move.NONE;
+		}
+
+		int promotion = Move.NO_PROMOTION;
+		int letter = PIECE_LETTERS.indexOf(san.charAt(end - 1));
+		if (letter > Bitboard.KING) {
+			promotion = letter;
+			end--;
+			if (san.charAt(end - 1) == '=') {
+				end--;
+			}
+		}
+		if (end < 2) {
+			return Move.NONE;
+		}
+		int file = san.charAt(end - 2) - 'a';
+		int rank = san.charAt(end - 1) - '1';
+		if (file < 0 || file > 7 || rank < 0 || rank > 7) {
+			return Move.NONE;
+		}
+		int to = Square.of(rank, file);
+
+		int kind = PIECE_LETTERS.indexOf(first);
+		int start = 1;
+		if (kind < 0) {
+			kind = Bitboard.PAWN;
+			start = 0;
+		}
+		int fromFile = -1;
+		int fromRank = -1;
+		for (int i = start; i < end - 2; i++) {
+			char c = san.charAt(i);
+			if (c >= 'a' && c <= 'h') {
+				fromFile = c - 'a';
+			} else if (c >= '1' && c <= '8') {
+				fromRank = c - '1';
+			} else if (c != 'x' && c != '-') {
+				return Move.NONE;
+			}
+		}
+
+		int found = Move.NONE;
+		for (int i = 0; i < count; i++) {
+			int move = moves[i];
+			int from = Move.from(move);
+			if (Move.to(move) != to || board.getCode(from) % 6 != kind || Move.promotion(move) != promotion
+					|| (fromFile >= 0 && Square.file(from) != fromFile)
+					|| (fromRank >= 0 && Square.rank(from) != fromRank)) {
+				continue;
+			}
+			if (found != Move.NONE) {
+				// not enough of the origin was given
+				return Move.NONE;
+			}
+			found = move;
+		}
+		return found;
+	}
+
+}
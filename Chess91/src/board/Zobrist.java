@@ -0,0 +1,81 @@
+package board;
+
+/**
+ * Zobrist holds the random keys used to hash positions. A position's
+ * hash is the XOR of one key per piece on its square, one key for the
+ * castling rights, one for the file of the en passant pawn and one
+ * when black is to move, so it can be updated move by move instead of
+ * being recomputed.
+ *
+ * The keys come from a fixed seed, so a position hashes to the same
+ * value in every run and hashes can be stored in files.
+ *
+ * @author Omar Khalil
+ * @author Michelle Hwang
+ */
+public class Zobrist {
+
+	/** Keys indexed by (color * 6 + kind) * 64 + square. */
+	static final long[] PIECES = new long[12 * 64];
+
+	/** Keys indexed by the castling rights bits. */
+	static final long[] CASTLING = new long[16];
+
+	/** Keys indexed by the file of the pawn that can be taken en passant. */
+	static final long[] EN_PASSANT = new long[8];
+
+	/** Key XORed in when black is to move. */
+	static final long BLACK_TO_MOVE;
+
+	static {
+		long seed = 0x9E3779B97F4A7C15L;
+		for (int i = 0; i < PIECES.length; i++) {
+			seed = next(seed);
+			PIECES[i] = mix(seed);
+		}
+		for (int i = 0; i < CASTLING.length; i++) {
+			seed = next(seed);
+			CASTLING[i] = mix(seed);
+		}
+		for (int i = 0; i < EN_PASSANT.length; i++) {
+			seed = next(seed);
+			EN_PASSANT[i] = mix(seed);
+		}
+		seed = next(seed);
+		BLACK_TO_MOVE = mix(seed);
+	}
+
+	/**
+	 * Returns the key of a piece on a square.
+	 *
+	 * @param piece Piece index, color * 6 + kind
+	 * @param square Square index
+	 * @return The key
+	 */
+	public static long piece(int piece, int square) {
+		return PIECES[(piece << 6) | square];
+	}
+
+	/**
+	 * Advances the seed of the key generator (SplitMix64).
+	 *
+	 * @param seed Current seed
+	 * @return The next seed
+	 */
+	static long next(long seed) {
+		return seed + 0x9E3779B97F4A7C15L;
+	}
+
+	/**
+	 * Scrambles a seed into a key (SplitMix64).
+	 *
+	 * @param z Seed
+	 * @return The key
+	 */
+	static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+}
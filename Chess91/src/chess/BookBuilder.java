@@ -0,0 +1,279 @@
+package chess;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import board.ChessBoard;
+import board.Move;
+import board.San;
+import engine.OpeningBook;
+
+/**
+ * BookBuilder turns PGN files into an opening book. The first moves of
+ * every game are replayed, and each move counts for the position it was
+ * played in: 2 if the player who made it went on to win, 1 for a draw
+ * or an unknown result, 0 for a loss. Moves played in fewer than a
+ * minimum number of games, or that never scored, are left out.
+ *
+ * <pre>
+ * java chess.BookBuilder book.bin games.pgn ...
+ * java chess.BookBuilder -plies 30 -min 5 book.bin a.pgn b.pgn.gz
+ * </pre>
+ *
+ * @author Omar Khalil
+ * @author Michelle Hwang
+ */
+public class BookBuilder {
+
+	/** Moves of each game, white's and black's, read into the book. */
+	static final int DEFAULT_PLIES = 24;
+
+	/** Games a move must be played in to be kept. */
+	static final int DEFAULT_MIN = 2;
+
+	/** Slots of the table when it is created; it doubles as it fills. */
+	static final int INITIAL_CAPACITY = 1 << 16;
+
+	long[] hashes = new long[INITIAL_CAPACITY];
+	int[] moves = new int[INITIAL_CAPACITY];
+	int[] weights = new int[INITIAL_CAPACITY];
+	int[] games = new int[INITIAL_CAPACITY];
+	int size;
+
+	/**
+	 * Builds a book from the files given and prints what went into it.
+	 *
+	 * @param args Options "-plies N" and "-min N", then the book file
+	 * and the PGN files
+	 * @throws IOException If a file cannot be read or the book written
+	 */
+	public static void main(String[] args) throws IOException {
+		int plies = DEFAULT_PLIES;
+		int min = DEFAULT_MIN;
+		int i = 0;
+		for (; i + 1 < args.length && args[i].startsWith("-"); i += 2) {
+			if (args[i].equals("-plies")) {
+				plies = Integer.parseInt(args[i + 1]);
+			} else if (args[i].equals("-min")) {
+				min = Integer.parseInt(args[i + 1]);
+			} else {
+				System.out.println("Unknown option " + args[i]);
+			}
+		}
+		if (i + 2 > args.length) {
+			System.out.println("Usage: java chess.BookBuilder [-plies N] [-min N] book.bin file.pgn ...");
+			return;
+		}
+
+		long begin = System.nanoTime();
+		BookBuilder builder = new BookBuilder();
+		long read = 0;
+		for (int f = i + 1; f < args.length; f++) {
+			try (PgnReader reader = PgnReader.open(args[f])) {
+				for (PgnGame game = reader.next(); game != null; game = reader.next()) {
+					builder.add(game, plies);
+					read++;
+				}
+			}
+		}
+		int entries = builder.write(args[i], min);
+		long elapsed = System.nanoTime() - begin;
+
+		System.out.println("games: " + read + ", moves seen: " + builder.size + ", book entries: " + entries);
+		System.out.println("time: " + (elapsed / 1000000) + " ms, " + Perft.nps(read, elapsed) + " games/s");
+	}
+
+	/**
+	 * Replays the first moves of a game and counts each of them. Games
+	 * with a FEN tag do not start from the usual position and are
+	 * skipped; a game stops counting at its first move that cannot be
+	 * played.
+	 *
+	 * @param game The game
+	 * @param plies Number of moves to count
+	 */
+	void add(PgnGame game, int plies) {
+		if (game.getTag("FEN") != null) {
+			return;
+		}
+		String result = game.getTag("Result");
+		// score of the game for white and black, 2 for a win
+		int whiteScore = "1-0".equals(result) ? 2 : "0-1".equals(result) ? 0 : 1;
+
+		ChessBoard board = new ChessBoard();
+		int[] buffer = board.getMoveBuffer();
+		List<String> sans = game.getMoves(new ArrayList<String>());
+		for (int ply = 0; ply < Math.min(plies, sans.size()); ply++) {
+			int move = San.parse(board, sans.get(ply), buffer);
+			if (move == Move.NONE) {
+				return;
+			}
+			count(board.getHash(), move, ply % 2 == 0 ? whiteScore : 2 - whiteScore);
+			board.makeMove(move);
+		}
+	}
+
+	/**
+	 * Adds one playing of a move to the table.
+	 *
+	 * @param hash Hash of the position the move was played in
+	 * @param move Packed move
+	 * @param score Score of the game for the player who moved
+	 */
+	void count(long hash, int move, int score) {
+		if (2 * (size + 1) > moves.length) {
+			grow();
+		}
+		int mask = moves.length - 1;
+		int slot = slot(hash, move, mask);
+		while (moves[slot] != Move.NONE && (moves[slot] != move || hashes[slot] != hash)) {
+			slot = (slot + 1) & mask;
+		}
+		if (moves[slot] == Move.NONE) {
+			hashes[slot] = hash;
+			moves[slot] = move;
+			size++;
+		}
+		weights[slot] += score;
+		games[slot]++;
+	}
+
+	/**
+	 * Doubles the table, putting every entry back in.
+	 */
+	void grow() {
+		long[] oldHashes = hashes;
+		int[] oldMoves = moves;
+		int[] oldWeights = weights;
+		int[] oldGames = games;
+		int capacity = oldMoves.length * 2;
+		hashes = new long[capacity];
+		moves = new int[capacity];
+		weights = new int[capacity];
+		games = new int[capacity];
+		int mask = capacity - 1;
+		for (int i = 0; i < oldMoves.length; i++) {
+			if (oldMoves[i] != Move.NONE) {
+				int slot = slot(oldHashes[i], oldMoves[i], mask);
+				while (moves[slot] != Move.NONE) {
+					slot = (slot + 1) & mask;
+				}
+				hashes[slot] = oldHashes[i];
+				moves[slot] = oldMoves[i];
+				weights[slot] = oldWeights[i];
+				games[slot] = oldGames[i];
+			}
+		}
+	}
+
+	/**
+	 * Returns the first slot to try for a position and move.
+	 *
+	 * @param hash Hash of the position
+	 * @param move Packed move
+	 * @param mask Table size minus one
+	 * @return The slot
+	 */
+	static int slot(long hash, int move, int mask) {
+		long h = (hash ^ move) * 0x9E3779B97F4A7C15L;
+		return (int) (h >>> 32) & mask;
+	}
+
+	/**
+	 * Sorts the entries that are kept and writes them as a book.
+	 *
+	 * @param path Name of the book file
+	 * @param min Games a move must be played in to be kept
+	 * @return The number of entries written
+	 * @throws IOException If the book cannot be written
+	 */
+	int write(String path, int min) throws IOException {
+		// move the kept entries to the front
+		int n = 0;
+		for (int i = 0; i < moves.length; i++) {
+			if (moves[i] != Move.NONE && games[i] >= min && weights[i] > 0) {
+				hashes[n] = hashes[i];
+				moves[n] = moves[i];
+				weights[n] = weights[i];
+				n++;
+			}
+		}
+		sort(0, n - 1);
+		OpeningBook.write(path, hashes, moves, weights, n);
+		return n;
+	}
+
+	/**
+	 * Sorts entries by hash, and by weight from heaviest within a hash
+	 * (quicksort, with insertion sort for short ranges).
+	 *
+	 * @param low First entry of the range
+	 * @param high Last entry of the range
+	 */
+	void sort(int low, int high) {
+		while (high - low > 16) {
+			int mid = (low + high) >>> 1;
+			long pivotHash = hashes[mid];
+			int pivotWeight = weights[mid];
+			int i = low;
+			int j = high;
+			while (i <= j) {
+				while (before(hashes[i], weights[i], pivotHash, pivotWeight)) {
+					i++;
+				}
+				while (before(pivotHash, pivotWeight, hashes[j], weights[j])) {
+					j--;
+				}
+				if (i <= j) {
+					swap(i++, j--);
+				}
+			}
+			// recurse into the smaller half, loop on the larger
+			if (j - low < high - i) {
+				sort(low, j);
+				low = i;
+			} else {
+				sort(i, high);
+				high = j;
+			}
+		}
+		for (int i = low + 1; i <= high; i++) {
+			for (int j = i; j > low && before(hashes[j], weights[j], hashes[j - 1], weights[j - 1]); j--) {
+				swap(j, j - 1);
+			}
+		}
+	}
+
+	/**
+	 * Checks if one entry sorts before another.
+	 *
+	 * @param hash Hash of the first entry
+	 * @param weight Weight of the first entry
+	 * @param otherHash Hash of the second entry
+	 * @param otherWeight Weight of the second entry
+	 * @return True if the first entry goes first
+	 */
+	static boolean before(long hash, int weight, long otherHash, int otherWeight) {
+		return hash < otherHash || (hash == otherHash && weight > otherWeight);
+	}
+
+	/**
+	 * Swaps two entries.
+	 *
+	 * @param a Entry index
+	 * @param b Entry index
+	 */
+	void swap(int a, int b) {
+		long h = hashes[a];
+		hashes[a] = hashes[b];
+		hashes[b] = h;
+		int m = moves[a];
+		moves[a] = moves[b];
+		moves[b] = m;
+		int w = weights[a];
+		weights[a] = weights[b];
+		weights[b] = w;
+	}
+
+}
@@ -1,24 +1,102 @@
 package chess;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.IOException;
+import java.util.Random;
 import java.util.Scanner;
 
+import board.Bitboard;
 import board.ChessBoard;
-
+import board.FileRank;
+import board.GameStatus;
+import board.Move;
+import board.Square;
+
+import engine.OpeningBook;
+import engine.ParallelSearch;
+import engine.Search;
+import engine.Tablebase;
+import engine.TranspositionTable;
 import pieces.ChessPiece;
-import pieces.King;
-import pieces.Pawn;
 
 public class Chess {
 
 	/**
-	 * Main method used to run chess program
+	 * Default time the engine takes per move, in milliseconds, when
+	 * neither -depth nor -movetime is given.
+	 */
+	static final long DEFAULT_MOVETIME = 1000;
+
+	/**
+	 * Picks among the book moves of a position.
+	 */
+	static final Random RANDOM = new Random();
+
+	/**
+	 * Main method used to run chess program. By default both players
+	 * type their moves; with "-engine white", "-engine black" or
+	 * "-engine both" the engine plays that color, searching each move
+	 * to "-depth N" plies and/or for "-movetime MS" milliseconds, on
+	 * "-threads N" threads sharing a transposition table of "-hash MB"
+	 * megabytes. With "-book FILE" the engine plays moves from an
+	 * opening book while the game is in it. With "-tb DIR" the engine
+	 * plays endings of few pieces perfectly from the tables in DIR, and
+	 * the game ends as a draw once they show neither player can mate.
+	 * With "uci" the engine speaks the UCI protocol instead, see Uci.
 	 * 
 	 * @author Omar Khalil
 	 * @author Michelle Hwang
 	 */
-	public static void main(String[] args) {
+	public static void main(String[] args) throws IOException {
+
+		if (args.length > 0 && args[0].equals("uci")) {
+			Uci.main(args);
+			return;
+		}
+
+		String engine = "";
+		int depth = Search.MAX_PLY;
+		long moveTime = -1;
+		int hash = 16;
+		int threads = 1;
+		OpeningBook book = null;
+		Tablebase tablebase = null;
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			switch (args[i]) {
+			case "-engine":
+				engine = args[i + 1];
+				break;
+			case "-depth":
+				depth = Integer.parseInt(args[i + 1]);
+				break;
+			case "-movetime":
+				moveTime = Long.parseLong(args[i + 1]);
+				break;
+			case "-hash":
+				hash = Integer.parseInt(args[i + 1]);
+				break;
+			case "-threads":
+				threads = Integer.parseInt(args[i + 1]);
+				break;
+			case "-book":
+				book = OpeningBook.open(args[i + 1]);
+				break;
+			case "-tb":
+				tablebase = new Tablebase(args[i + 1]);
+				break;
+			default:
+				System.out.println("Unknown option " + args[i]);
+			}
+		}
+		if (moveTime < 0) {
+			moveTime = depth == Search.MAX_PLY ? DEFAULT_MOVETIME : 0;
+		}
+		boolean whiteEngine = engine.equals("white") || engine.equals("both");
+		boolean blackEngine = engine.equals("black") || engine.equals("both");
+		ParallelSearch search = whiteEngine || blackEngine
+				? new ParallelSearch(new TranspositionTable(hash), threads) : null;
+		if (search != null) {
+			search.setTablebase(tablebase);
+		}
 
 		ChessBoard chess = new ChessBoard();
 		chess.labelBoard();
@@ -29,15 +107,24 @@ public class Chess {
 		Scanner sc = new Scanner(System.in);
 		String from, to, input;
 		String extra = "";
-		String oldRow, oldCol, newRow, newCol;
+		int oldSquare, newSquare;
+		FileRank fr = new FileRank();
 
-		List<String> whitePieces = new ArrayList<String>();
-		List<String> blackPieces = new ArrayList<String>();
 
 		while(true) {
 
+			// engine plays white
+			if (whiteEngine) {
+				if (!engineMove(chess, search, book, depth, moveTime, "White")) {
+					sc.close();
+					return;
+				}
+				inputOK = true;
+				draw = false;
+			}
+
 			// gets input from white
-			do {
+			while (!inputOK) {
 				System.out.print("White's move: ");
 				input = sc.nextLine();
 				
@@ -45,14 +132,14 @@ public class Chess {
 				if (input.compareTo("resign") == 0) {
 					System.out.println("White resigns. Black wins.");
 					sc.close();
-					System.exit(0);
+					return;
 				} 
 				
 				// white accepts draw
 				if ((input.compareTo("draw") == 0) && draw) {
 					System.out.println("Draw");
 					sc.close();
-					System.exit(0);
+					return;
 				} 
 					
 				draw = false;
@@ -74,10 +161,8 @@ public class Chess {
 				
 				// checks that input matches "e3" "a5" format
 				if (chess.checkInput(from, to)) {
-					oldRow = from.substring(1);
-					oldCol = from.substring(0,1).toLowerCase();
-					newRow = to.substring(1);
-					newCol = to.substring(0,1).toLowerCase();
+					oldSquare = fr.toSquare(from);
+					newSquare = fr.toSquare(to);
 					
 					// white accepts draw
 					if (extra.equals("draw?")) {
@@ -85,53 +170,31 @@ public class Chess {
 					}
 					
 					// CHECK IF IN BOUNDS
-					if (chess.isValidMove(oldRow, oldCol)
-							&& chess.isValidMove(newRow, newCol)) {
+					if (oldSquare != Square.NONE && newSquare != Square.NONE) {
 
 						// CHECK IF VALID "FROM" COORDINATE
-						if (chess.getPiece(oldRow, oldCol) != null) {
-							ChessPiece origin = chess.getPiece(oldRow, oldCol);
+						if (chess.getPiece(oldSquare) != null) {
+							ChessPiece origin = chess.getPiece(oldSquare);
 
 							// CHECK IF WHITE PIECE
-							whitePieces = chess.getCurrentPieces("white");
-							if (whitePieces.contains(chess.getPiece(oldRow, oldCol).type)) {
+							if (chess.isOccupiedBy(Bitboard.WHITE, oldSquare)) {
 
 								// CHECK IF VALID "TO" COORDINATE
-								if (origin.validPieceMove(newRow, newCol, chess)) {
-									ChessPiece destination = chess.getPiece(newRow, newCol);
-
-									// spot not occupied --> valid, claim spot
-									if (destination == null) {
-
-										if (origin instanceof Pawn) {
-											Pawn p = (Pawn) origin;
-											if (p.getEnpassant("white", chess).contains(newRow + " " + newCol)) {
-												chess.move(origin, newRow, newCol);
-												chess.removeEnpassant(p);
-											} else if (newRow.equals("8")) {
-												chess.move(origin, newRow, newCol);
-												chess.promotion(origin, extra);
-											} else {
-												chess.move(origin, newRow, newCol);
-											}
-										} else if (origin instanceof King) {
-											if (!chess.castling("white", newRow, newCol, chess)) {
-												chess.move(origin, newRow, newCol);
-											}
-										} else {
-											chess.move(origin, newRow, newCol);
+								int move = origin.getMove(oldSquare, newSquare, chess);
+								if (move != Move.NONE) {
+									ChessPiece destination = chess.getPiece(newSquare);
+
+									// spot not occupied or occupied by opponent --> valid, claim spot
+									if (destination == null || chess.isOccupiedBy(Bitboard.BLACK, newSquare)) {
+										if (destination != null) {
+											System.out.println("Captured " + destination.getType());
+										} else if (Move.isEnPassant(move)) {
+											System.out.println("Enpassant: Captured " + chess.getPiece(newSquare - 8).getType());
 										}
-
-										inputOK = true;
-										// spot occupied by opponent --> valid, capture, reclaim spot
-									} else if (destination.getColor().compareTo("black") == 0) {
-										System.out.println("Captured " + destination.getType());
-										if (origin instanceof Pawn && newRow.equals("8")) {
-											chess.move(origin, newRow, newCol);
-											chess.promotion(origin, extra);
-										} else {
-											chess.move(origin, newRow, newCol);
+										if (Move.promotion(move) != Move.NO_PROMOTION) {
+											move = Move.withPromotion(move, promotionKind(extra));
 										}
+										chess.makeMove(move);
 										inputOK = true;
 										// spot occupied by own piece --> invalid
 									} else {
@@ -160,7 +223,7 @@ public class Chess {
 					draw = false;
 				}
 				extra = ""; // reset
-			} while (!inputOK);
+			}
 
 			inputOK = false; // reset
 			
@@ -168,23 +231,24 @@ public class Chess {
 			System.out.println();
 			chess.displayBoard();
 
-			// checks if white has captured king
-			chess.captureKing("black", chess);
-			
-			// check if stalemate
-			chess.stalemate("black", chess);
-
-			// checks if white has checked black --> announce to black
-			if (chess.checkmate("black", chess)) {
-				System.out.println("Checkmate");
+			// checks if white has captured king, stalemated, mated or checked black --> announce to black
+			if (announce(tablebase != null ? tablebase.status(chess) : chess.status(Bitboard.BLACK), "White")) {
 				sc.close();
-				System.exit(0);
-			} else {
-				chess.check("black", chess);
+				return;
+			}
+
+			// engine plays black
+			if (blackEngine) {
+				if (!engineMove(chess, search, book, depth, moveTime, "Black")) {
+					sc.close();
+					return;
+				}
+				inputOK = true;
+				draw = false;
 			}
 
 			// get input from black
-			do {
+			while (!inputOK) {
 				System.out.print("Black's move: ");
 				input = sc.nextLine();
 
@@ -192,14 +256,14 @@ public class Chess {
 				if (input.compareTo("resign") == 0) {
 					System.out.println("Black resigns. White wins.");
 					sc.close();
-					System.exit(0);
+					return;
 				}
 				
 				// black accepts draw
 				if ((input.compareTo("draw") == 0) && draw) {
 					System.out.println("Draw");
 					sc.close();
-					System.exit(0);
+					return;
 				} 
 					
 				draw = false;
@@ -220,10 +284,8 @@ public class Chess {
 
 				// checks that input matches "e3" "a5" format
 				if (chess.checkInput(from, to)) {
-					oldRow = from.substring(1);
-					oldCol = from.substring(0,1).toLowerCase();
-					newRow = to.substring(1);
-					newCol = to.substring(0,1).toLowerCase();
+					oldSquare = fr.toSquare(from);
+					newSquare = fr.toSquare(to);
 
 					// black requests draw
 					if (extra.equals("draw?")) {
@@ -231,53 +293,31 @@ public class Chess {
 					}
 					
 					// CHECK IF IN BOUNDS
-					if (chess.isValidMove(oldRow, oldCol)
-							&& chess.isValidMove(newRow, newCol)) {
+					if (oldSquare != Square.NONE && newSquare != Square.NONE) {
 
 						// CHECK IF VALID "FROM" COORDINATE
-						if (chess.getPiece(oldRow, oldCol) != null) {
-							ChessPiece origin = chess.getPiece(oldRow, oldCol);
+						if (chess.getPiece(oldSquare) != null) {
+							ChessPiece origin = chess.getPiece(oldSquare);
 
 							// CHECK IF BLACK PIECE
-							blackPieces = chess.getCurrentPieces("black");
-							if (blackPieces.contains(chess.getPiece(oldRow, oldCol).type)) {
+							if (chess.isOccupiedBy(Bitboard.BLACK, oldSquare)) {
 
 								// CHECK IF VALID "TO" COORDINATE
-								if (origin.validPieceMove(newRow, newCol, chess)) { 
-									ChessPiece destination = chess.getPiece(newRow, newCol);
-
-									// spot not occupied --> valid, claim spot
-									if (destination == null) {
-
-										if (origin instanceof Pawn) {
-											Pawn p = (Pawn) origin;
-											if (p.getEnpassant("black", chess).contains(newRow + " " + newCol)) {
-												chess.move(origin, newRow, newCol);
-												chess.removeEnpassant(p);
-											} else if (newRow.equals("1")) {
-												chess.move(origin, newRow, newCol);
-												chess.promotion(origin, extra);
-											} else {
-												chess.move(origin, newRow, newCol);
-											}
-										} else if (origin instanceof King) { 
-											if (!chess.castling("black", newRow, newCol, chess)) {
-												chess.move(origin, newRow, newCol);
-											}
-										} else {
-											chess.move(origin, newRow, newCol);
+								int move = origin.getMove(oldSquare, newSquare, chess);
+								if (move != Move.NONE) {
+									ChessPiece destination = chess.getPiece(newSquare);
+
+									// spot not occupied or occupied by opponent --> valid, claim spot
+									if (destination == null || chess.isOccupiedBy(Bitboard.WHITE, newSquare)) {
+										if (destination != null) {
+											System.out.println("Captured " + destination.getType());
+										} else if (Move.isEnPassant(move)) {
+											System.out.println("Enpassant: Captured " + chess.getPiece(newSquare + 8).getType());
 										}
-
-										inputOK = true;
-										// spot occupied by opponent --> valid, capture, reclaim spot
-									} else if (destination.getColor().compareTo("white") == 0) {
-										System.out.println("Captured " + destination.getType());
-										if (origin instanceof Pawn && newRow.equals("1")) {
-											chess.move(origin, newRow, newCol);
-											chess.promotion(origin, extra);
-										} else {
-											chess.move(origin, newRow, newCol);
+										if (Move.promotion(move) != Move.NO_PROMOTION) {
+											move = Move.withPromotion(move, promotionKind(extra));
 										}
+										chess.makeMove(move);
 										inputOK = true;
 										// spot occupied by own piece --> invalid
 									} else {
@@ -305,30 +345,116 @@ public class Chess {
 					draw = false;
 				}
 				extra = ""; // reset
-			} while (!inputOK);
+			}
 
 			inputOK = false; // reset
 
 			System.out.println();
 			chess.displayBoard();
 
-			// checks if black has captured king
-			chess.captureKing("white", chess);
-
-			// check if stalemate
-			chess.stalemate("white", chess);
-			
-			// checks if white has checked black --> announce to black
-			if (chess.checkmate("white", chess)) {
-				System.out.println("Checkmate");
+			// checks if black has captured king, stalemated, mated or checked white --> announce to white
+			if (announce(tablebase != null ? tablebase.status(chess) : chess.status(Bitboard.WHITE), "Black")) {
 				sc.close();
-				System.exit(0);
-			} else {
-				chess.check("white", chess);
+				return;
 			}
 
 		}
 
 	}
 
+	/**
+	 * Lets the engine pick a move for the player to move and makes it,
+	 * printing it the way a player would type it. A book move is played
+	 * without searching. If the player has no legal move left the game 
+	 * is over, and the result is announced.
+	 * 
+	 * @param chess ChessBoard object
+	 * @param search Search used to pick the move
+	 * @param book Opening book, or null for none
+	 * @param depth Deepest depth to search
+	 * @param moveTime Time budget in milliseconds, or 0 for no limit
+	 * @param player "White" or "Black"
+	 * @return True if a move was made, false if the game is over
+	 */
+	static boolean engineMove(ChessBoard chess, ParallelSearch search, OpeningBook book, int depth, long moveTime, String player) {
+		int move = book != null ? book.pick(chess, RANDOM) : Move.NONE;
+		if (move == Move.NONE) {
+			move = search.search(chess, depth, moveTime);
+		}
+		if (move == Move.NONE) {
+			// the player to move is mated or stalemated, announced for the other player
+			announce(chess.status(chess.getSideToMove()), player.equals("White") ? "Black" : "White");
+			return false;
+		}
+
+		FileRank fr = new FileRank();
+		String input = fr.toCoordinate(Move.from(move)) + " " + fr.toCoordinate(Move.to(move));
+		if (Move.promotion(move) != Move.NO_PROMOTION) {
+			input += " " + Bitboard.TYPES[Move.promotion(move)].charAt(1);
+		}
+		System.out.println(player + "'s move: " + input);
+
+		int to = Move.to(move);
+		if (Move.isEnPassant(move)) {
+			int behind = chess.getSideToMove() == Bitboard.WHITE ? to - 8 : to + 8;
+			System.out.println("Enpassant: Captured " + chess.getPiece(behind).getType());
+		} else if (chess.getPiece(to) != null) {
+			System.out.println("Captured " + chess.getPiece(to).getType());
+		}
+		chess.makeMove(move);
+		return true;
+	}
+
+	/**
+	 * Announces the state of the game after a player's move: who won if 
+	 * the opponent's king was captured, checkmate, stalemate, a drawn
+	 * ending or check.
+	 * 
+	 * @param status Status of the game for the opponent
+	 * @param player "White" or "Black", the player who just moved
+	 * @return True if the game is over, false otherwise
+	 */
+	static boolean announce(GameStatus status, String player) {
+		switch (status) {
+		case KING_CAPTURED:
+			System.out.println(player + " wins");
+			break;
+		case CHECKMATE:
+			System.out.println("Checkmate");
+			break;
+		case STALEMATE:
+			System.out.println("Stalemate");
+			break;
+		case CHECK:
+			System.out.println("Check");
+			break;
+		case DRAWN:
+			System.out.println("Draw");
+			break;
+		default:
+			break;
+		}
+		return status.isOver();
+	}
+
+	/**
+	 * Converts the promotion choice typed after a move ("Q", "N", "B"
+	 * or "R") to a piece kind. Anything else promotes to a queen.
+	 * 
+	 * @param extra Text typed after the move
+	 * @return The kind the pawn is promoted to
+	 */
+	static int promotionKind(String extra) {
+		switch(extra) {
+		case "N":
+			return Bitboard.KNIGHT;
+		case "B":
+			return Bitboard.BISHOP;
+		case "R":
+			return Bitboard.ROOK;
+		default:
+			return Bitboard.QUEEN;
+		}
+	}
+
 }
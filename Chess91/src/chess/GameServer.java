@@ -0,0 +1,241 @@
+package chess;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadFactory;
+
+import board.Bitboard;
+import board.ChessBoard;
+import board.FileRank;
+import board.GameStatus;
+import board.Move;
+import board.Square;
+import pieces.ChessPiece;
+
+/**
+ * GameServer hosts many games at once over local TCP connections. Each
+ * connection is one game session, played on its own board by its own
+ * thread, and nothing about a game is shared with any other session.
+ * Players send moves the way they are typed into Chess.main, one per
+ * line, for whichever side is to move, and get one line back for each.
+ *
+ * <pre>
+ * e2 e4            move       ok, ok Check, ok Checkmate, ok Stalemate,
+ * e7 e8 N          promote    ok White wins, or why the move was refused
+ * e2 e4 draw?      offer a draw
+ * draw             accept the draw just offered
+ * resign           resign, "White resigns. Black wins."
+ * fen              FEN of the position
+ * new              start a new game
+ * quit             close the session
+ * </pre>
+ *
+ * A game that ends is replaced by a new one, so a session can play any
+ * number of games. On Java 21 and later each session runs on a virtual
+ * thread, so thousands of idle sessions cost little; on older Java each
+ * gets a platform thread.
+ *
+ * <pre>
+ * java chess.GameServer                 listen on port 9091
+ * java chess.GameServer -port 9000
+ * </pre>
+ *
+ * @author Omar Khalil
+ * @author Michelle Hwang
+ */
+public class GameServer {
+
+	/**
+	 * Port listened on when no -port is given.
+	 */
+	static final int DEFAULT_PORT = 9091;
+
+	/**
+	 * Connections waiting to be accepted before new ones are refused.
+	 */
+	static final int BACKLOG = 4096;
+
+	/**
+	 * Starts the server and accepts sessions until the process is stopped.
+	 *
+	 * @param args Option "-port N"
+	 * @throws IOException If the port cannot be listened on
+	 */
+	public static void main(String[] args) throws IOException {
+		int port = DEFAULT_PORT;
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			if (args[i].equals("-port")) {
+				port = Integer.parseInt(args[i + 1]);
+			} else {
+				System.out.println("Unknown option " + args[i]);
+			}
+		}
+
+		ThreadFactory threads = sessionThreads();
+		try (ServerSocket server = new ServerSocket(port, BACKLOG, InetAddress.getLoopbackAddress())) {
+			System.out.println("Listening on port " + server.getLocalPort());
+			while (true) {
+				Socket socket = server.accept();
+				socket.setTcpNoDelay(true);
+				threads.newThread(new Session(socket)).start();
+			}
+		}
+	}
+
+	/**
+	 * Returns a factory of the threads sessions run on: virtual threads
+	 * if this Java has them, platform threads otherwise. They are looked
+	 * up by name so that the code still builds for Java 8.
+	 *
+	 * @return The thread factory
+	 */
+	static ThreadFactory sessionThreads() {
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+		} catch (ReflectiveOperationException e) {
+			return new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "session");
+					t.setDaemon(true);
+					return t;
+				}
+			};
+		}
+	}
+
+	/**
+	 * Session plays the games of one connection.
+	 */
+	static class Session implements Runnable {
+
+		private final Socket socket;
+		private final FileRank fr = new FileRank();
+		private ChessBoard chess = new ChessBoard();
+		/** True if the player who just moved offered a draw. */
+		private boolean draw;
+
+		/**
+		 * Creates a session.
+		 *
+		 * @param socket The connection of the session
+		 */
+		Session(Socket socket) {
+			this.socket = socket;
+		}
+
+		/**
+		 * Answers each line of the connection until it is closed or the
+		 * player quits.
+		 */
+		public void run() {
+			try (Socket s = socket;
+					BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+					Writer out = new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8))) {
+				for (String line = in.readLine(); line != null && !line.equals("quit"); line = in.readLine()) {
+					out.write(answer(line.trim()));
+					out.write('\n');
+					out.flush();
+				}
+			} catch (IOException e) {
+				// the player went away, which ends the session
+			}
+		}
+
+		/**
+		 * Carries out one line of input.
+		 *
+		 * @param input Line sent by the player
+		 * @return The reply
+		 */
+		String answer(String input) {
+			String player = chess.getSideToMove() == Bitboard.WHITE ? "White" : "Black";
+			String opponent = chess.getSideToMove() == Bitboard.WHITE ? "Black" : "White";
+			switch (input) {
+			case "new":
+				newGame();
+				return "ok";
+			case "fen":
+				return chess.toFen();
+			case "resign":
+				newGame();
+				return player + " resigns. " + opponent + " wins.";
+			case "draw":
+				if (draw) {
+					newGame();
+					return "Draw";
+				}
+				return "Invalid input, try again";
+			default:
+				break;
+			}
+
+			draw = false;
+			if (input.length() < 5) {
+				return "Invalid input, try again";
+			}
+			String from = input.substring(0, 2).toLowerCase();
+			String to = input.substring(3, 5).toLowerCase();
+			String extra = input.length() > 5 ? input.substring(6) : "";
+			if (!chess.checkInput(from, to)) {
+				return "Invalid input, try again";
+			}
+			int oldSquare = fr.toSquare(from);
+			int newSquare = fr.toSquare(to);
+			if (oldSquare == Square.NONE || newSquare == Square.NONE) {
+				return "Illegal move, try again (One or more coordinates is not in bounds)";
+			}
+			ChessPiece origin = chess.getPiece(oldSquare);
+			if (origin == null) {
+				return "Illegal move, try again (Cannot retrieve piece)";
+			}
+			if (!chess.isOccupiedBy(chess.getSideToMove(), oldSquare)) {
+				return "Illegal move, try again (Must pick " + player.toLowerCase() + " piece)";
+			}
+			int move = origin.getMove(oldSquare, newSquare, chess);
+			if (move == Move.NONE) {
+				return "Illegal move, try again";
+			}
+			if (Move.promotion(move) != Move.NO_PROMOTION) {
+				move = Move.withPromotion(move, Chess.promotionKind(extra));
+			}
+			chess.makeMove(move);
+			draw = extra.equals("draw?");
+
+			GameStatus status = chess.status(chess.getSideToMove());
+			if (status.isOver()) {
+				newGame();
+			}
+			switch (status) {
+			case KING_CAPTURED:
+				return "ok " + player + " wins";
+			case CHECKMATE:
+				return "ok Checkmate";
+			case STALEMATE:
+				return "ok Stalemate";
+			case CHECK:
+				return "ok Check";
+			default:
+				return "ok";
+			}
+		}
+
+		/**
+		 * Replaces the game with a new one.
+		 */
+		void newGame() {
+			chess = new ChessBoard();
+			draw = false;
+		}
+
+	}
+
+}
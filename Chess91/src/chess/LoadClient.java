@@ -0,0 +1,232 @@
+package chess;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import board.Bitboard;
+import board.ChessBoard;
+import board.FileRank;
+import board.Move;
+
+/**
+ * LoadClient measures a GameServer by opening many sessions at once and
+ * playing random legal moves on each as fast as the server answers. Each
+ * session keeps its own board in step with the server's, and starts a
+ * new game when the game ends or gets too long. When every session has
+ * made its moves, the moves per second over all sessions and the time
+ * the server took to answer a move are printed.
+ *
+ * <pre>
+ * java chess.LoadClient                              1000 sessions of 200 moves
+ * java chess.LoadClient -sessions 5000 -moves 100 -port 9000
+ * </pre>
+ *
+ * @author Omar Khalil
+ * @author Michelle Hwang
+ */
+public class LoadClient {
+
+	/**
+	 * Moves after which a session starts a new game.
+	 */
+	static final int MAX_GAME_PLIES = 200;
+
+	/**
+	 * Opens the sessions, waits for them to finish and prints the report.
+	 *
+	 * @param args Options "-host NAME", "-port N", "-sessions N" and
+	 * "-moves N", the moves each session makes
+	 * @throws InterruptedException If interrupted while waiting
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		String host = "localhost";
+		int port = GameServer.DEFAULT_PORT;
+		int sessions = 1000;
+		int moves = 200;
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			switch (args[i]) {
+			case "-host":
+				host = args[i + 1];
+				break;
+			case "-port":
+				port = Integer.parseInt(args[i + 1]);
+				break;
+			case "-sessions":
+				sessions = Integer.parseInt(args[i + 1]);
+				break;
+			case "-moves":
+				moves = Integer.parseInt(args[i + 1]);
+				break;
+			default:
+				System.out.println("Unknown option " + args[i]);
+			}
+		}
+
+		ThreadFactory threads = GameServer.sessionThreads();
+		CountDownLatch done = new CountDownLatch(sessions);
+		AtomicInteger failed = new AtomicInteger();
+		Player[] players = new Player[sessions];
+		long begin = System.nanoTime();
+		for (int s = 0; s < sessions; s++) {
+			players[s] = new Player(host, port, moves, s, done, failed);
+			threads.newThread(players[s]).start();
+		}
+		done.await();
+		long elapsed = System.nanoTime() - begin;
+
+		// every answer time of every session, sorted for the percentiles
+		int total = 0;
+		for (Player player : players) {
+			total += player.made;
+		}
+		long[] latencies = new long[total];
+		int n = 0;
+		for (Player player : players) {
+			System.arraycopy(player.latencies, 0, latencies, n, player.made);
+			n += player.made;
+		}
+		Arrays.sort(latencies);
+
+		System.out.println(sessions + " sessions, " + failed.get() + " failed");
+		System.out.println("moves: " + total + ", " + (elapsed / 1000000) + " ms, "
+				+ Perft.nps(total, elapsed) + " moves/s");
+		if (total > 0) {
+			System.out.println("latency: p50 " + micros(latencies, 0.50) + " us, p99 " + micros(latencies, 0.99)
+					+ " us, max " + latencies[total - 1] / 1000 + " us");
+		}
+	}
+
+	/**
+	 * Returns a percentile of sorted times, in microseconds.
+	 *
+	 * @param sorted Times in nanoseconds, sorted
+	 * @param fraction Percentile as a fraction, ex. 0.99
+	 * @return The time below which that fraction of the times lie
+	 */
+	static long micros(long[] sorted, double fraction) {
+		int index = (int) Math.ceil(fraction * sorted.length) - 1;
+		return sorted[Math.max(0, index)] / 1000;
+	}
+
+	/**
+	 * Player plays one session: picks a random legal move, sends it and
+	 * times the answer, until it has made its moves.
+	 */
+	static class Player implements Runnable {
+
+		private final String host;
+		private final int port;
+		private final Random random;
+		private final CountDownLatch done;
+		private final AtomicInteger failed;
+		private final FileRank fr = new FileRank();
+		private final int[] moves = new int[256];
+
+		/** Time the server took to answer each move, in nanoseconds. */
+		final long[] latencies;
+		/** Moves made so far. */
+		int made;
+
+		/**
+		 * Creates a session player.
+		 *
+		 * @param host Host of the server
+		 * @param port Port of the server
+		 * @param count Number of moves to make
+		 * @param seed Seed of the random moves
+		 * @param done Counted down when the session ends
+		 * @param failed Counts the sessions that ended in an error
+		 */
+		Player(String host, int port, int count, long seed, CountDownLatch done, AtomicInteger failed) {
+			this.host = host;
+			this.port = port;
+			this.latencies = new long[count];
+			this.random = new Random(seed);
+			this.done = done;
+			this.failed = failed;
+		}
+
+		/**
+		 * Plays the session, then counts it down.
+		 */
+		public void run() {
+			try (Socket socket = new Socket(host, port);
+					BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+					Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+				socket.setTcpNoDelay(true);
+				ChessBoard chess = new ChessBoard();
+				int plies = 0;
+				while (made < latencies.length) {
+					int count = chess.generateLegalMoves(chess.getSideToMove(), moves);
+					if (count == 0 || plies == MAX_GAME_PLIES) {
+						send(out, in, "new");
+						chess = new ChessBoard();
+						plies = 0;
+						continue;
+					}
+					int move = moves[random.nextInt(count)];
+
+					long begin = System.nanoTime();
+					String reply = send(out, in, input(move));
+					latencies[made++] = System.nanoTime() - begin;
+					if (reply == null || !reply.startsWith("ok")) {
+						throw new IOException("server refused " + input(move) + ": " + reply);
+					}
+					chess.makeMove(move);
+					plies++;
+				}
+				out.write("quit\n");
+				out.flush();
+			} catch (IOException e) {
+				if (failed.getAndIncrement() == 0) {
+					System.err.println("Session failed: " + e.getMessage());
+				}
+			} finally {
+				done.countDown();
+			}
+		}
+
+		/**
+		 * Sends one line and waits for the answer.
+		 *
+		 * @param out Connection to the server
+		 * @param in Answers of the server
+		 * @param line Line to send
+		 * @return The answer, or null if the server closed the session
+		 * @throws IOException If the connection fails
+		 */
+		String send(Writer out, BufferedReader in, String line) throws IOException {
+			out.write(line);
+			out.write('\n');
+			out.flush();
+			return in.readLine();
+		}
+
+		/**
+		 * Writes a move the way a player types it, ex. "e7 e8 Q".
+		 *
+		 * @param move Packed move
+		 * @return The move as typed
+		 */
+		String input(int move) {
+			String input = fr.toCoordinate(Move.from(move)) + " " + fr.toCoordinate(Move.to(move));
+			if (Move.promotion(move) != Move.NO_PROMOTION) {
+				input += " " + Bitboard.TYPES[Move.promotion(move)].charAt(1);
+			}
+			return input;
+		}
+
+	}
+
+}
@@ -0,0 +1,112 @@
+package chess;
+
+import board.ChessBoard;
+import board.FileRank;
+import pieces.ChessPiece;
+
+/**
+ * MoveGenBenchmark times move generation for every piece, the
+ * checkmate test and piece lookup on a few fixed positions, so changes to the board
+ * representation can be compared without playing a game by hand.
+ * 
+ * @author Omar Khalil
+ * @author Michelle Hwang
+ */
+public class MoveGenBenchmark {
+
+	/**
+	 * Move buffer shared by every generation pass.
+	 */
+	static final int[] MOVES = new int[256];
+
+	/**
+	 * Moves played from the starting position to reach the middlegame
+	 * position that is benchmarked alongside the starting position.
+	 */
+	static final String[] OPENING = {
+		"e2 e4", "e7 e5", "g1 f3", "b8 c6", "f1 c4",
+		"f8 c5", "d2 d3", "d7 d6", "c1 g5", "c8 g4"
+	};
+
+	/**
+	 * Runs the benchmark and prints the time per generation pass.
+	 * 
+	 * @param args Optional number of iterations
+	 */
+	public static void main(String[] args) {
+		int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+
+		ChessBoard start = new ChessBoard();
+		ChessBoard middlegame = new ChessBoard();
+		FileRank fr = new FileRank();
+		for (String m : OPENING) {
+			int from = fr.toSquare(m.substring(0, 2));
+			ChessPiece piece = middlegame.getPiece(from);
+			middlegame.makeMove(piece.getMove(from, fr.toSquare(m.substring(3)), middlegame));
+		}
+
+		run("start", start, iterations);
+		run("middlegame", middlegame, iterations);
+	}
+
+	/**
+	 * Generates the moves of every piece on the board, warming up first
+	 * and then timing the given number of iterations.
+	 * 
+	 * @param name Label of the position
+	 * @param board ChessBoard object
+	 * @param iterations Number of timed generation passes
+	 */
+	static void run(String name, ChessBoard board, int iterations) {
+		long sink = 0;
+		for (int i = 0; i < iterations; i++) {
+			sink += generateAll(board);
+		}
+
+		long begin = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			sink += generateAll(board);
+		}
+		long elapsed = System.nanoTime() - begin;
+
+		System.out.println(name + ": " + (elapsed / iterations) + " ns/pass, "
+				+ (sink / (2L * iterations)) + " moves/pass");
+
+		int mates = 0;
+		begin = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			if (board.checkmate("white", board) || board.checkmate("black", board)) {
+				mates++;
+			}
+		}
+		elapsed = System.nanoTime() - begin;
+
+		System.out.println(name + ": " + (elapsed / iterations) + " ns/checkmate test"
+				+ (mates > 0 ? " (mate)" : ""));
+
+		long found = 0;
+		begin = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			for (int square = 0; square < 64; square++) {
+				if (board.getPiece(square) != null) {
+					found++;
+				}
+			}
+		}
+		elapsed = System.nanoTime() - begin;
+
+		System.out.println(name + ": " + (elapsed / iterations) + " ns/64 getPiece calls, "
+				+ (found / iterations) + " pieces");
+	}
+
+	/**
+	 * Generates the moves of every piece on the board once.
+	 * 
+	 * @param board ChessBoard object
+	 * @return Total number of moves generated
+	 */
+	static int generateAll(ChessBoard board) {
+		return board.generateMoves("white", MOVES) + board.generateMoves("black", MOVES);
+	}
+
+}
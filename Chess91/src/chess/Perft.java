@@ -0,0 +1,381 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import board.ChessBoard;
+import board.Move;
+
+/**
+ * Perft counts the legal move paths of a position to a fixed depth and
+ * compares the counts of a set of well-known positions with their
+ * published values. Any bug in move generation, make/unmake, castling,
+ * en passant or promotion changes the counts, so the suite is a
+ * regression gate for the board and pieces packages as well as a
+ * throughput measure.
+ *
+ * With more than one thread the subtrees below the root are counted in
+ * parallel on a ForkJoinPool, each task on its own copy of the board.
+ * The counts, and the divide output, are the same as with one thread.
+ * A hash cache of counted positions can be shared by every thread.
+ *
+ * <pre>
+ * java chess.Perft                   run the reference suite
+ * java chess.Perft suite 5           run the suite up to depth 5
+ * java chess.Perft 4                 divide the starting position at depth 4
+ * java chess.Perft 3 &lt;fen&gt;           divide a FEN position at depth 3
+ * java chess.Perft -threads 8 -hash 256 suite 6
+ *                                    run the suite on 8 threads with a 256 MB cache
+ * </pre>
+ *
+ * @author Omar Khalil
+ * @author Michelle Hwang
+ */
+public class Perft {
+
+	/**
+	 * FEN of the starting position.
+	 */
+	public static final String START = ChessBoard.START_FEN;
+
+	/**
+	 * Reference positions with known perft counts, covering castling
+	 * rights, en passant, promotions and discovered checks.
+	 */
+	static final String[] NAMES = {
+		"start", "kiwipete", "position 3", "position 4", "position 5", "position 6"
+	};
+
+	static final String[] FENS = {
+		START,
+		"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+		"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+		"r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+		"rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+		"r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10"
+	};
+
+	/**
+	 * Published node counts of each position, from depth 1 up.
+	 */
+	static final long[][] NODES = {
+		{20, 400, 8902, 197281, 4865609, 119060324L},
+		{48, 2039, 97862, 4085603, 193690690L},
+		{14, 191, 2812, 43238, 674624, 11030083, 178633661L},
+		{6, 264, 9467, 422333, 15833292, 706045033L},
+		{44, 1486, 62379, 2103487, 89941194L},
+		{46, 2079, 89890, 3894594, 164075551L}
+	};
+
+	/**
+	 * Depth the suite runs to when no depth is given.
+	 */
+	static final int SUITE_DEPTH = 4;
+
+	/**
+	 * Subtrees at least this deep are split into parallel tasks.
+	 */
+	static final int SPLIT_DEPTH = 4;
+
+	/**
+	 * Plies below the root whose moves are split into parallel tasks.
+	 */
+	static final int SPLIT_PLIES = 2;
+
+	/**
+	 * One move buffer per ply, so that the recursion does not allocate.
+	 */
+	int[][] moves;
+
+	/**
+	 * Cache of counted positions, or null.
+	 */
+	PerftCache cache;
+
+	/**
+	 * Creates a counter able to search up to the given depth.
+	 *
+	 * @param maxDepth Deepest perft this counter will run
+	 */
+	public Perft(int maxDepth) {
+		this(maxDepth, null);
+	}
+
+	/**
+	 * Creates a counter able to search up to the given depth, looking
+	 * positions up in a cache.
+	 *
+	 * @param maxDepth Deepest perft this counter will run
+	 * @param cache Cache of counted positions, or null for none
+	 */
+	public Perft(int maxDepth, PerftCache cache) {
+		this.moves = new int[Math.max(1, maxDepth)][256];
+		this.cache = cache;
+	}
+
+	/**
+	 * Runs the reference suite or a divide, depending on the arguments.
+	 * Exits with status 1 if a suite count does not match.
+	 *
+	 * @param args Options "-threads N" and "-hash MB", then empty,
+	 * "suite [depth]", or "depth [fen]"
+	 */
+	public static void main(String[] args) {
+		int threads = 1;
+		PerftCache cache = null;
+		int i = 0;
+		for (; i + 1 < args.length && args[i].startsWith("-"); i += 2) {
+			if (args[i].equals("-threads")) {
+				threads = Integer.parseInt(args[i + 1]);
+			} else if (args[i].equals("-hash")) {
+				cache = new PerftCache(Integer.parseInt(args[i + 1]));
+			} else {
+				System.out.println("Unknown option " + args[i]);
+			}
+		}
+		ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+
+		if (i == args.length || args[i].equals("suite")) {
+			int depth = i + 1 < args.length ? Integer.parseInt(args[i + 1]) : SUITE_DEPTH;
+			if (!suite(depth, pool, cache)) {
+				System.exit(1);
+			}
+			return;
+		}
+
+		int depth = Integer.parseInt(args[i]);
+		String fen = START;
+		if (i + 1 < args.length) {
+			StringBuilder sb = new StringBuilder();
+			for (int j = i + 1; j < args.length; j++) {
+				sb.append(args[j]).append(' ');
+			}
+			fen = sb.toString();
+		}
+		divide(ChessBoard.fromFen(fen), depth, pool, cache);
+	}
+
+	/**
+	 * Runs every reference position to the given depth, or to its
+	 * deepest published count if that is shallower, and prints the
+	 * counts, whether they match and the nodes per second.
+	 *
+	 * @param depth Deepest depth to run
+	 * @param pool Pool to count on, or null to count on this thread
+	 * @param cache Cache of counted positions, or null for none
+	 * @return True if every count matched, false otherwise
+	 */
+	public static boolean suite(int depth, ForkJoinPool pool, PerftCache cache) {
+		boolean ok = true;
+		long total = 0;
+		long elapsed = 0;
+		for (int i = 0; i < FENS.length; i++) {
+			int d = Math.min(depth, NODES[i].length);
+			ChessBoard board = ChessBoard.fromFen(FENS[i]);
+
+			long begin = System.nanoTime();
+			long nodes = count(board, d, pool, cache);
+			long time = System.nanoTime() - begin;
+			total += nodes;
+			elapsed += time;
+
+			long expected = NODES[i][d - 1];
+			String result = nodes == expected ? "ok" : "FAILED, expected " + expected;
+			System.out.println(NAMES[i] + ": depth " + d + ", " + nodes + " nodes, "
+					+ result + ", " + nps(nodes, time) + " nodes/s");
+			ok &= nodes == expected;
+		}
+		System.out.println("total: " + total + " nodes, " + (elapsed / 1000000) + " ms, "
+				+ nps(total, elapsed) + " nodes/s");
+		return ok;
+	}
+
+	/**
+	 * Prints the node count below each legal move of a position, then
+	 * the total. Comparing the divide of two move generators shows which
+	 * move leads to the difference. The output does not depend on the
+	 * number of threads.
+	 *
+	 * @param board ChessBoard object
+	 * @param depth Depth to count, at least 1
+	 * @param pool Pool to count on, or null to count on this thread
+	 * @param cache Cache of counted positions, or null for none
+	 * @return The total node count
+	 */
+	public static long divide(ChessBoard board, int depth, ForkJoinPool pool, PerftCache cache) {
+		Perft perft = new Perft(depth, cache);
+		int[] moves = new int[256];
+		int count = board.generateLegalMoves(board.getSideToMove(), moves);
+
+		long begin = System.nanoTime();
+		// count of each root move in generation order
+		long[] nodes = new long[count];
+		Task[] tasks = new Task[count];
+		for (int i = 0; i < count; i++) {
+			board.makeMove(moves[i]);
+			if (depth == 1) {
+				nodes[i] = 1;
+			} else if (pool != null) {
+				tasks[i] = new Task(board.copy(), depth - 1, SPLIT_PLIES - 1, cache);
+				pool.execute(tasks[i]);
+			} else {
+				nodes[i] = perft.perft(board, depth - 1);
+			}
+			board.unmakeMove();
+		}
+
+		long total = 0;
+		for (int i = 0; i < count; i++) {
+			if (tasks[i] != null) {
+				nodes[i] = tasks[i].join();
+			}
+			System.out.println(Move.toString(moves[i]) + ": " + nodes[i]);
+			total += nodes[i];
+		}
+		long time = System.nanoTime() - begin;
+
+		System.out.println();
+		System.out.println("Nodes searched: " + total);
+		System.out.println((time / 1000000) + " ms, " + nps(total, time) + " nodes/s");
+		return total;
+	}
+
+	/**
+	 * Counts the legal move paths of a position to a depth, on a pool
+	 * or on this thread.
+	 *
+	 * @param board ChessBoard object, left unchanged
+	 * @param depth Depth to count, at least 1
+	 * @param pool Pool to count on, or null to count on this thread
+	 * @param cache Cache of counted positions, or null for none
+	 * @return The number of leaf positions
+	 */
+	public static long count(ChessBoard board, int depth, ForkJoinPool pool, PerftCache cache) {
+		if (pool == null) {
+			return new Perft(depth, cache).perft(board, depth);
+		}
+		return pool.invoke(new Task(board.copy(), depth, SPLIT_PLIES, cache));
+	}
+
+	/**
+	 * Counts the legal move paths of a position to a depth.
+	 *
+	 * @param board ChessBoard object, left unchanged
+	 * @param depth Depth to count, at least 1
+	 * @return The number of leaf positions
+	 */
+	public long perft(ChessBoard board, int depth) {
+		return perft(board, depth, 0);
+	}
+
+	/**
+	 * Counts the legal move paths below one ply of the recursion. Moves
+	 * at the last ply are counted rather than searched into (bulk
+	 * counting), which saves a generation pass per leaf.
+	 *
+	 * @param board ChessBoard object
+	 * @param depth Remaining depth, at least 1
+	 * @param ply Distance from the root, used to pick the move buffer
+	 * @return The number of leaf positions
+	 */
+	long perft(ChessBoard board, int depth, int ply) {
+		long key = board.getHash();
+		if (cache != null && depth > 1) {
+			long cached = cache.probe(key, depth);
+			if (cached >= 0) {
+				return cached;
+			}
+		}
+
+		int[] buffer = moves[ply];
+		int count = board.generateLegalMoves(board.getSideToMove(), buffer);
+		// every move is legal, so the last ply needs no make and unmake
+		if (depth == 1) {
+			return count;
+		}
+
+		long nodes = 0;
+		for (int i = 0; i < count; i++) {
+			board.makeMove(buffer[i]);
+			nodes += perft(board, depth - 1, ply + 1);
+			board.unmakeMove();
+		}
+
+		if (cache != null && depth > 1) {
+			cache.store(key, depth, nodes);
+		}
+		return nodes;
+	}
+
+	/**
+	 * Task counting the subtree of one position on a ForkJoinPool. Deep
+	 * subtrees near the root are split into one task per legal move,
+	 * each with its own copy of the board; the rest are counted by a
+	 * serial Perft on the task's board.
+	 */
+	static class Task extends RecursiveTask<Long> {
+
+		private static final long serialVersionUID = 1L;
+
+		ChessBoard board;
+		int depth;
+		int split;
+		PerftCache cache;
+
+		/**
+		 * Creates a task.
+		 *
+		 * @param board Board owned by the task
+		 * @param depth Depth to count, at least 1
+		 * @param split Plies of this subtree still to be split into tasks
+		 * @param cache Cache of counted positions, or null for none
+		 */
+		Task(ChessBoard board, int depth, int split, PerftCache cache) {
+			this.board = board;
+			this.depth = depth;
+			this.split = split;
+			this.cache = cache;
+		}
+
+		/**
+		 * Counts the subtree.
+		 *
+		 * @return The number of leaf positions
+		 */
+		protected Long compute() {
+			if (split <= 0 || depth < SPLIT_DEPTH) {
+				return new Perft(depth, cache).perft(board, depth);
+			}
+
+			int[] moves = new int[256];
+			int count = board.generateLegalMoves(board.getSideToMove(), moves);
+			List<Task> tasks = new ArrayList<Task>();
+			for (int i = 0; i < count; i++) {
+				board.makeMove(moves[i]);
+				tasks.add(new Task(board.copy(), depth - 1, split - 1, cache));
+				board.unmakeMove();
+			}
+
+			long nodes = 0;
+			for (Task task : invokeAll(tasks)) {
+				nodes += task.join();
+			}
+			return nodes;
+		}
+
+	}
+
+	/**
+	 * Returns a node rate.
+	 *
+	 * @param nodes Number of nodes
+	 * @param nanos Time taken in nanoseconds
+	 * @return Nodes per second
+	 */
+	static long nps(long nodes, long nanos) {
+		return nanos == 0 ? 0 : nodes * 1000000000L / nanos;
+	}
+
+}
@@ -0,0 +1,75 @@
+package chess;
+
+/**
+ * PerftCache remembers the node counts of positions already counted, by
+ * position hash and depth, so that a position reached through different
+ * move orders is only counted once. It can be shared by every thread of
+ * a parallel perft.
+ *
+ * Entries take two longs of one array: the hash XORed with the data,
+ * then the data, which packs the node count above the depth. An entry
+ * torn by two threads writing at once no longer XORs back to its hash
+ * and reads as a miss, so no locks are needed. A new entry always
+ * replaces the old one.
+ *
+ * @author Omar Khalil
+ * @author Michelle Hwang
+ */
+public class PerftCache {
+
+	long[] table;
+	int mask;
+
+	/**
+	 * Creates a cache using at most the given amount of memory.
+	 *
+	 * @param megabytes Size of the cache in megabytes, at least 1
+	 */
+	public PerftCache(int megabytes) {
+		long entries = Math.max(1, megabytes) * (1024L * 1024L / 16);
+		int size = (int) Long.highestOneBit(Math.min(entries, 1 << 29));
+		table = new long[size * 2];
+		mask = size - 1;
+	}
+
+	/**
+	 * Looks up the node count of a position.
+	 *
+	 * @param key Hash of the position
+	 * @param depth Depth counted
+	 * @return The node count, or -1 if it is not in the cache
+	 */
+	public long probe(long key, int depth) {
+		int index = index(key);
+		long data = table[index + 1];
+		if ((table[index] ^ data) == key && (int) (data & 0xFF) == depth) {
+			return data >>> 8;
+		}
+		return -1;
+	}
+
+	/**
+	 * Stores the node count of a position.
+	 *
+	 * @param key Hash of the position
+	 * @param depth Depth counted, 1 to 255
+	 * @param nodes Node count
+	 */
+	public void store(long key, int depth, long nodes) {
+		int index = index(key);
+		long data = (nodes << 8) | depth;
+		table[index] = key ^ data;
+		table[index + 1] = data;
+	}
+
+	/**
+	 * Returns the index of the first long of a position's entry.
+	 *
+	 * @param key Hash of the position
+	 * @return Index into the table
+	 */
+	int index(long key) {
+		return ((int) (key ^ (key >>> 32)) & mask) * 2;
+	}
+
+}
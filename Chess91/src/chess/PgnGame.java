@@ -0,0 +1,135 @@
+package chess;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * PgnGame holds one game read from a PGN file: its tag pairs and its
+ * movetext, kept as read. The movetext is only split into moves when
+ * the game is replayed, so reading a file stays cheap and can run on a
+ * different thread from the replay.
+ *
+ * @author Omar Khalil
+ * @author Michelle Hwang
+ */
+public class PgnGame {
+
+	/** Name of the file the game was read from. */
+	final String source;
+	/** Position of the game in its file, from 1. */
+	final long number;
+	final Map<String, String> tags = new LinkedHashMap<String, String>();
+	final String movetext;
+
+	/**
+	 * Creates a game.
+	 *
+	 * @param source Name of the file the game was read from
+	 * @param number Position of the game in its file, from 1
+	 * @param movetext The moves, comments, variations and result as read
+	 */
+	PgnGame(String source, long number, String movetext) {
+		this.source = source;
+		this.number = number;
+		this.movetext = movetext;
+	}
+
+	/**
+	 * Returns the value of a tag pair.
+	 *
+	 * @param name Tag name, ex. "Result"
+	 * @return The value, or null if the game has no such tag
+	 */
+	public String getTag(String name) {
+		return tags.get(name);
+	}
+
+	/**
+	 * Returns the movetext as read.
+	 *
+	 * @return movetext Moves, comments, variations and result
+	 */
+	public String getMovetext() {
+		return movetext;
+	}
+
+	/**
+	 * Splits the movetext into its moves, in order. Move numbers,
+	 * comments, variations, numeric annotations and the result are left
+	 * out.
+	 *
+	 * @param moves List the SAN moves are added to
+	 * @return The same list
+	 */
+	public List<String> getMoves(List<String> moves) {
+		String text = movetext;
+		int length = text.length();
+		int depth = 0;
+		int i = 0;
+		while (i < length) {
+			char c = text.charAt(i);
+			if (c == '{') {
+				int close = text.indexOf('}', i);
+				i = close < 0 ? length : close + 1;
+			} else if (c == ';') {
+				int eol = text.indexOf('\n', i);
+				i = eol < 0 ? length : eol + 1;
+			} else if (c == '(') {
+				depth++;
+				i++;
+			} else if (c == ')') {
+				depth--;
+				i++;
+			} else if (c <= ' ') {
+				i++;
+			} else {
+				int start = i;
+				while (i < length && text.charAt(i) > ' ' && "{}();".indexOf(text.charAt(i)) < 0) {
+					i++;
+				}
+				if (depth <= 0) {
+					addMove(text, start, i, moves);
+				}
+			}
+		}
+		return moves;
+	}
+
+	/**
+	 * Adds one movetext token to the move list if it is a move, dropping
+	 * a move number written in front of it as in "12.e4".
+	 *
+	 * @param text Movetext
+	 * @param start Start of the token
+	 * @param end End of the token, exclusive
+	 * @param moves List the move is added to
+	 */
+	static void addMove(String text, int start, int end, List<String> moves) {
+		char c = text.charAt(start);
+		if (c == '$' || c == '*') {
+			return;
+		}
+		if (c >= '1' && c <= '9') {
+			int dot = text.lastIndexOf('.', end - 1);
+			if (dot < start) {
+				// a result, 1-0 or 1/2-1/2
+				return;
+			}
+			start = dot + 1;
+		}
+		if (start < end && !text.startsWith("0-1", start)) {
+			moves.add(text.substring(start, end));
+		}
+	}
+
+	/**
+	 * Returns where the game came from, for error messages.
+	 *
+	 * @return name of the file and position of the game in it
+	 */
+	public String toString() {
+		return source + " game " + number;
+	}
+
+}
@@ -0,0 +1,134 @@
+package chess;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * PgnReader reads the games of a PGN file one at a time, so that files
+ * far larger than memory can be read. Each game is made of its tag pair
+ * lines and the movetext lines after them; a tag line that follows
+ * movetext starts the next game. Tag lines inside a brace comment are
+ * part of the comment.
+ *
+ * @author Omar Khalil
+ * @author Michelle Hwang
+ */
+public class PgnReader implements Closeable {
+
+	/** Size of the read buffer, in chars. */
+	static final int BUFFER = 1 << 16;
+
+	private final BufferedReader in;
+	private final String source;
+	private long number;
+	/** First line of the next game, read past the end of the last one. */
+	private String pending;
+
+	/**
+	 * Creates a reader of PGN text.
+	 *
+	 * @param in Text to read the games from
+	 * @param source Name of the text, for error messages
+	 */
+	public PgnReader(Reader in, String source) {
+		this.in = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in, BUFFER);
+		this.source = source;
+	}
+
+	/**
+	 * Opens a PGN file, decompressing it if its name ends in ".gz".
+	 *
+	 * @param path Name of the file
+	 * @return A reader of the file's games
+	 * @throws IOException If the file cannot be opened
+	 */
+	public static PgnReader open(String path) throws IOException {
+		InputStream stream = new FileInputStream(path);
+		if (path.endsWith(".gz")) {
+			stream = new GZIPInputStream(stream, BUFFER);
+		}
+		return new PgnReader(new InputStreamReader(stream, StandardCharsets.UTF_8), path);
+	}
+
+	/**
+	 * Reads the next game.
+	 *
+	 * @return The game, or null at the end of the file
+	 * @throws IOException If the file cannot be read
+	 */
+	public PgnGame next() throws IOException {
+		String line = pending != null ? pending : in.readLine();
+		pending = null;
+		StringBuilder movetext = new StringBuilder();
+		Map<String, String> tags = new LinkedHashMap<String, String>();
+		boolean inMoves = false;
+		int braces = 0;
+
+		for (; line != null; line = in.readLine()) {
+			if (braces == 0 && line.startsWith("[")) {
+				if (inMoves) {
+					pending = line;
+					break;
+				}
+				addTag(tags, line);
+			} else if (line.startsWith("%") || (!inMoves && line.trim().isEmpty())) {
+				// escaped line, or blank line before the moves
+				continue;
+			} else {
+				inMoves = true;
+				movetext.append(line).append('\n');
+				for (int i = 0; i < line.length(); i++) {
+					char c = line.charAt(i);
+					if (c == '{') {
+						braces++;
+					} else if (c == '}' && braces > 0) {
+						braces--;
+					}
+				}
+			}
+		}
+
+		if (tags.isEmpty() && !inMoves) {
+			return null;
+		}
+		PgnGame game = new PgnGame(source, ++number, movetext.toString());
+		game.tags.putAll(tags);
+		return game;
+	}
+
+	/**
+	 * Adds the tag pair of a tag line, as in [Event "Casual game"], to a
+	 * map. Lines that are not tag pairs are skipped.
+	 *
+	 * @param tags Tags of the game read so far
+	 * @param line Tag line
+	 */
+	static void addTag(Map<String, String> tags, String line) {
+		int space = line.indexOf(' ');
+		int open = line.indexOf('"');
+		int close = line.lastIndexOf('"');
+		if (space < 2 || open < space || close <= open) {
+			return;
+		}
+		tags.put(line.substring(1, space), line.substring(open + 1, close).replace("\\\"", "\""));
+	}
+
+	/**
+	 * Closes the file.
+	 *
+	 * @throws IOException If the file cannot be closed
+	 */
+	public void close() throws IOException {
+		in.close();
+	}
+
+}
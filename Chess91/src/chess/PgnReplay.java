@@ -0,0 +1,278 @@
+package chess;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import board.ChessBoard;
+import board.Move;
+import board.San;
+
+/**
+ * PgnReplay replays every game of a set of PGN files through the rules
+ * of the board, move by move, and reports how many games and moves were
+ * replayed, which games hold a move that is not legal, and how fast it
+ * went. Nothing is printed while replaying except the first few errors,
+ * on standard error.
+ *
+ * The files are read on their own threads and their games handed to the
+ * replaying threads through a queue of fixed size. A reader that gets
+ * ahead waits for the queue to drain, so only a few thousand games are
+ * ever held in memory, however large the files are.
+ *
+ * <pre>
+ * java chess.PgnReplay games.pgn                 one thread per processor
+ * java chess.PgnReplay -threads 4 a.pgn b.pgn.gz
+ * </pre>
+ *
+ * @author Omar Khalil
+ * @author Michelle Hwang
+ */
+public class PgnReplay {
+
+	/**
+	 * Games the queue holds for each replaying thread.
+	 */
+	static final int QUEUE_PER_THREAD = 256;
+
+	/**
+	 * Number of errors printed; the rest are only counted.
+	 */
+	static final int MAX_ERRORS = 10;
+
+	/**
+	 * Marker put on the queue once for each replaying thread when every
+	 * file has been read.
+	 */
+	static final PgnGame END = new PgnGame("", 0, "");
+
+	/**
+	 * Result tags counted in the report, anything else counted as other.
+	 */
+	static final String[] RESULTS = {"1-0", "0-1", "1/2-1/2"};
+
+	/**
+	 * Replays the files given and prints the report.
+	 *
+	 * @param args Option "-threads N", then the PGN files
+	 */
+	public static void main(String[] args) {
+		int threads = Runtime.getRuntime().availableProcessors();
+		int i = 0;
+		for (; i + 1 < args.length && args[i].startsWith("-"); i += 2) {
+			if (args[i].equals("-threads")) {
+				threads = Integer.parseInt(args[i + 1]);
+			} else {
+				System.out.println("Unknown option " + args[i]);
+			}
+		}
+		if (i == args.length) {
+			System.out.println("Usage: java chess.PgnReplay [-threads N] file.pgn ...");
+			return;
+		}
+		List<String> files = new ArrayList<String>();
+		for (; i < args.length; i++) {
+			files.add(args[i]);
+		}
+
+		long begin = System.nanoTime();
+		Replayer[] replayers = replay(files, threads);
+		long elapsed = System.nanoTime() - begin;
+		report(files.size(), threads, replayers, elapsed);
+	}
+
+	/**
+	 * Replays every game of a set of files.
+	 *
+	 * @param files Names of the PGN files
+	 * @param threads Number of replaying threads
+	 * @return The replaying threads, finished, holding their counts
+	 */
+	static Replayer[] replay(List<String> files, int threads) {
+		final BlockingQueue<PgnGame> queue = new ArrayBlockingQueue<PgnGame>(threads * QUEUE_PER_THREAD);
+		AtomicInteger errors = new AtomicInteger();
+		Replayer[] replayers = new Replayer[threads];
+		for (int t = 0; t < threads; t++) {
+			replayers[t] = new Replayer(queue, errors);
+			replayers[t].start();
+		}
+
+		ExecutorService readers = Executors.newFixedThreadPool(Math.min(files.size(), threads));
+		for (final String file : files) {
+			readers.execute(new Runnable() {
+				public void run() {
+					read(file, queue);
+				}
+			});
+		}
+		readers.shutdown();
+		try {
+			readers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+			for (int t = 0; t < threads; t++) {
+				queue.put(END);
+			}
+			for (Replayer replayer : replayers) {
+				replayer.join();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return replayers;
+	}
+
+	/**
+	 * Reads the games of one file onto the queue, waiting whenever the
+	 * queue is full.
+	 *
+	 * @param file Name of the PGN file
+	 * @param queue Queue of games to replay
+	 */
+	static void read(String file, BlockingQueue<PgnGame> queue) {
+		try (PgnReader reader = PgnReader.open(file)) {
+			for (PgnGame game = reader.next(); game != null; game = reader.next()) {
+				queue.put(game);
+			}
+		} catch (IOException e) {
+			System.err.println("Cannot read " + file + ": " + e.getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Prints the totals of every replaying thread and the rates.
+	 *
+	 * @param files Number of files replayed
+	 * @param threads Number of replaying threads
+	 * @param replayers The finished replaying threads
+	 * @param elapsed Time taken in nanoseconds
+	 */
+	static void report(int files, int threads, Replayer[] replayers, long elapsed) {
+		long games = 0;
+		long plies = 0;
+		long failed = 0;
+		long[] results = new long[RESULTS.length + 1];
+		for (Replayer replayer : replayers) {
+			games += replayer.games;
+			plies += replayer.plies;
+			failed += replayer.failed;
+			for (int r = 0; r < results.length; r++) {
+				results[r] += replayer.results[r];
+			}
+		}
+
+		System.out.println(files + " files, " + threads + " threads");
+		System.out.println("games: " + games + ", " + failed + " with errors");
+		System.out.println("moves: " + plies);
+		System.out.println("results: " + RESULTS[0] + " " + results[0] + ", " + RESULTS[1] + " " + results[1]
+				+ ", " + RESULTS[2] + " " + results[2] + ", other " + results[RESULTS.length]);
+		System.out.println("time: " + (elapsed / 1000000) + " ms, " + Perft.nps(games, elapsed) + " games/s, "
+				+ Perft.nps(games * 3600, elapsed) + " games/hour, " + Perft.nps(plies, elapsed) + " moves/s");
+	}
+
+	/**
+	 * Replayer takes games off the queue and replays them on a board of
+	 * its own until it takes the END marker.
+	 */
+	static class Replayer extends Thread {
+
+		private final BlockingQueue<PgnGame> queue;
+		/** Errors printed so far by every replaying thread. */
+		private final AtomicInteger errors;
+		private final int[] moves = new int[256];
+		private final List<String> sans = new ArrayList<String>();
+
+		/** Games replayed, including those with errors. */
+		long games;
+		/** Moves made. */
+		long plies;
+		/** Games with a bad FEN or a move that could not be made. */
+		long failed;
+		/** Games of each result in RESULTS, then every other result. */
+		final long[] results = new long[RESULTS.length + 1];
+
+		/**
+		 * Creates a replaying thread.
+		 *
+		 * @param queue Queue of games to replay
+		 * @param errors Errors printed so far by every replaying thread
+		 */
+		Replayer(BlockingQueue<PgnGame> queue, AtomicInteger errors) {
+			super("replay");
+			this.queue = queue;
+			this.errors = errors;
+		}
+
+		/**
+		 * Replays games until the END marker is taken.
+		 */
+		public void run() {
+			try {
+				for (PgnGame game = queue.take(); game != END; game = queue.take()) {
+					replay(game);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		/**
+		 * Replays one game from its FEN tag, or from the starting position
+		 * if it has none, and counts it.
+		 *
+		 * @param game The game
+		 */
+		void replay(PgnGame game) {
+			games++;
+			String result = game.getTag("Result");
+			int r = 0;
+			while (r < RESULTS.length && !RESULTS[r].equals(result)) {
+				r++;
+			}
+			results[r]++;
+
+			String fen = game.getTag("FEN");
+			ChessBoard board;
+			try {
+				board = fen != null ? ChessBoard.fromFen(fen) : new ChessBoard();
+			} catch (RuntimeException e) {
+				error(game, "bad FEN " + fen);
+				return;
+			}
+
+			sans.clear();
+			game.getMoves(sans);
+			for (int i = 0; i < sans.size(); i++) {
+				int move = San.parse(board, sans.get(i), moves);
+				if (move == Move.NONE) {
+					error(game, "cannot play " + sans.get(i) + " at move " + board.getFullmoveNumber());
+					return;
+				}
+				board.makeMove(move);
+				plies++;
+			}
+		}
+
+		/**
+		 * Counts a game that could not be replayed, and prints why if not
+		 * too many errors have been printed yet.
+		 *
+		 * @param game The game
+		 * @param message What went wrong
+		 */
+		void error(PgnGame game, String message) {
+			failed++;
+			if (errors.getAndIncrement() < MAX_ERRORS) {
+				System.err.println(game + ": " + message);
+			}
+		}
+
+	}
+
+}
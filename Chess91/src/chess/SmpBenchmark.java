@@ -0,0 +1,118 @@
+package chess;
+
+import java.util.Arrays;
+import java.util.TreeSet;
+
+import board.ChessBoard;
+import board.Move;
+import engine.ParallelSearch;
+import engine.TranspositionTable;
+
+/**
+ * SmpBenchmark measures how the parallel search scales with threads.
+ * A few fixed positions are searched to the same depth with 1, 2, 4, 8
+ * and as many threads as there are processors, and the time taken to
+ * reach the depth is compared with the single thread time. Every thread
+ * count is run once untimed to warm up the JIT, then REPEATS times, and
+ * the median time is kept.
+ *
+ * <pre>
+ * java chess.SmpBenchmark                 depth 6, up to the processor count
+ * java chess.SmpBenchmark 7 32            depth 7, up to 32 threads
+ * </pre>
+ *
+ * @author Omar Khalil
+ * @author Michelle Hwang
+ */
+public class SmpBenchmark {
+
+	/**
+	 * Positions searched by every run.
+	 */
+	static final String[] FENS = {
+		Perft.START,
+		Perft.FENS[1],
+		Perft.FENS[5]
+	};
+
+	/**
+	 * Size of the transposition table of each run, in megabytes.
+	 */
+	static final int HASH = 64;
+
+	/**
+	 * Times each thread count is run; the median time is reported.
+	 */
+	static final int REPEATS = 3;
+
+	/**
+	 * Runs the benchmark and prints the time to depth of each thread count.
+	 *
+	 * @param args Optional depth and largest thread count
+	 */
+	public static void main(String[] args) {
+		int depth = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+		int cores = Runtime.getRuntime().availableProcessors();
+		int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : cores;
+
+		TreeSet<Integer> counts = new TreeSet<Integer>();
+		for (int threads : new int[] {1, 2, 4, 8, maxThreads}) {
+			if (threads <= maxThreads) {
+				counts.add(threads);
+			}
+		}
+
+		System.out.println("depth " + depth + ", " + cores + " processors");
+		// untimed pass, so that no thread count is measured before the JIT has compiled the search
+		for (int threads : counts) {
+			run(depth, threads, new StringBuilder());
+		}
+
+		long single = 0;
+		for (int threads : counts) {
+			long[][] runs = new long[REPEATS][];
+			StringBuilder moves = new StringBuilder();
+			for (int r = 0; r < REPEATS; r++) {
+				moves.setLength(0);
+				runs[r] = run(depth, threads, moves);
+			}
+			Arrays.sort(runs, (x, y) -> Long.compare(x[0], y[0]));
+			long elapsed = runs[REPEATS / 2][0];
+			long nodes = runs[REPEATS / 2][1];
+			if (threads == 1) {
+				single = elapsed;
+			}
+
+			System.out.println(threads + " threads: " + (elapsed / 1000000) + " ms, "
+					+ String.format("%.2f", (double) single / elapsed) + "x, "
+					+ nodes + " nodes, " + Perft.nps(nodes, elapsed) + " nodes/s, moves" + moves);
+		}
+	}
+
+	/**
+	 * Searches every position once with a number of threads.
+	 *
+	 * @param depth Depth searched to
+	 * @param threads Number of threads
+	 * @param moves Receives the best move of each position
+	 * @return The total time to depth in nanoseconds and the total nodes
+	 */
+	static long[] run(int depth, int threads, StringBuilder moves) {
+		long elapsed = 0;
+		long nodes = 0;
+		for (String fen : FENS) {
+			// every run starts from an empty table
+			ParallelSearch search = new ParallelSearch(new TranspositionTable(HASH), threads);
+			ChessBoard board = ChessBoard.fromFen(fen);
+
+			long begin = System.nanoTime();
+			int move = search.search(board, depth, 0);
+			elapsed += System.nanoTime() - begin;
+			nodes += search.getNodes();
+			search.shutdown();
+			moves.append(' ').append(Move.toString(move));
+		}
+		return new long[] {elapsed, nodes};
+	}
+
+}
@@ -0,0 +1,660 @@
+package chess;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import board.Bitboard;
+import board.Square;
+import engine.Tablebase;
+
+/**
+ * TablebaseGenerator computes the endgame tables read by
+ * engine.Tablebase, by retrograde analysis.
+ *
+ * Every placement of the table's pieces is first looked at once, going
+ * forward: placements that cannot happen are marked ILLEGAL, mates and
+ * stalemates are scored, and the moves of each position are counted.
+ * Captures and promotions leave the table, so their results are looked
+ * up in the smaller tables, which are generated first. This pass takes
+ * most of the time and is split over the threads.
+ *
+ * Then the results are spread backwards one ply at a time. Every
+ * position mated in d plies makes each position that can move into it
+ * a win in d + 1. Every position that wins in d plies takes one off the
+ * move count of each position that can move into it; a position whose
+ * moves all lead to a win for the opponent is lost, in d + 1 plies or
+ * later if a capture or promotion holds out longer. Positions never
+ * reached are drawn.
+ *
+ * Positions are worked on at their table index, with the board turned
+ * as Tablebase.index turns it; the positions a move leads to or comes
+ * from are turned back into the table the same way. A placement whose
+ * turned index is another one is marked ILLEGAL.
+ *
+ * Castling and en passant are left out.
+ *
+ * <pre>
+ * java chess.TablebaseGenerator tables KQK KRK KPK KBNK
+ * java chess.TablebaseGenerator -threads 8 tables all4
+ * </pre>
+ *
+ * @author Omar Khalil
+ * @author Michelle Hwang
+ */
+public class TablebaseGenerator {
+
+	/** Kinds a piece other than the king can be, strongest first. */
+	static final String PIECES = "QRBNP";
+
+	/** Kinds a pawn can be promoted to. */
+	static final int[] PROMOTIONS = {Bitboard.QUEEN, Bitboard.ROOK, Bitboard.BISHOP, Bitboard.KNIGHT};
+
+	/** Squares above the a1-h8 diagonal. */
+	static final long ABOVE_DIAGONAL = 0x7F3F1F0F07030100L;
+
+	/** Chunks the forward pass is cut into for each thread. */
+	static final int CHUNKS_PER_THREAD = 16;
+
+	final File dir;
+	final Tablebase tablebase;
+	final ExecutorService pool;
+	final int threads;
+
+	/** Pieces of the table being generated, in the order of its name. */
+	int n;
+	int[] codes = new int[Tablebase.MAX_PIECES];
+	/** Index of black's king in codes, which is the number of white pieces. */
+	int blackKing;
+	/** True if the table has pawns, so the board is only mirrored left to right. */
+	boolean pawns;
+
+	/** Value of each position, Tablebase.DRAW while not yet known. */
+	byte[] values;
+	/** Moves of each position that stay in the table and are not yet known to lose. */
+	byte[] counts;
+	/** Best value of the captures and promotions of each position plus 1, 0 if none. */
+	byte[] exits;
+	/** Largest value seen so far, so the backward passes know when to stop. */
+	int highest;
+
+	/**
+	 * Creates a generator writing into a directory.
+	 *
+	 * @param dir Directory of the tables
+	 * @param threads Number of threads of the forward pass
+	 */
+	TablebaseGenerator(File dir, int threads) {
+		this.dir = dir;
+		this.tablebase = new Tablebase(dir.getPath());
+		this.threads = threads;
+		this.pool = Executors.newFixedThreadPool(threads);
+	}
+
+	/**
+	 * Generates the tables named, and every smaller table they need,
+	 * skipping tables whose file is already there.
+	 *
+	 * @param args Option "-threads N", then the directory and the table
+	 * names; "all3" names every 3 piece table and "all4" every table
+	 * @throws IOException If a table cannot be written
+	 */
+	public static void main(String[] args) throws IOException {
+		int threads = Runtime.getRuntime().availableProcessors();
+		int i = 0;
+		for (; i + 1 < args.length && args[i].startsWith("-"); i += 2) {
+			if (args[i].equals("-threads")) {
+				threads = Integer.parseInt(args[i + 1]);
+			} else {
+				System.out.println("Unknown option " + args[i]);
+			}
+		}
+		if (i + 2 > args.length) {
+			System.out.println("Usage: java chess.TablebaseGenerator [-threads N] dir KQK|all3|all4 ...");
+			return;
+		}
+		File dir = new File(args[i]);
+		dir.mkdirs();
+
+		Set<String> order = new LinkedHashSet<String>();
+		for (int j = i + 1; j < args.length; j++) {
+			List<String> names = new ArrayList<String>();
+			if (args[j].equals("all3") || args[j].equals("all4")) {
+				for (char x : PIECES.toCharArray()) {
+					names.add("K" + x + "K");
+					if (args[j].equals("all4")) {
+						for (char y : PIECES.substring(PIECES.indexOf(x)).toCharArray()) {
+							names.add("K" + x + y + "K");
+							names.add("K" + x + "K" + y);
+						}
+					}
+				}
+			} else {
+				names.add(args[j]);
+			}
+			for (String name : names) {
+				addWithSmaller(canonical(name), order);
+			}
+		}
+
+		TablebaseGenerator generator = new TablebaseGenerator(dir, threads);
+		long begin = System.nanoTime();
+		try {
+			for (String name : order) {
+				if (new File(dir, Tablebase.fileName(name)).isFile()) {
+					System.out.println(name + ": already there");
+				} else {
+					generator.generate(name);
+				}
+			}
+		} finally {
+			generator.pool.shutdown();
+		}
+		System.out.println("total: " + (System.nanoTime() - begin) / 1000000 + " ms, " + threads + " threads");
+	}
+
+	/**
+	 * Returns the name of the table a set of pieces is kept in.
+	 *
+	 * @param name Pieces, ex. "KKQ"
+	 * @return Name of the table, ex. "KQK"
+	 */
+	static String canonical(String name) {
+		int[] c = new int[Tablebase.MAX_PIECES];
+		int count = Tablebase.codes(name, c);
+		if (!Tablebase.isCanonical(c, count)) {
+			for (int i = 0; i < count; i++) {
+				c[i] = (c[i] + 6) % 12;
+			}
+			Arrays.sort(c, 0, count);
+		}
+		return Tablebase.signature(c, count);
+	}
+
+	/**
+	 * Adds a table to the generation order after every table its
+	 * captures and promotions lead to.
+	 *
+	 * @param name Name of the table
+	 * @param order Tables in the order they are generated
+	 */
+	static void addWithSmaller(String name, Set<String> order) {
+		if (order.contains(name)) {
+			return;
+		}
+		int[] c = new int[Tablebase.MAX_PIECES];
+		int count = Tablebase.codes(name, c);
+		for (int i = 0; i < count; i++) {
+			int kind = c[i] % 6;
+			if (kind == Bitboard.KING) {
+				continue;
+			}
+			// captured
+			if (count > 3) {
+				StringBuilder rest = new StringBuilder();
+				for (int j = 0; j < count; j++) {
+					if (j != i) {
+						rest.append(name.charAt(j));
+					}
+				}
+				addWithSmaller(canonical(rest.toString()), order);
+			}
+			// promoted
+			if (kind == Bitboard.PAWN) {
+				for (int promotion : PROMOTIONS) {
+					addWithSmaller(canonical(name.substring(0, i) + "KQRBNP".charAt(promotion) + name.substring(i + 1)), order);
+				}
+			}
+		}
+		order.add(name);
+	}
+
+	/**
+	 * Computes one table and writes it.
+	 *
+	 * @param name Name of the table, canonical
+	 * @throws IOException If the table cannot be written
+	 */
+	void generate(String name) throws IOException {
+		long begin = System.nanoTime();
+		n = Tablebase.codes(name, codes);
+		blackKing = name.indexOf('K', 1);
+		pawns = name.indexOf('P') >= 0;
+		int size = Tablebase.size(codes, n);
+		values = new byte[size];
+		counts = new byte[size];
+		exits = new byte[size];
+		highest = 0;
+
+		forward(size);
+		for (int value = 1; value <= highest; value++) {
+			if (value + 1 >= Tablebase.ILLEGAL) {
+				throw new IllegalStateException(name + ": mate too far to store");
+			}
+			seed(size, value);
+			backward(size, value);
+		}
+		write(name);
+
+		long wins = 0;
+		long losses = 0;
+		long draws = 0;
+		for (byte b : values) {
+			int value = b & 0xFF;
+			if (Tablebase.isWin(value)) {
+				wins++;
+			} else if (Tablebase.isLoss(value)) {
+				losses++;
+			} else if (value == Tablebase.DRAW) {
+				draws++;
+			}
+		}
+		System.out.println(name + ": " + (wins + losses + draws) + " positions, " + wins + " wins, " + losses
+				+ " losses, " + draws + " draws" + (highest > 0 ? ", longest mate " + (highest - 1) + " plies" : "")
+				+ ", " + (System.nanoTime() - begin) / 1000000 + " ms");
+		values = counts = exits = null;
+	}
+
+	/**
+	 * Looks at every placement once, split over the threads.
+	 *
+	 * @param size Number of placements
+	 * @throws IOException If a smaller table a capture or promotion
+	 * leads to is missing
+	 */
+	void forward(final int size) throws IOException {
+		int chunks = threads * CHUNKS_PER_THREAD;
+		List<Future<Integer>> running = new ArrayList<Future<Integer>>();
+		for (int c = 0; c < chunks; c++) {
+			final int start = (int) ((long) size * c / chunks);
+			final int end = (int) ((long) size * (c + 1) / chunks);
+			running.add(pool.submit(() -> {
+				int[] squares = new int[Tablebase.MAX_PIECES];
+				int[] child = new int[Tablebase.MAX_PIECES];
+				int[] childSquares = new int[Tablebase.MAX_PIECES];
+				int most = 0;
+				for (int index = start; index < end; index++) {
+					int value = forward(index, squares, child, childSquares);
+					if (value != Tablebase.ILLEGAL) {
+						most = Math.max(most, value);
+					}
+				}
+				return most;
+			}));
+		}
+		for (Future<Integer> f : running) {
+			try {
+				highest = Math.max(highest, f.get());
+			} catch (Exception e) {
+				throw new IOException("Forward pass failed: " + e.getCause().getMessage(), e);
+			}
+		}
+	}
+
+	/**
+	 * Looks at one placement: marks it ILLEGAL if it cannot happen,
+	 * counts its moves that stay in the table, and looks up the best
+	 * of its captures and promotions.
+	 *
+	 * @param index Index of the placement
+	 * @param squares Scratch array for the squares
+	 * @param child Scratch array for the codes after a capture or promotion
+	 * @param childSquares Scratch array for the squares after one
+	 * @return The larger of the value found and the exit value, for
+	 * the backward passes
+	 */
+	int forward(int index, int[] squares, int[] child, int[] childSquares) {
+		int side = Tablebase.decode(index, codes, n, squares);
+		long occupied = 0;
+		for (int i = 0; i < n; i++) {
+			long bit = Bitboard.bit(squares[i]);
+			if ((occupied & bit) != 0) {
+				values[index] = (byte) Tablebase.ILLEGAL;
+				return Tablebase.ILLEGAL;
+			}
+			occupied |= bit;
+		}
+		// the same position turned over the diagonal, kept at the smaller index
+		if (Tablebase.index(side, squares, codes, n) != index) {
+			values[index] = (byte) Tablebase.ILLEGAL;
+			return Tablebase.ILLEGAL;
+		}
+		int king = side == Bitboard.WHITE ? 0 : blackKing;
+		int theirKing = side == Bitboard.WHITE ? blackKing : 0;
+		// the player who just moved cannot have left their king attacked
+		if (attacked(squares, -1, squares[theirKing], side, occupied)) {
+			values[index] = (byte) Tablebase.ILLEGAL;
+			return Tablebase.ILLEGAL;
+		}
+
+		boolean symmetric = isSymmetric(squares);
+		int count = 0;
+		int exit = -1;
+		for (int i = 0; i < n; i++) {
+			if (codes[i] / 6 != side) {
+				continue;
+			}
+			int from = squares[i];
+			long targets = targets(i, squares, side, occupied);
+			while (targets != 0) {
+				int to = Long.numberOfTrailingZeros(targets);
+				targets &= targets - 1;
+				int captured = -1;
+				for (int j = 0; j < n; j++) {
+					if (j != i && squares[j] == to) {
+						captured = j;
+					}
+				}
+
+				squares[i] = to;
+				boolean legal = !attacked(squares, captured, squares[king], side ^ 1,
+						(occupied & ~Bitboard.bit(from)) | Bitboard.bit(to));
+				boolean promotion = codes[i] % 6 == Bitboard.PAWN && (Square.rank(to) == 0 || Square.rank(to) == 7);
+				if (legal && captured < 0 && !promotion) {
+					// a move and its mirror image reach the same position
+					if (!symmetric || Square.rank(to) <= Square.file(to)) {
+						count++;
+					}
+				} else if (legal) {
+					for (int p = 0; p < (promotion ? PROMOTIONS.length : 1); p++) {
+						int m = 0;
+						for (int j = 0; j < n; j++) {
+							if (j != captured) {
+								child[m] = j == i && promotion ? side * 6 + PROMOTIONS[p] : codes[j];
+								childSquares[m++] = squares[j];
+							}
+						}
+						int value = tablebase.probe(child, childSquares, m, side ^ 1);
+						if (value < 0) {
+							throw new IllegalStateException("missing table for " + Tablebase.signature(child, m));
+						}
+						value = Tablebase.parent(value);
+						if (exit < 0 || better(value, exit)) {
+							exit = value;
+						}
+					}
+				}
+				squares[i] = from;
+			}
+		}
+
+		counts[index] = (byte) count;
+		exits[index] = (byte) (exit + 1);
+		if (count > 0) {
+			return Math.max(exit, 0);
+		}
+		int value;
+		if (exit >= 0) {
+			value = exit;
+		} else {
+			// no move at all: mated if in check, otherwise stalemate
+			value = attacked(squares, -1, squares[king], side ^ 1, occupied) ? 1 : Tablebase.DRAW;
+		}
+		values[index] = (byte) value;
+		return value;
+	}
+
+	/**
+	 * Resolves the positions whose best result is a capture or promotion
+	 * reaching mate in value - 1 plies: wins that nothing in the table
+	 * beats, and losses whose moves in the table have all been found to
+	 * lose sooner.
+	 *
+	 * @param size Number of placements
+	 * @param value Value being resolved
+	 */
+	void seed(int size, int value) {
+		for (int index = 0; index < size; index++) {
+			if (values[index] == Tablebase.DRAW && (exits[index] & 0xFF) == value + 1
+					&& (Tablebase.isWin(value) || counts[index] == 0)) {
+				values[index] = (byte) value;
+			}
+		}
+	}
+
+	/**
+	 * Spreads the positions of one value to the positions that can move
+	 * into them.
+	 *
+	 * @param size Number of placements
+	 * @param value Value being spread
+	 */
+	void backward(int size, int value) {
+		int[] squares = new int[Tablebase.MAX_PIECES];
+		for (int index = 0; index < size; index++) {
+			if ((values[index] & 0xFF) != value) {
+				continue;
+			}
+			// the player who moved into this position
+			int side = Tablebase.decode(index, codes, n, squares) ^ 1;
+			long occupied = 0;
+			for (int i = 0; i < n; i++) {
+				occupied |= Bitboard.bit(squares[i]);
+			}
+			// the moves from a square and from its mirror image are the same move, counted once
+			long mirrored = isSymmetric(squares) ? ABOVE_DIAGONAL : 0;
+			for (int i = 0; i < n; i++) {
+				if (codes[i] / 6 != side) {
+					continue;
+				}
+				int to = squares[i];
+				long origins = origins(i, to, side, occupied) & ~mirrored;
+				while (origins != 0) {
+					squares[i] = Long.numberOfTrailingZeros(origins);
+					origins &= origins - 1;
+					int before = Tablebase.index(side, squares, codes, n);
+					if (before < 0 || values[before] != Tablebase.DRAW) {
+						// already known, or ILLEGAL
+						continue;
+					}
+					if (Tablebase.isLoss(value)) {
+						resolve(before, value + 1);
+					} else if (--counts[before] == 0) {
+						// every move in the table loses; the longest loss is this one
+						int exit = (exits[before] & 0xFF) - 1;
+						if (exit < 0 || (Tablebase.isLoss(exit) && exit <= value + 1)) {
+							resolve(before, value + 1);
+						}
+						// a longer losing exit is seeded later, a drawn exit stays a draw
+					}
+				}
+				squares[i] = to;
+			}
+		}
+	}
+
+	/**
+	 * Sets the value of a position.
+	 *
+	 * @param index Index of the position
+	 * @param value Its value
+	 */
+	void resolve(int index, int value) {
+		values[index] = (byte) value;
+		highest = Math.max(highest, value);
+	}
+
+	/**
+	 * Returns the squares a piece can move to, captures included, not
+	 * yet checked for leaving the king attacked.
+	 *
+	 * @param i Index of the piece
+	 * @param squares Squares of every piece
+	 * @param side Color of the piece
+	 * @param occupied Bitboard of every piece
+	 * @return Bitboard of the destinations
+	 */
+	long targets(int i, int[] squares, int side, long occupied) {
+		int from = squares[i];
+		long own = 0;
+		for (int j = 0; j < n; j++) {
+			if (codes[j] / 6 == side) {
+				own |= Bitboard.bit(squares[j]);
+			}
+		}
+		if (codes[i] % 6 != Bitboard.PAWN) {
+			return attacks(codes[i], from, occupied) & ~own;
+		}
+		long targets = Bitboard.pawnAttacks(side, from) & occupied & ~own;
+		int step = side == Bitboard.WHITE ? 8 : -8;
+		int start = side == Bitboard.WHITE ? 1 : 6;
+		if ((occupied & Bitboard.bit(from + step)) == 0) {
+			targets |= Bitboard.bit(from + step);
+			if (Square.rank(from) == start && (occupied & Bitboard.bit(from + 2 * step)) == 0) {
+				targets |= Bitboard.bit(from + 2 * step);
+			}
+		}
+		return targets;
+	}
+
+	/**
+	 * Returns the squares a piece can have come from by a move that is
+	 * not a capture or promotion.
+	 *
+	 * @param i Index of the piece
+	 * @param to Square the piece is on
+	 * @param side Color of the piece
+	 * @param occupied Bitboard of every piece
+	 * @return Bitboard of the origins
+	 */
+	long origins(int i, int to, int side, long occupied) {
+		if (codes[i] % 6 != Bitboard.PAWN) {
+			return attacks(codes[i], to, occupied) & ~occupied;
+		}
+		int back = side == Bitboard.WHITE ? -8 : 8;
+		int from = to + back;
+		// a pawn never stands on its first rank, and moves 2 only from its second
+		if (Square.rank(from) == (side == Bitboard.WHITE ? 0 : 7) || (occupied & Bitboard.bit(from)) != 0) {
+			return 0;
+		}
+		long origins = Bitboard.bit(from);
+		if (Square.rank(from + back) == (side == Bitboard.WHITE ? 1 : 6) && (occupied & Bitboard.bit(from + back)) == 0) {
+			origins |= Bitboard.bit(from + back);
+		}
+		return origins;
+	}
+
+	/**
+	 * Checks if a square is attacked by a color.
+	 *
+	 * @param squares Squares of every piece
+	 * @param skip Index of a captured piece to leave out, or -1
+	 * @param square The square
+	 * @param byColor Attacking color
+	 * @param occupied Bitboard of every piece
+	 * @return True if attacked
+	 */
+	boolean attacked(int[] squares, int skip, int square, int byColor, long occupied) {
+		for (int j = 0; j < n; j++) {
+			if (j != skip && codes[j] / 6 == byColor
+					&& (attacks(codes[j], squares[j], occupied) & Bitboard.bit(square)) != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the squares a piece attacks.
+	 *
+	 * @param code Piece code
+	 * @param square Square of the piece
+	 * @param occupied Bitboard of every piece
+	 * @return Bitboard of the attacked squares
+	 */
+	static long attacks(int code, int square, long occupied) {
+		switch (code % 6) {
+		case Bitboard.KING:
+			return Bitboard.kingAttacks(square);
+		case Bitboard.QUEEN:
+			return Bitboard.queenAttacks(square, occupied);
+		case Bitboard.ROOK:
+			return Bitboard.rookAttacks(square, occupied);
+		case Bitboard.BISHOP:
+			return Bitboard.bishopAttacks(square, occupied);
+		case Bitboard.KNIGHT:
+			return Bitboard.knightAttacks(square);
+		default:
+			return Bitboard.pawnAttacks(code / 6, square);
+		}
+	}
+
+	/**
+	 * Checks if one value is better than another for the player to move:
+	 * a win beats a draw, which beats a loss; a shorter win and a
+	 * longer loss are better.
+	 *
+	 * @param a Table value
+	 * @param b Table value
+	 * @return True if a is better than b
+	 */
+	static boolean better(int a, int b) {
+		return rank(a) > rank(b);
+	}
+
+	/**
+	 * Orders values from worst to best for the player to move.
+	 *
+	 * @param value Table value
+	 * @return A number that is larger for better values
+	 */
+	static int rank(int value) {
+		if (value == Tablebase.DRAW) {
+			return 0;
+		}
+		return Tablebase.isWin(value) ? 1000 - value : value - 1000;
+	}
+
+	/**
+	 * Checks if a placement is the same when the board is turned over
+	 * the a1-h8 diagonal, which is only possible without pawns and with
+	 * every piece on the diagonal. Its table index is reached from both
+	 * a move and the mirror image of that move, and each pair must only
+	 * be counted once.
+	 *
+	 * @param squares Squares of every piece
+	 * @return True if every piece is on the a1-h8 diagonal of a table
+	 * without pawns
+	 */
+	boolean isSymmetric(int[] squares) {
+		if (pawns) {
+			return false;
+		}
+		for (int i = 0; i < n; i++) {
+			if (Square.rank(squares[i]) != Square.file(squares[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Writes the current table to its file.
+	 *
+	 * @param name Name of the table
+	 * @throws IOException If the file cannot be written
+	 */
+	void write(String name) throws IOException {
+		File file = new File(dir, Tablebase.fileName(name));
+		File temp = new File(dir, Tablebase.fileName(name) + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 1 << 16))) {
+			out.writeInt(Tablebase.MAGIC);
+			out.writeInt(n);
+			out.write(values);
+		}
+		if (!temp.renameTo(file)) {
+			throw new IOException("Cannot write " + file);
+		}
+	}
+
+}
@@ -0,0 +1,471 @@
+package chess;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import board.Bitboard;
+import board.ChessBoard;
+import board.Move;
+import engine.OpeningBook;
+import engine.ParallelSearch;
+import engine.Search;
+import engine.Tablebase;
+import engine.TranspositionTable;
+
+/**
+ * Uci lets the engine be driven by match runners and chess GUIs through
+ * the Universal Chess Interface, a line protocol on standard input and
+ * output. The supported commands are
+ *
+ * <pre>
+ * uci, isready, ucinewgame, quit
+ * setoption name Hash value MB
+ * setoption name Threads value N
+ * setoption name Book value FILE   opening book, or empty for none
+ * setoption name Tablebase value DIR   endgame tables, or empty for none
+ * position startpos [moves e2e4 e7e5 ...]
+ * position fen FEN [moves ...]
+ * go [depth N] [movetime MS] [wtime MS btime MS winc MS binc MS movestogo N] [infinite]
+ * stop
+ * bench [depth]
+ * </pre>
+ *
+ * The search runs on its own thread so that stop can be read while it
+ * runs. It prints one info line when it is done, then the best move.
+ *
+ * <pre>
+ * java chess.Uci
+ * java chess.Chess uci
+ * </pre>
+ *
+ * @author Omar Khalil
+ * @author Michelle Hwang
+ */
+public class Uci {
+
+	/** Transposition table size until changed by setoption, in megabytes. */
+	static final int DEFAULT_HASH = 16;
+
+	/** Largest Hash and Threads values offered. */
+	static final int MAX_HASH = 4096;
+	static final int MAX_THREADS = 256;
+
+	/**
+	 * Time kept back from every move for the protocol and the JVM, in
+	 * milliseconds, so that a move is not sent after the clock ran out.
+	 */
+	static final long OVERHEAD = 30;
+
+	/** Moves the remaining time is spread over when movestogo is not given. */
+	static final int MOVES_TO_GO = 30;
+
+	/** Depth each bench position is searched to when none is given. */
+	static final int BENCH_DEPTH = 5;
+
+	private final TranspositionTable tt = new TranspositionTable(DEFAULT_HASH);
+	private final ParallelSearch search = new ParallelSearch(tt, 1);
+	private final Random random = new Random();
+	/** Opening book, or null for none. */
+	private OpeningBook book;
+	private ChessBoard board = new ChessBoard();
+	private final int[] moves = new int[256];
+	/** Thread of the running search, or null. */
+	private Thread searching;
+	/**
+	 * Opened by stop. A "go infinite" search waits on it before printing
+	 * its best move, even when it has finished searching, since the
+	 * protocol allows bestmove only after stop in that mode.
+	 */
+	private CountDownLatch released = new CountDownLatch(0);
+
+	/**
+	 * Reads commands from standard input until quit or the end of input.
+	 *
+	 * @param args Not used
+	 * @throws IOException If standard input cannot be read
+	 */
+	public static void main(String[] args) throws IOException {
+		Uci uci = new Uci();
+		BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+		for (String line = in.readLine(); line != null; line = in.readLine()) {
+			if (!uci.command(line.trim())) {
+				break;
+			}
+		}
+		uci.stop();
+		uci.search.shutdown();
+	}
+
+	/**
+	 * Carries out one command. Unknown commands are ignored, as the
+	 * protocol asks, and so are commands with a malformed number.
+	 *
+	 * @param line Command line
+	 * @return False on quit, true otherwise
+	 */
+	boolean command(String line) {
+		try {
+			return run(line.split("\\s+"));
+		} catch (NumberFormatException e) {
+			System.out.println("info string bad number in " + line);
+			return true;
+		}
+	}
+
+	/**
+	 * Carries out the words of one command.
+	 *
+	 * @param words Words of the command line
+	 * @return False on quit, true otherwise
+	 * @throws NumberFormatException If a number of the command is
+	 * malformed, before anything is changed
+	 */
+	boolean run(String[] words) {
+		switch (words[0]) {
+		case "uci":
+			System.out.println("id name Chess91");
+			System.out.println("id author Omar Khalil, Michelle Hwang");
+			System.out.println("option name Hash type spin default " + DEFAULT_HASH + " min 1 max " + MAX_HASH);
+			System.out.println("option name Threads type spin default 1 min 1 max " + MAX_THREADS);
+			System.out.println("option name Book type string default <empty>");
+			System.out.println("option name Tablebase type string default <empty>");
+			System.out.println("uciok");
+			break;
+		case "isready":
+			System.out.println("readyok");
+			break;
+		case "ucinewgame":
+			waitForSearch();
+			tt.clear();
+			search.clear();
+			board = new ChessBoard();
+			break;
+		case "setoption":
+			waitForSearch();
+			setOption(words);
+			break;
+		case "position":
+			waitForSearch();
+			position(words);
+			break;
+		case "go":
+			waitForSearch();
+			go(words);
+			break;
+		case "stop":
+			stop();
+			break;
+		case "bench":
+			waitForSearch();
+			bench(words.length > 1 ? Math.max(1, Integer.parseInt(words[1])) : BENCH_DEPTH);
+			break;
+		case "quit":
+			return false;
+		default:
+			break;
+		}
+		return true;
+	}
+
+	/**
+	 * Changes the Hash, Threads, Book or Tablebase option.
+	 *
+	 * @param words Words of "setoption name NAME value VALUE"
+	 */
+	void setOption(String[] words) {
+		if (words.length < 4 || !words[1].equals("name") || !words[3].equals("value")) {
+			return;
+		}
+		// a file name may hold spaces
+		StringBuilder path = new StringBuilder();
+		for (int i = 4; i < words.length; i++) {
+			path.append(i > 4 ? " " : "").append(words[i]);
+		}
+		boolean empty = path.length() == 0 || path.toString().equals("<empty>");
+		if (words[2].equalsIgnoreCase("Tablebase")) {
+			search.setTablebase(empty ? null : new Tablebase(path.toString()));
+			return;
+		}
+		if (words[2].equalsIgnoreCase("Book")) {
+			book = null;
+			if (!empty) {
+				try {
+					book = OpeningBook.open(path.toString());
+				} catch (IOException e) {
+					System.out.println("info string cannot open book " + path + ": " + e.getMessage());
+				}
+			}
+			return;
+		}
+		if (words.length < 5) {
+			return;
+		}
+		int value = Integer.parseInt(words[4]);
+		if (words[2].equalsIgnoreCase("Hash")) {
+			tt.resize(Math.max(1, Math.min(MAX_HASH, value)));
+		} else if (words[2].equalsIgnoreCase("Threads")) {
+			search.setThreads(Math.max(1, Math.min(MAX_THREADS, value)));
+		}
+	}
+
+	/**
+	 * Returns the number following a keyword of a command.
+	 *
+	 * @param words Words of the command
+	 * @param i Index of the number
+	 * @return The word at i
+	 * @throws NumberFormatException If the command ends before it
+	 */
+	static String argument(String[] words, int i) {
+		if (i >= words.length) {
+			throw new NumberFormatException("missing number after " + words[i - 1]);
+		}
+		return words[i];
+	}
+
+	/**
+	 * Sets up the position to search: the starting position or a FEN,
+	 * followed by the moves played from it. The moves are made on the
+	 * board so that the search sees repetitions of earlier positions.
+	 *
+	 * @param words Words of the position command
+	 */
+	void position(String[] words) {
+		int i = 1;
+		if (words.length > 1 && words[1].equals("fen")) {
+			StringBuilder fen = new StringBuilder();
+			for (i = 2; i < words.length && !words[i].equals("moves"); i++) {
+				fen.append(words[i]).append(' ');
+			}
+			try {
+				board = ChessBoard.fromFen(fen.toString().trim());
+			} catch (IllegalArgumentException e) {
+				// the command is ignored, the position stays as it was
+				System.out.println("info string " + e.getMessage());
+				return;
+			}
+		} else {
+			board = new ChessBoard();
+			i = 2;
+		}
+		if (i < words.length && words[i].equals("moves")) {
+			for (i++; i < words.length; i++) {
+				int move = parseMove(board, words[i], moves);
+				if (move == Move.NONE) {
+					System.out.println("info string illegal move " + words[i]);
+					return;
+				}
+				board.makeMove(move);
+			}
+		}
+	}
+
+	/**
+	 * Starts a search of the current position on its own thread, or
+	 * answers at once with a book move if the position is in the book. A
+	 * clock is turned into a time for this move: the time left spread
+	 * over the moves to go, plus most of the increment.
+	 *
+	 * @param words Words of the go command
+	 */
+	void go(String[] words) {
+		boolean infinite = Arrays.asList(words).contains("infinite");
+		if (book != null && !infinite) {
+			int move = book.pick(board, random);
+			if (move != Move.NONE) {
+				System.out.println("info string book move");
+				System.out.println("bestmove " + Move.toString(move));
+				return;
+			}
+		}
+
+		int depth = Search.MAX_PLY;
+		long moveTime = 0;
+		long time = -1;
+		long inc = 0;
+		int movesToGo = MOVES_TO_GO;
+		boolean white = board.getSideToMove() == Bitboard.WHITE;
+		for (int i = 1; i < words.length; i++) {
+			switch (words[i]) {
+			case "depth":
+				depth = Math.max(1, Integer.parseInt(argument(words, ++i)));
+				break;
+			case "movetime":
+				moveTime = Math.max(1, Long.parseLong(argument(words, ++i)) - OVERHEAD);
+				break;
+			case "wtime":
+			case "btime":
+				if (words[i].equals(white ? "wtime" : "btime")) {
+					time = Long.parseLong(argument(words, i + 1));
+				}
+				i++;
+				break;
+			case "winc":
+			case "binc":
+				if (words[i].equals(white ? "winc" : "binc")) {
+					inc = Long.parseLong(argument(words, i + 1));
+				}
+				i++;
+				break;
+			case "movestogo":
+				movesToGo = Math.max(1, Integer.parseInt(argument(words, ++i)));
+				break;
+			default:
+				break;
+			}
+		}
+		if (time >= 0 && moveTime == 0) {
+			long budget = time / (movesToGo + 1) + inc * 3 / 4;
+			moveTime = Math.max(1, Math.min(budget, time - OVERHEAD) - OVERHEAD);
+		}
+
+		final int maxDepth = depth;
+		final long limit = moveTime;
+		final ChessBoard position = board;
+		final CountDownLatch release = new CountDownLatch(infinite ? 1 : 0);
+		released = release;
+		searching = new Thread(() -> {
+			long begin = System.nanoTime();
+			int move = search.search(position, maxDepth, limit);
+			info(System.nanoTime() - begin);
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			System.out.println("bestmove " + (move == Move.NONE ? "0000" : Move.toString(move)));
+		}, "uci search");
+		searching.start();
+	}
+
+	/**
+	 * Prints the info line of the finished search.
+	 *
+	 * @param elapsed Time the search took in nanoseconds
+	 */
+	void info(long elapsed) {
+		int score = search.getScore();
+		String value;
+		if (score > Search.MATE_BOUND) {
+			value = "mate " + (Search.MATE - score + 1) / 2;
+		} else if (score < -Search.MATE_BOUND) {
+			value = "mate -" + (Search.MATE + score) / 2;
+		} else {
+			value = "cp " + score;
+		}
+		long nodes = search.getNodes();
+		System.out.println("info depth " + search.getDepth() + " score " + value + " nodes " + nodes
+				+ " nps " + Perft.nps(nodes, elapsed) + " time " + elapsed / 1000000 + " hashfull " + tt.hashfull());
+	}
+
+	/**
+	 * Stops the running search, which then prints its best move, and
+	 * waits for it. The stop is repeated until the search thread ends,
+	 * in case it came before the search had started.
+	 */
+	void stop() {
+		if (searching == null) {
+			return;
+		}
+		released.countDown();
+		try {
+			while (searching.isAlive()) {
+				search.stop();
+				searching.join(10);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		searching = null;
+	}
+
+	/**
+	 * Waits for the running search, if any, to finish. A "go infinite"
+	 * search never finishes by itself, so a command that needs it out of
+	 * the way stops it instead.
+	 */
+	void waitForSearch() {
+		if (searching == null) {
+			return;
+		}
+		if (released.getCount() > 0) {
+			stop();
+			return;
+		}
+		try {
+			searching.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		searching = null;
+	}
+
+	/**
+	 * Searches each reference position to a fixed depth on a cleared
+	 * table and prints the total nodes and speed. With one thread the
+	 * node count only changes when the search does, so it marks the
+	 * version of the engine. The positions are then searched again with
+	 * move ordering off, to show how many nodes ordering saves.
+	 *
+	 * @param depth Depth each position is searched to
+	 */
+	void bench(int depth) {
+		long[] ordered = bench(depth, true);
+		long[] plain = bench(depth, false);
+		System.out.println("Nodes searched: " + ordered[0]);
+		System.out.println("Nodes/second: " + Perft.nps(ordered[0], ordered[1]));
+		System.out.println("Time: " + ordered[1] / 1000000 + " ms");
+		System.out.println("Nodes without move ordering: " + plain[0] + " (ordering saves "
+				+ (plain[0] - ordered[0]) * 100 / Math.max(1, plain[0]) + "%)");
+	}
+
+	/**
+	 * Searches each reference position to a fixed depth, starting each
+	 * on a cleared table and move order.
+	 *
+	 * @param depth Depth each position is searched to
+	 * @param ordering False to search with move ordering off
+	 * @return The total nodes and the total time in nanoseconds
+	 */
+	long[] bench(int depth, boolean ordering) {
+		long nodes = 0;
+		long elapsed = 0;
+		search.setOrdering(ordering);
+		for (String fen : Perft.FENS) {
+			tt.clear();
+			search.clear();
+			long begin = System.nanoTime();
+			search.search(ChessBoard.fromFen(fen), depth, 0);
+			elapsed += System.nanoTime() - begin;
+			nodes += search.getNodes();
+		}
+		tt.clear();
+		search.clear();
+		search.setOrdering(true);
+		return new long[] {nodes, elapsed};
+	}
+
+	/**
+	 * Returns the legal move written in UCI notation, as in "e2e4" or
+	 * "e7e8q".
+	 *
+	 * @param board ChessBoard object, with the mover to play
+	 * @param text Move in UCI notation
+	 * @param moves Buffer the legal moves are generated into
+	 * @return The packed move, or Move.NONE if it is not legal
+	 */
+	static int parseMove(ChessBoard board, String text, int[] moves) {
+		int count = board.generateLegalMoves(board.getSideToMove(), moves);
+		for (int i = 0; i < count; i++) {
+			if (Move.toString(moves[i]).equals(text)) {
+				return moves[i];
+			}
+		}
+		return Move.NONE;
+	}
+
+}
@@ -0,0 +1,122 @@
+package engine;
+
+import board.Bitboard;
+import board.ChessBoard;
+
+/**
+ * Evaluator scores a position in centipawns from the point of view of
+ * the player to move: the material of each side plus a bonus or
+ * penalty for the square each piece stands on.
+ *
+ * @author Omar Khalil
+ * @author Michelle Hwang
+ */
+public class Evaluator {
+
+	/** Value of each kind, indexed by Bitboard.KING to Bitboard.PAWN. */
+	public static final int[] VALUES = {0, 900, 500, 330, 320, 100};
+
+	/*
+	 * Square tables from white's point of view, written with a8 first so
+	 * they read like the board. A white piece on square s uses entry
+	 * s ^ 56, a black piece entry s.
+	 */
+
+	static final int[] KING_TABLE = {
+		-30, -40, -40, -50, -50, -40, -40, -30,
+		-30, -40, -40, -50, -50, -40, -40, -30,
+		-30, -40, -40, -50, -50, -40, -40, -30,
+		-30, -40, -40, -50, -50, -40, -40, -30,
+		-20, -30, -30, -40, -40, -30, -30, -20,
+		-10, -20, -20, -20, -20, -20, -20, -10,
+		 20,  20,   0,   0,   0,   0,  20,  20,
+		 20,  30,  10,   0,   0,  10,  30,  20
+	};
+
+	static final int[] QUEEN_TABLE = {
+		-20, -10, -10,  -5,  -5, -10, -10, -20,
+		-10,   0,   0,   0,   0,   0,   0, -10,
+		-10,   0,   5,   5,   5,   5,   0, -10,
+		 -5,   0,   5,   5,   5,   5,   0,  -5,
+		  0,   0,   5,   5,   5,   5,   0,  -5,
+		-10,   5,   5,   5,   5,   5,   0, -10,
+		-10,   0,   5,   0,   0,   0,   0, -10,
+		-20, -10, -10,  -5,  -5, -10, -10, -20
+	};
+
+	static final int[] ROOK_TABLE = {
+		  0,   0,   0,   0,   0,   0,   0,   0,
+		  5,  10,  10,  10,  10,  10,  10,   5,
+		 -5,   0,   0,   0,   0,   0,   0,  -5,
+		 -5,   0,   0,   0,   0,   0,   0,  -5,
+		 -5,   0,   0,   0,   0,   0,   0,  -5,
+		 -5,   0,   0,   0,   0,   0,   0,  -5,
+		 -5,   0,   0,   0,   0,   0,   0,  -5,
+		  0,   0,   0,   5,   5,   0,   0,   0
+	};
+
+	static final int[] BISHOP_TABLE = {
+		-20, -10, -10, -10, -10, -10, -10, -20,
+		-10,   0,   0,   0,   0,   0,   0, -10,
+		-10,   0,   5,  10,  10,   5,   0, -10,
+		-10,   5,   5,  10,  10,   5,   5, -10,
+		-10,   0,  10,  10,  10,  10,   0, -10,
+		-10,  10,  10,  10,  10,  10,  10, -10,
+		-10,   5,   0,   0,   0,   0,   5, -10,
+		-20, -10, -10, -10, -10, -10, -10, -20
+	};
+
+	static final int[] KNIGHT_TABLE = {
+		-50, -40, -30, -30, -30, -30, -40, -50,
+		-40, -20,   0,   0,   0,   0, -20, -40,
+		-30,   0,  10,  15,  15,  10,   0, -30,
+		-30,   5,  15,  20,  20,  15,   5, -30,
+		-30,   0,  15,  20,  20,  15,   0, -30,
+		-30,   5,  10,  15,  15,  10,   5, -30,
+		-40, -20,   0,   5,   5,   0, -20, -40,
+		-50, -40, -30, -30, -30, -30, -40, -50
+	};
+
+	static final int[] PAWN_TABLE = {
+		  0,   0,   0,   0,   0,   0,   0,   0,
+		 50,  50,  50,  50,  50,  50,  50,  50,
+		 10,  10,  20,  30,  30,  20,  10,  10,
+		  5,   5,  10,  25,  25,  10,   5,   5,
+		  0,   0,   0,  20,  20,   0,   0,   0,
+		  5,  -5, -10,   0,   0, -10,  -5,   5,
+		  5,  10,  10, -20, -20,  10,  10,   5,
+		  0,   0,   0,   0,   0,   0,   0,   0
+	};
+
+	/** Square tables indexed by kind. */
+	static final int[][] TABLES = {
+		KING_TABLE, QUEEN_TABLE, ROOK_TABLE, BISHOP_TABLE, KNIGHT_TABLE, PAWN_TABLE
+	};
+
+	/**
+	 * Scores a position for the player to move.
+	 *
+	 * @param board ChessBoard object
+	 * @return Score in centipawns, positive if the player to move is ahead
+	 */
+	public static int evaluate(ChessBoard board) {
+		int score = 0;
+		for (int kind = Bitboard.KING; kind <= Bitboard.PAWN; kind++) {
+			int[] table = TABLES[kind];
+			long white = board.getPieces(Bitboard.WHITE, kind);
+			while (white != 0) {
+				int square = Long.numberOfTrailingZeros(white);
+				white &= white - 1;
+				score += VALUES[kind] + table[square ^ 56];
+			}
+			long black = board.getPieces(Bitboard.BLACK, kind);
+			while (black != 0) {
+				int square = Long.numberOfTrailingZeros(black);
+				black &= black - 1;
+				score -= VALUES[kind] + table[square];
+			}
+		}
+		return board.getSideToMove() == Bitboard.WHITE ? score : -score;
+	}
+
+}
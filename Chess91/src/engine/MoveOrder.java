@@ -0,0 +1,265 @@
+package engine;
+
+import java.util.Arrays;
+
+import board.Bitboard;
+import board.ChessBoard;
+import board.Move;
+
+/**
+ * MoveOrder puts the moves of a position in the order the search tries
+ * them. Alpha-beta cuts off the rest of a node as soon as one move is
+ * good enough, so the sooner the best move comes the fewer nodes are
+ * searched; the generator itself lists moves in board order.
+ *
+ * Each move gets a score packed above its move bits, so that the moves
+ * can be picked highest first without a separate array:
+ *
+ * <pre>
+ * HASH      best move stored in the transposition table
+ * CAPTURE   captures and queen promotions, most valuable victim
+ *           first, then least valuable attacker (MVV-LVA)
+ * KILLER    the two quiet moves that last cut off at the same ply
+ * COUNTER   the quiet move that last cut off after the opponent's move
+ * QUIET     other quiet moves, by how often and how deep they cut off
+ * 0         captures that lose material (StaticExchange), by MVV-LVA
+ * </pre>
+ *
+ * Killers, counter-moves and history are learned as the search goes and
+ * kept in int arrays; each Search has its own MoveOrder.
+ *
+ * @author Omar Khalil
+ * @author Michelle Hwang
+ */
+public class MoveOrder {
+
+	/** Bits of a scored move that hold the move; the score sits above. */
+	static final int SCORE_SHIFT = 20;
+	static final int MOVE_MASK = (1 << SCORE_SHIFT) - 1;
+
+	/** Scores of the move classes, highest searched first. */
+	static final int HASH = 2047;
+	static final int CAPTURE = 1536;
+	static final int KILLER = 1400;
+	static final int COUNTER = 1398;
+	static final int QUIET = 64;
+
+	/**
+	 * History entries are halved once one passes this, which keeps
+	 * QUIET plus their scores below the counter-move's and lets old
+	 * results fade.
+	 */
+	static final int HISTORY_MAX = (1 << 14) - 1;
+	static final int HISTORY_SHIFT = 4;
+
+	/** Two killer moves per ply, the newest first. */
+	final int[][] killers = new int[Search.MAX_PLY][2];
+	/** History by side to move and from and to squares (butterfly board). */
+	final int[][] history = new int[2][64 * 64];
+	/** Counter-move by piece code and to square of the opponent's move. */
+	final int[][] counters = new int[12][64];
+
+	/** Scratch array of the static exchanges. */
+	final int[] gain = new int[StaticExchange.MAX_CAPTURES];
+
+	/** False to order the hash move only, for measuring what ordering saves. */
+	boolean enabled = true;
+
+	/**
+	 * Forgets everything learned, as for a new game.
+	 */
+	public void clear() {
+		for (int[] k : killers) {
+			Arrays.fill(k, Move.NONE);
+		}
+		for (int[] h : history) {
+			Arrays.fill(h, 0);
+		}
+		for (int[] c : counters) {
+			Arrays.fill(c, Move.NONE);
+		}
+	}
+
+	/**
+	 * Gets ready for a new search of another position: killers belong
+	 * to plies of the last tree and are dropped, history is halved.
+	 */
+	void newSearch() {
+		for (int[] k : killers) {
+			Arrays.fill(k, Move.NONE);
+		}
+		for (int[] h : history) {
+			for (int i = 0; i < h.length; i++) {
+				h[i] >>= 1;
+			}
+		}
+	}
+
+	/**
+	 * Scores every move of a buffer, packing the score above the move.
+	 *
+	 * @param board ChessBoard object
+	 * @param buffer Move buffer
+	 * @param count Number of moves in the buffer
+	 * @param hashMove Move from the transposition table, or Move.NONE
+	 * @param ply Distance from the root
+	 * @param previous Opponent's move that led here, or Move.NONE
+	 */
+	void score(ChessBoard board, int[] buffer, int count, int hashMove, int ply, int previous) {
+		if (!enabled) {
+			for (int i = 0; i < count; i++) {
+				if (buffer[i] == hashMove) {
+					buffer[i] |= HASH << SCORE_SHIFT;
+				}
+			}
+			return;
+		}
+		int side = board.getSideToMove();
+		int[] h = history[side];
+		int killer1 = killers[ply][0];
+		int killer2 = killers[ply][1];
+		int counter = previous == Move.NONE ? Move.NONE
+				: counters[board.getCode(Move.to(previous))][Move.to(previous)];
+		for (int i = 0; i < count; i++) {
+			int move = buffer[i];
+			int score;
+			if (move == hashMove) {
+				score = HASH;
+			} else if (!isQuiet(move)) {
+				score = (StaticExchange.isLosing(board, move, gain) ? 0 : CAPTURE) + captureScore(board, move);
+			} else if (move == killer1) {
+				score = KILLER;
+			} else if (move == killer2) {
+				score = KILLER - 1;
+			} else if (move == counter) {
+				score = COUNTER;
+			} else {
+				score = QUIET + (h[Move.from(move) << 6 | Move.to(move)] >> HISTORY_SHIFT);
+			}
+			buffer[i] = move | (score << SCORE_SHIFT);
+		}
+	}
+
+	/**
+	 * Learns from a quiet move that cut off: it becomes the first
+	 * killer of its ply and the counter to the opponent's move, its
+	 * history goes up, and the history of the quiet moves searched
+	 * before it goes down.
+	 *
+	 * @param board ChessBoard object, before the move
+	 * @param buffer Move buffer, the moves searched so far at the front
+	 * @param index Position of the move in the buffer
+	 * @param depth Remaining depth of the node
+	 * @param ply Distance from the root
+	 * @param previous Opponent's move that led here, or Move.NONE
+	 */
+	void cutoff(ChessBoard board, int[] buffer, int index, int depth, int ply, int previous) {
+		int move = buffer[index] & MOVE_MASK;
+		if (!enabled || !isQuiet(move)) {
+			return;
+		}
+		int[] k = killers[ply];
+		if (k[0] != move) {
+			k[1] = k[0];
+			k[0] = move;
+		}
+		if (previous != Move.NONE) {
+			counters[board.getCode(Move.to(previous))][Move.to(previous)] = move;
+		}
+
+		int[] h = history[board.getSideToMove()];
+		int bonus = depth * depth;
+		for (int i = 0; i < index; i++) {
+			int tried = buffer[i] & MOVE_MASK;
+			if (isQuiet(tried)) {
+				int slot = Move.from(tried) << 6 | Move.to(tried);
+				h[slot] = Math.max(0, h[slot] - bonus);
+			}
+		}
+		int slot = Move.from(move) << 6 | Move.to(move);
+		h[slot] += bonus;
+		if (h[slot] > HISTORY_MAX) {
+			for (int i = 0; i < h.length; i++) {
+				h[i] >>= 1;
+			}
+		}
+	}
+
+	/**
+	 * Keeps only the captures of a move buffer that do not lose material,
+	 * packing them at the front with their MVV-LVA score above the move
+	 * bits. Quiescence searches these only: a losing capture is pruned
+	 * after a static exchange, without searching the replies.
+	 *
+	 * @param board ChessBoard object
+	 * @param buffer Move buffer
+	 * @param count Number of moves in the buffer
+	 * @return The number of captures kept
+	 */
+	int captures(ChessBoard board, int[] buffer, int count) {
+		int kept = 0;
+		for (int i = 0; i < count; i++) {
+			int move = buffer[i];
+			if (Move.isCapture(move) && !StaticExchange.isLosing(board, move, gain)) {
+				buffer[kept++] = move | (captureScore(board, move) << SCORE_SHIFT);
+			}
+		}
+		return kept;
+	}
+
+	/**
+	 * Scores a capture or promotion by the victim, then by the attacker.
+	 * Kinds run from king (0) to pawn (5), so 5 - kind ranks the victims
+	 * from the queen down and the kind itself ranks the attackers from
+	 * the pawn down.
+	 *
+	 * @param board ChessBoard object, before the move
+	 * @param move Packed move
+	 * @return A score from 0 to 47
+	 */
+	static int captureScore(ChessBoard board, int move) {
+		int victim = 5;
+		if (Move.isCapture(move)) {
+			victim = Move.isEnPassant(move) ? Bitboard.PAWN : board.getCode(Move.to(move)) % 6;
+		}
+		if (Move.promotion(move) == Bitboard.QUEEN) {
+			// a queen promotion gains about what taking a queen does
+			victim = Math.min(victim, Bitboard.QUEEN);
+		}
+		return (5 - victim) * 8 + board.getCode(Move.from(move)) % 6;
+	}
+
+	/**
+	 * Checks if a move is quiet: neither a capture nor a queen
+	 * promotion. Under-promotions are ordered as quiet moves.
+	 *
+	 * @param move Packed move
+	 * @return True if quiet
+	 */
+	static boolean isQuiet(int move) {
+		return !Move.isCapture(move) && Move.promotion(move) != Bitboard.QUEEN;
+	}
+
+	/**
+	 * Swaps the highest scored move left in a buffer into place and
+	 * returns it without its score.
+	 *
+	 * @param buffer Move buffer of scored moves
+	 * @param index Position to fill
+	 * @param count Number of moves in the buffer
+	 * @return The move, without its score
+	 */
+	static int pickBest(int[] buffer, int index, int count) {
+		int best = index;
+		for (int i = index + 1; i < count; i++) {
+			if (buffer[i] > buffer[best]) {
+				best = i;
+			}
+		}
+		int move = buffer[best];
+		buffer[best] = buffer[index];
+		buffer[index] = move;
+		return move & MOVE_MASK;
+	}
+
+}
@@ -0,0 +1,232 @@
+package engine;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Random;
+
+import board.ChessBoard;
+import board.Move;
+
+/**
+ * OpeningBook holds moves known to be good in the opening, by position
+ * hash. The book is a file of fixed-size entries sorted by hash, read
+ * through a memory mapping: opening a book reads only its header, the
+ * operating system pages entries in as lookups touch them, and nothing
+ * is copied into the Java heap however large the book is. A lookup is
+ * a binary search over the entries.
+ *
+ * <pre>
+ * header  int magic "C91B", int version, long number of entries
+ * entry   long position hash, int packed board.Move, int weight
+ * </pre>
+ *
+ * Entries of one position are next to each other, heaviest first. A
+ * book is written by chess.BookBuilder.
+ *
+ * @author Omar Khalil
+ * @author Michelle Hwang
+ */
+public class OpeningBook {
+
+	/** First int of every book file, "C91B". */
+	public static final int MAGIC = 0x43393142;
+	/** Version of the file format. */
+	public static final int VERSION = 1;
+
+	/** Bytes before the first entry. */
+	public static final int HEADER = 16;
+	/** Bytes per entry. */
+	public static final int ENTRY = 16;
+
+	private final MappedByteBuffer entries;
+	private final int count;
+
+	/**
+	 * Creates a book of mapped entries.
+	 *
+	 * @param entries The whole file, mapped
+	 * @param count Number of entries
+	 */
+	OpeningBook(MappedByteBuffer entries, int count) {
+		this.entries = entries;
+		this.count = count;
+	}
+
+	/**
+	 * Maps a book file.
+	 *
+	 * @param path Name of the file
+	 * @return The book
+	 * @throws IOException If the file cannot be read or is not a book
+	 */
+	public static OpeningBook open(String path) throws IOException {
+		try (RandomAccessFile file = new RandomAccessFile(path, "r");
+				FileChannel channel = file.getChannel()) {
+			long size = channel.size();
+			if (size < HEADER || size > Integer.MAX_VALUE) {
+				throw new IOException(path + " is not a book");
+			}
+			// the mapping stays valid after the channel is closed
+			MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			long count = map.getLong(8);
+			if (map.getInt(0) != MAGIC || map.getInt(4) != VERSION || HEADER + count * ENTRY != size) {
+				throw new IOException(path + " is not a book");
+			}
+			return new OpeningBook(map, (int) count);
+		}
+	}
+
+	/**
+	 * Returns the number of entries.
+	 *
+	 * @return The entry count
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Looks up the book moves of a position.
+	 *
+	 * @param hash Hash of the position
+	 * @param moves Filled with the packed moves, heaviest first
+	 * @param weights Filled with the weight of each move
+	 * @return The number of moves, at most the length of moves
+	 */
+	public int getMoves(long hash, int[] moves, int[] weights) {
+		// first entry whose hash is not below the position's
+		int low = 0;
+		int high = count;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (hashAt(mid) < hash) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+
+		int n = 0;
+		for (int i = low; i < count && n < moves.length && hashAt(i) == hash; i++) {
+			int offset = HEADER + i * ENTRY;
+			moves[n] = entries.getInt(offset + 8);
+			weights[n] = entries.getInt(offset + 12);
+			n++;
+		}
+		return n;
+	}
+
+	/**
+	 * Picks a book move of a position at random, each move as likely
+	 * as its weight. Moves that are not legal on the board, which can
+	 * only come from two positions sharing a hash, are passed over.
+	 *
+	 * @param board ChessBoard object
+	 * @param random Source of the random choice
+	 * @return The packed move, or Move.NONE if the position is not in
+	 * the book
+	 */
+	public int pick(ChessBoard board, Random random) {
+		int[] moves = new int[64];
+		int[] weights = new int[64];
+		int n = getMoves(board.getHash(), moves, weights);
+		if (n == 0) {
+			return Move.NONE;
+		}
+
+		int[] legal = board.getMoveBuffer();
+		int count = board.generateLegalMoves(board.getSideToMove(), legal);
+		long total = 0;
+		for (int i = 0; i < n; i++) {
+			if (!contains(legal, count, moves[i])) {
+				weights[i] = 0;
+			}
+			total += weights[i];
+		}
+		if (total == 0) {
+			return Move.NONE;
+		}
+
+		long r = (long) (random.nextDouble() * total);
+		for (int i = 0; i < n; i++) {
+			r -= weights[i];
+			if (r < 0) {
+				return moves[i];
+			}
+		}
+		return moves[0];
+	}
+
+	/**
+	 * Writes a book file. The entries must already be sorted by hash,
+	 * and by weight from heaviest within a hash.
+	 *
+	 * @param path Name of the file
+	 * @param hashes Position hash of each entry
+	 * @param moves Packed move of each entry
+	 * @param weights Weight of each entry
+	 * @param count Number of entries
+	 * @throws IOException If the file cannot be written
+	 */
+	public static void write(String path, long[] hashes, int[] moves, int[] weights, int count) throws IOException {
+		try (RandomAccessFile file = new RandomAccessFile(path, "rw");
+				FileChannel channel = file.getChannel()) {
+			file.setLength(0);
+			ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+			buffer.putInt(MAGIC).putInt(VERSION).putLong(count);
+			for (int i = 0; i < count; i++) {
+				if (buffer.remaining() < ENTRY) {
+					flush(channel, buffer);
+				}
+				buffer.putLong(hashes[i]).putInt(moves[i]).putInt(weights[i]);
+			}
+			flush(channel, buffer);
+		}
+	}
+
+	/**
+	 * Writes out everything put into a buffer and empties it.
+	 *
+	 * @param channel File written to
+	 * @param buffer Buffer being filled
+	 * @throws IOException If the file cannot be written
+	 */
+	private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * Returns the hash of an entry.
+	 *
+	 * @param index Entry index
+	 * @return The position hash
+	 */
+	private long hashAt(int index) {
+		return entries.getLong(HEADER + index * ENTRY);
+	}
+
+	/**
+	 * Checks if a move is among the first count moves of a buffer.
+	 *
+	 * @param moves Move buffer
+	 * @param count Number of moves in the buffer
+	 * @param move Packed move
+	 * @return True if found, false otherwise
+	 */
+	private static boolean contains(int[] moves, int count, int move) {
+		for (int i = 0; i < count; i++) {
+			if (moves[i] == move) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,204 @@
+package engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import board.ChessBoard;
+
+/**
+ * ParallelSearch runs a Search on several threads at once (Lazy SMP).
+ * Every thread searches the same root on its own copy of the board,
+ * and they share one transposition table, so each thread starts from
+ * the results the others have already stored. Every other helper
+ * searches one ply deeper than the main thread, which spreads the
+ * threads over different parts of the tree. The main thread runs on
+ * the caller's thread, decides when to stop, and its move is the one
+ * returned.
+ *
+ * @author Omar Khalil
+ * @author Michelle Hwang
+ */
+public class ParallelSearch {
+
+	TranspositionTable tt;
+	Search main;
+	Search[] helpers = new Search[0];
+	ExecutorService pool;
+	Tablebase tablebase;
+
+	/**
+	 * Creates a parallel search.
+	 *
+	 * @param tt Transposition table shared by every thread
+	 * @param threads Number of threads, the caller's included, at least 1
+	 */
+	public ParallelSearch(TranspositionTable tt, int threads) {
+		this.tt = tt;
+		this.main = new Search(tt);
+		setThreads(threads);
+	}
+
+	/**
+	 * Changes the number of threads used by the next searches.
+	 *
+	 * @param threads Number of threads, the caller's included, at least 1
+	 */
+	public void setThreads(int threads) {
+		if (pool != null) {
+			pool.shutdownNow();
+			pool = null;
+		}
+		helpers = new Search[Math.max(1, threads) - 1];
+		for (int i = 0; i < helpers.length; i++) {
+			helpers[i] = new Search(tt);
+			helpers[i].depthOffset = i % 2 == 0 ? 1 : 0;
+			helpers[i].tablebase = tablebase;
+			helpers[i].order.enabled = main.order.enabled;
+		}
+		if (helpers.length > 0) {
+			pool = Executors.newFixedThreadPool(helpers.length, r -> {
+				Thread t = new Thread(r, "search helper");
+				t.setDaemon(true);
+				return t;
+			});
+		}
+	}
+
+	/**
+	 * Sets the endgame tables every thread looks up.
+	 *
+	 * @param tablebase The tables, or null to search every position
+	 */
+	public void setTablebase(Tablebase tablebase) {
+		this.tablebase = tablebase;
+		main.setTablebase(tablebase);
+		for (Search helper : helpers) {
+			helper.setTablebase(tablebase);
+		}
+	}
+
+	/**
+	 * Forgets the move order learned by earlier searches on every
+	 * thread, as for a new game.
+	 */
+	public void clear() {
+		main.clear();
+		for (Search helper : helpers) {
+			helper.clear();
+		}
+	}
+
+	/**
+	 * Turns move ordering on or off on every thread, see
+	 * Search.setOrdering.
+	 *
+	 * @param ordering False to turn ordering off
+	 */
+	public void setOrdering(boolean ordering) {
+		main.setOrdering(ordering);
+		for (Search helper : helpers) {
+			helper.setOrdering(ordering);
+		}
+	}
+
+	/**
+	 * Returns the number of threads used by a search.
+	 *
+	 * @return The number of threads, the caller's included
+	 */
+	public int getThreads() {
+		return helpers.length + 1;
+	}
+
+	/**
+	 * Searches a position on every thread and returns the main thread's
+	 * best move. The helpers are stopped and waited for before this
+	 * returns.
+	 *
+	 * @param board ChessBoard object, left unchanged
+	 * @param maxDepth Deepest depth to search, at least 1
+	 * @param moveTime Time budget in milliseconds, or 0 for no limit
+	 * @return The best move, or Move.NONE if the player has no legal move
+	 */
+	public int search(ChessBoard board, int maxDepth, long moveTime) {
+		tt.newSearch();
+		main.stopped = false;
+
+		List<Future<Integer>> running = new ArrayList<Future<Integer>>();
+		for (Search helper : helpers) {
+			ChessBoard copy = board.copy();
+			helper.stopped = false;
+			running.add(pool.submit(() -> helper.iterate(copy, Search.MAX_PLY, 0)));
+		}
+
+		int move = main.iterate(board, maxDepth, moveTime);
+
+		for (Search helper : helpers) {
+			helper.stop();
+		}
+		for (Future<Integer> f : running) {
+			try {
+				f.get();
+			} catch (Exception e) {
+				// a helper's result is not needed, only that it has finished
+			}
+		}
+		return move;
+	}
+
+	/**
+	 * Makes the search return as soon as possible. Safe to call from
+	 * another thread.
+	 */
+	public void stop() {
+		main.stop();
+		for (Search helper : helpers) {
+			helper.stop();
+		}
+	}
+
+	/**
+	 * Returns the number of nodes visited by every thread in the last
+	 * search.
+	 *
+	 * @return The node count
+	 */
+	public long getNodes() {
+		long nodes = main.getNodes();
+		for (Search helper : helpers) {
+			nodes += helper.getNodes();
+		}
+		return nodes;
+	}
+
+	/**
+	 * Returns the score of the main thread's last completed depth.
+	 *
+	 * @return Score in centipawns for the player to move
+	 */
+	public int getScore() {
+		return main.getScore();
+	}
+
+	/**
+	 * Returns the deepest depth the main thread completed.
+	 *
+	 * @return The depth
+	 */
+	public int getDepth() {
+		return main.getDepth();
+	}
+
+	/**
+	 * Stops the helper threads for good.
+	 */
+	public void shutdown() {
+		if (pool != null) {
+			pool.shutdownNow();
+		}
+	}
+
+}
@@ -0,0 +1,390 @@
+package engine;
+
+import board.ChessBoard;
+import board.Move;
+
+/**
+ * Search finds the best move of a position with a negamax alpha-beta
+ * search. It deepens one ply at a time until the depth or time budget
+ * runs out, so that a move is always ready and the transposition table
+ * and the best move of the previous depth make the next one faster.
+ * Captures are searched past the last ply (quiescence) so that scores
+ * are not taken in the middle of an exchange.
+ *
+ * A Search keeps its own move buffers and counters and is used by one
+ * thread at a time. The transposition table may be shared.
+ *
+ * @author Omar Khalil
+ * @author Michelle Hwang
+ */
+public class Search {
+
+	/** Score of a checkmate at the root; mates further away score less. */
+	public static final int MATE = 30000;
+
+	/** Scores above this are mates. */
+	public static final int MATE_BOUND = MATE - 1000;
+
+	/** Bound on scores, above any mate. */
+	static final int INFINITY = 32000;
+
+	/** Deepest ply the search can reach, quiescence included. */
+	public static final int MAX_PLY = 128;
+
+	/** Nodes searched between two looks at the clock. */
+	static final int CHECK_INTERVAL = 2048;
+
+	TranspositionTable tt;
+	/** Endgame tables looked up once few pieces are left, or null. */
+	Tablebase tablebase;
+	/** Scratch arrays of the table lookups. */
+	int[] probeCodes = new int[Tablebase.MAX_PIECES];
+	int[] probeSquares = new int[Tablebase.MAX_PIECES];
+	int[][] moves = new int[MAX_PLY][256];
+	MoveOrder order = new MoveOrder();
+	/** Move searched at each ply of the current line, for counter-moves. */
+	int[] played = new int[MAX_PLY];
+
+	long nodes;
+	long deadline;
+	volatile boolean stopped;
+
+	/**
+	 * Plies added to every depth of the iterative deepening. Helper
+	 * threads of a parallel search use 1 on every other thread, so
+	 * that the threads do not all search the same depth at once.
+	 */
+	int depthOffset;
+
+	int rootMove;
+	int bestMove;
+	int bestScore;
+	int completedDepth;
+
+	/**
+	 * Creates a search using the given transposition table.
+	 *
+	 * @param tt Transposition table, possibly shared with other searches
+	 */
+	public Search(TranspositionTable tt) {
+		this.tt = tt;
+	}
+
+	/**
+	 * Searches a position and returns the best move found. The search
+	 * stops after the given depth, after the given time, or when stop
+	 * is called, whichever comes first; the move of the last completed
+	 * depth is returned.
+	 *
+	 * @param board ChessBoard object, left unchanged
+	 * @param maxDepth Deepest depth to search, at least 1
+	 * @param moveTime Time budget in milliseconds, or 0 for no limit
+	 * @return The best move, or Move.NONE if the player has no legal move
+	 */
+	public int search(ChessBoard board, int maxDepth, long moveTime) {
+		stopped = false;
+		tt.newSearch();
+		return iterate(board, maxDepth, moveTime);
+	}
+
+	/**
+	 * Runs the iterative deepening of search without starting a new
+	 * table generation or clearing a previous stop, so that the threads
+	 * of a parallel search share one generation and can be stopped
+	 * before they start.
+	 *
+	 * @param board ChessBoard object, left unchanged
+	 * @param maxDepth Deepest depth to search, at least 1
+	 * @param moveTime Time budget in milliseconds, or 0 for no limit
+	 * @return The best move, or Move.NONE if the player has no legal move
+	 */
+	int iterate(ChessBoard board, int maxDepth, long moveTime) {
+		nodes = 0;
+		deadline = moveTime > 0 ? System.nanoTime() + moveTime * 1000000L : Long.MAX_VALUE;
+		bestMove = Move.NONE;
+		bestScore = 0;
+		completedDepth = 0;
+		order.newSearch();
+
+		for (int depth = 1; depth <= Math.min(maxDepth, MAX_PLY - 1 - depthOffset); depth++) {
+			rootMove = Move.NONE;
+			int score = negamax(board, depth + depthOffset, -INFINITY, INFINITY, 0);
+			if (stopped) {
+				break;
+			}
+			bestScore = score;
+			bestMove = rootMove;
+			completedDepth = depth + depthOffset;
+			// no need to look further once a forced mate is found
+			if (Math.abs(score) > MATE_BOUND) {
+				break;
+			}
+		}
+
+		// the first depth was cut short: take any legal move rather than none
+		if (bestMove == Move.NONE) {
+			bestMove = firstLegalMove(board);
+		}
+		return bestMove;
+	}
+
+	/**
+	 * Sets the endgame tables to look up instead of searching positions
+	 * with few pieces.
+	 *
+	 * @param tablebase The tables, or null to search every position
+	 */
+	public void setTablebase(Tablebase tablebase) {
+		this.tablebase = tablebase;
+	}
+
+	/**
+	 * Forgets the move order learned by earlier searches, as for a new
+	 * game.
+	 */
+	public void clear() {
+		order.clear();
+	}
+
+	/**
+	 * Turns move ordering on or off. Off, only the move from the
+	 * transposition table is searched first and the rest come in
+	 * generator order; this is for measuring what ordering saves.
+	 *
+	 * @param ordering False to turn ordering off
+	 */
+	public void setOrdering(boolean ordering) {
+		order.enabled = ordering;
+	}
+
+	/**
+	 * Makes the search return as soon as possible. Safe to call from
+	 * another thread.
+	 */
+	public void stop() {
+		stopped = true;
+	}
+
+	/**
+	 * Returns the number of nodes visited by the last search.
+	 *
+	 * @return The node count
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * Returns the score of the last completed depth.
+	 *
+	 * @return Score in centipawns for the player to move
+	 */
+	public int getScore() {
+		return bestScore;
+	}
+
+	/**
+	 * Returns the deepest depth the last search completed.
+	 *
+	 * @return The depth
+	 */
+	public int getDepth() {
+		return completedDepth;
+	}
+
+	/**
+	 * Searches a position to a fixed depth.
+	 *
+	 * @param board ChessBoard object
+	 * @param depth Remaining depth
+	 * @param alpha Score the player to move is already sure of
+	 * @param beta Score the opponent is already sure of
+	 * @param ply Distance from the root
+	 * @return The score of the position for the player to move
+	 */
+	int negamax(ChessBoard board, int depth, int alpha, int beta, int ply) {
+		if (ply > 0 && board.isRepetition()) {
+			return 0;
+		}
+		if (ply > 0 && tablebase != null && Long.bitCount(board.getOccupied()) <= Tablebase.MAX_PIECES) {
+			int value = tablebase.probe(board, probeCodes, probeSquares);
+			if (value == Tablebase.DRAW) {
+				return 0;
+			}
+			// the exact distance to mate, counted from the root
+			if (Tablebase.isWin(value)) {
+				return MATE - ply - Tablebase.distance(value);
+			}
+			if (Tablebase.isLoss(value)) {
+				return -MATE + ply + Tablebase.distance(value);
+			}
+		}
+		if (depth <= 0 || ply >= MAX_PLY - 1) {
+			return quiesce(board, alpha, beta, ply);
+		}
+		if (++nodes % CHECK_INTERVAL == 0 && System.nanoTime() > deadline) {
+			stopped = true;
+		}
+		if (stopped) {
+			return 0;
+		}
+
+		// a result of at least this depth can be used directly
+		long key = board.getHash();
+		long entry = tt.probe(key);
+		int hashMove = Move.NONE;
+		if (entry != TranspositionTable.MISS) {
+			hashMove = TranspositionTable.move(entry);
+			if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+				int score = fromTable(TranspositionTable.score(entry), ply);
+				int bound = TranspositionTable.bound(entry);
+				if (bound == TranspositionTable.EXACT
+						|| (bound == TranspositionTable.LOWER && score >= beta)
+						|| (bound == TranspositionTable.UPPER && score <= alpha)) {
+					return score;
+				}
+			}
+		}
+
+		int side = board.getSideToMove();
+		int[] buffer = moves[ply];
+		int count = board.generateLegalMoves(side, buffer);
+		if (count == 0) {
+			// checkmated, or stalemate
+			return board.isInCheck(side) ? -MATE + ply : 0;
+		}
+		int previous = ply > 0 ? played[ply - 1] : Move.NONE;
+		order.score(board, buffer, count, hashMove, ply, previous);
+
+		int originalAlpha = alpha;
+		int best = -INFINITY;
+		int bestHere = Move.NONE;
+		for (int i = 0; i < count; i++) {
+			int move = MoveOrder.pickBest(buffer, i, count);
+			played[ply] = move;
+			board.makeMove(move);
+			int score = -negamax(board, depth - 1, -beta, -alpha, ply + 1);
+			board.unmakeMove();
+			if (stopped) {
+				return 0;
+			}
+
+			if (score > best) {
+				best = score;
+				bestHere = move;
+				if (ply == 0) {
+					rootMove = move;
+				}
+				if (score > alpha) {
+					alpha = score;
+					if (alpha >= beta) {
+						order.cutoff(board, buffer, i, depth, ply, previous);
+						break;
+					}
+				}
+			}
+		}
+
+		int bound = best >= beta ? TranspositionTable.LOWER
+				: best > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+		tt.store(key, bestHere, toTable(best, ply), depth, bound);
+		return best;
+	}
+
+	/**
+	 * Searches captures only, until the position is quiet. The player to
+	 * move may also stand pat, keeping the static score, instead of
+	 * capturing.
+	 *
+	 * @param board ChessBoard object
+	 * @param alpha Score the player to move is already sure of
+	 * @param beta Score the opponent is already sure of
+	 * @param ply Distance from the root
+	 * @return The score of the position for the player to move
+	 */
+	int quiesce(ChessBoard board, int alpha, int beta, int ply) {
+		if (++nodes % CHECK_INTERVAL == 0 && System.nanoTime() > deadline) {
+			stopped = true;
+		}
+		if (stopped) {
+			return 0;
+		}
+
+		int standPat = Evaluator.evaluate(board);
+		if (standPat >= beta || ply >= MAX_PLY - 1) {
+			return standPat;
+		}
+		if (standPat > alpha) {
+			alpha = standPat;
+		}
+
+		int[] buffer = moves[ply];
+		int count = order.captures(board, buffer, board.generateLegalMoves(board.getSideToMove(), buffer));
+		for (int i = 0; i < count; i++) {
+			int move = MoveOrder.pickBest(buffer, i, count);
+			board.makeMove(move);
+			int score = -quiesce(board, -beta, -alpha, ply + 1);
+			board.unmakeMove();
+			if (stopped) {
+				return 0;
+			}
+
+			if (score > alpha) {
+				alpha = score;
+				if (alpha >= beta) {
+					break;
+				}
+			}
+		}
+		return alpha;
+	}
+
+	/**
+	 * Returns the first legal move of a position.
+	 *
+	 * @param board ChessBoard object
+	 * @return A legal move, or Move.NONE if there is none
+	 */
+	int firstLegalMove(ChessBoard board) {
+		int[] buffer = moves[0];
+		int count = board.generateLegalMoves(board.getSideToMove(), buffer);
+		return count > 0 ? buffer[0] : Move.NONE;
+	}
+
+	/**
+	 * Converts a mate score from distance to the root to distance to the
+	 * position, so it stays right when read back at another ply.
+	 *
+	 * @param score Score relative to the root
+	 * @param ply Distance from the root
+	 * @return Score to store in the table
+	 */
+	static int toTable(int score, int ply) {
+		if (score > MATE_BOUND) {
+			return score + ply;
+		}
+		if (score < -MATE_BOUND) {
+			return score - ply;
+		}
+		return score;
+	}
+
+	/**
+	 * Converts a mate score read from the table back to distance to the
+	 * root.
+	 *
+	 * @param score Score read from the table
+	 * @param ply Distance from the root
+	 * @return Score relative to the root
+	 */
+	static int fromTable(int score, int ply) {
+		if (score > MATE_BOUND) {
+			return score - ply;
+		}
+		if (score < -MATE_BOUND) {
+			return score + ply;
+		}
+		return score;
+	}
+
+}
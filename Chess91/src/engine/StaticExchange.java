@@ -0,0 +1,155 @@
+package engine;
+
+import board.Bitboard;
+import board.ChessBoard;
+import board.Move;
+import board.Square;
+
+/**
+ * StaticExchange works out what a capture wins or loses once both
+ * players have taken back on its square as long as it pays them (static
+ * exchange evaluation, SEE). Nothing is moved on the board: the
+ * attackers of the square are read from ChessBoard.attackersTo, each
+ * player recaptures with their least valuable attacker, and every piece
+ * used is taken out of the occupancy, which uncovers the rooks, bishops
+ * and queens standing behind it (x-rays).
+ *
+ * Pins and checks are not looked at, so a result can be wrong when a
+ * recapturing piece is pinned.
+ *
+ * @author Omar Khalil
+ * @author Michelle Hwang
+ */
+public class StaticExchange {
+
+	/** Value of each kind; the king is worth more than all the rest, so it never ends up captured. */
+	static final int[] VALUES = {20000, Evaluator.VALUES[1], Evaluator.VALUES[2], Evaluator.VALUES[3],
+			Evaluator.VALUES[4], Evaluator.VALUES[5]};
+
+	/** Most captures an exchange is played out to; a square has at most 16 attackers. */
+	public static final int MAX_CAPTURES = 32;
+
+	/** Kinds in the order a player recaptures with them, least valuable first. */
+	static final int[] RECAPTURE_ORDER = {Bitboard.PAWN, Bitboard.KNIGHT, Bitboard.BISHOP, Bitboard.ROOK,
+			Bitboard.QUEEN, Bitboard.KING};
+
+	/**
+	 * Returns the material the player to move gains with a move, in
+	 * centipawns, after the exchange on its destination square is played
+	 * out. A quiet move scores 0 or less, less if the piece can be taken.
+	 *
+	 * @param board ChessBoard object, with the mover to play
+	 * @param move Packed move
+	 * @return The gain, negative if the move loses material
+	 */
+	public static int evaluate(ChessBoard board, int move) {
+		return evaluate(board, move, new int[MAX_CAPTURES]);
+	}
+
+	/**
+	 * Returns the material the player to move gains with a move, as
+	 * evaluate(board, move) does, using a scratch array of the caller so
+	 * that nothing is allocated; the search keeps one per thread.
+	 *
+	 * @param board ChessBoard object, with the mover to play
+	 * @param move Packed move
+	 * @param gain Scratch array of at least MAX_CAPTURES ints
+	 * @return The gain, negative if the move loses material
+	 */
+	public static int evaluate(ChessBoard board, int move, int[] gain) {
+		int from = Move.from(move);
+		int to = Move.to(move);
+		int side = board.getSideToMove();
+		long occ = board.getOccupied() ^ Bitboard.bit(from);
+
+		// gain[d] is the score for the player making capture d, if the exchange stopped there
+		gain[0] = 0;
+		int piece = VALUES[board.getCode(from) % 6];
+		if (Move.isEnPassant(move)) {
+			gain[0] = VALUES[Bitboard.PAWN];
+			occ ^= Bitboard.bit(side == Bitboard.WHITE ? to - 8 : to + 8);
+		} else if (Move.isCapture(move)) {
+			gain[0] = VALUES[board.getCode(to) % 6];
+		}
+		if (Move.promotion(move) != Move.NO_PROMOTION) {
+			gain[0] += VALUES[Move.promotion(move)] - VALUES[Bitboard.PAWN];
+			piece = VALUES[Move.promotion(move)];
+		}
+		boolean lastRank = Square.rank(to) == 0 || Square.rank(to) == 7;
+
+		long attackers = attackers(board, to, occ);
+		int d = 0;
+		for (side ^= 1; d + 1 < MAX_CAPTURES; side ^= 1) {
+			long mine = attackers & board.getOccupancy(side);
+			if (mine == 0) {
+				break;
+			}
+			int kind = Bitboard.KING;
+			long square = 0;
+			for (int k : RECAPTURE_ORDER) {
+				square = mine & board.getPieces(side, k);
+				if (square != 0) {
+					kind = k;
+					break;
+				}
+			}
+
+			d++;
+			gain[d] = piece - gain[d - 1];
+			piece = VALUES[kind];
+			if (kind == Bitboard.PAWN && lastRank) {
+				gain[d] += VALUES[Bitboard.QUEEN] - VALUES[Bitboard.PAWN];
+				piece = VALUES[Bitboard.QUEEN];
+			}
+			// the capture loses whether or not the exchange goes on, so it is not made
+			if (Math.max(-gain[d - 1], gain[d]) < 0) {
+				d--;
+				break;
+			}
+			occ ^= square & -square;
+			attackers = attackers(board, to, occ);
+		}
+
+		// each player may stop instead of recapturing
+		while (d > 0) {
+			gain[d - 1] = -Math.max(-gain[d - 1], gain[d]);
+			d--;
+		}
+		return gain[0];
+	}
+
+	/**
+	 * Checks if a capture or promotion loses material. A capture of a
+	 * piece worth at least the capturing piece never does, so the
+	 * exchange is only played out for the others.
+	 *
+	 * @param board ChessBoard object, with the mover to play
+	 * @param move Packed capture or promotion
+	 * @param gain Scratch array of at least MAX_CAPTURES ints
+	 * @return True if the move loses material
+	 */
+	public static boolean isLosing(ChessBoard board, int move, int[] gain) {
+		if (Move.isCapture(move)) {
+			int attacker = board.getCode(Move.from(move)) % 6;
+			int victim = Move.isEnPassant(move) ? Bitboard.PAWN : board.getCode(Move.to(move)) % 6;
+			if (attacker != Bitboard.KING && VALUES[victim] >= VALUES[attacker]) {
+				return false;
+			}
+		}
+		return evaluate(board, move, gain) < 0;
+	}
+
+	/**
+	 * Returns the pieces of both players that reach a square through the
+	 * given occupancy.
+	 *
+	 * @param board ChessBoard object
+	 * @param square Square index
+	 * @param occ Pieces still on the board
+	 * @return Bitboard of the attackers still on the board
+	 */
+	static long attackers(ChessBoard board, int square, long occ) {
+		return (board.attackersTo(square, Bitboard.WHITE, occ) | board.attackersTo(square, Bitboard.BLACK, occ)) & occ;
+	}
+
+}
@@ -0,0 +1,610 @@
+package engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import board.Bitboard;
+import board.ChessBoard;
+import board.GameStatus;
+import board.Square;
+
+/**
+ * Tablebase looks up the exact result of positions with few pieces in
+ * tables computed beforehand by chess.TablebaseGenerator. There is one
+ * table per set of pieces, named after them, white's pieces then
+ * black's, strongest first: KQK, KPK, KBNK, KQKR. Positions where black
+ * has the stronger pieces are looked up in the table of the colors
+ * swapped and the board turned over.
+ *
+ * A table holds one byte for every side to move and placement of its
+ * pieces, counted once for all the placements that are the same
+ * position with the board turned: without pawns the board is mirrored
+ * and rotated until white's king is on the a1-d1-d4 triangle, with
+ * pawns it is only mirrored left to right until the king is on files a
+ * to d. The two kings then make one of 462 or 1806 pairs of squares,
+ * and the other pieces follow in the order of the name, pawns on one of
+ * 48 squares. A 4 piece table without pawns takes 3.8 MB. The byte is
+ * DRAW, ILLEGAL, or the number of plies to mate plus one; an odd number
+ * of plies means the player to move mates, an even number means they
+ * are mated. Tables are read through memory mappings, opened the first
+ * time a position of theirs is looked up, and found again by a material
+ * index counted from the pieces, so a lookup allocates nothing.
+ *
+ * The tables leave out castling and en passant, so positions where
+ * either is possible are not looked up.
+ *
+ * @author Omar Khalil
+ * @author Michelle Hwang
+ */
+public class Tablebase {
+
+	/** Most pieces, kings included, a table can have. */
+	public static final int MAX_PIECES = 4;
+
+	/** Value of a position neither player can win. */
+	public static final int DRAW = 0;
+	/** Value of a placement that cannot happen in a game. */
+	public static final int ILLEGAL = 255;
+
+	/** First int of every table file, "C91T". */
+	public static final int MAGIC = 0x43393154;
+	/** Bytes before the first value: the magic and the number of pieces. */
+	public static final int HEADER = 8;
+
+	/** Piece letters in kind order. */
+	static final String KINDS = "KQRBNP";
+
+	/** Stands in the cache for a table that has no file. */
+	private static final ByteBuffer MISSING = ByteBuffer.allocate(0);
+
+	/**
+	 * Weight of each piece code in the material index: a power of 3 for
+	 * each of the 10 pieces other than kings, as a table holds at most 2
+	 * of them. Kings weigh nothing: only sets with one king of each
+	 * color are looked up, so the other pieces tell the number of pieces
+	 * too, and the index of a set is never that of a table of another
+	 * size.
+	 */
+	static final int[] MATERIAL_WEIGHTS = {0, 1, 3, 9, 27, 81, 0, 243, 729, 2187, 6561, 19683};
+	/** Number of material indexes. */
+	static final int MATERIALS = 59049;
+
+	/**
+	 * Index of each pair of king squares, white's times 64 plus
+	 * black's, in the tables without pawns, or -1 if the pair is not
+	 * kept. White's king is on the a1-d1-d4 triangle, and black's is
+	 * below the a1-h8 diagonal or on it when white's king is on it;
+	 * every placement turns into one of these. Kings next to each other
+	 * are left out.
+	 */
+	static final short[] KING_PAIRS = new short[64 * 64];
+	/** Index of each pair of king squares in the tables with pawns: white's king on files a to d. */
+	static final short[] PAWN_KING_PAIRS = new short[64 * 64];
+	/** King squares of each pair, white's times 64 plus black's. */
+	static final short[] KING_SQUARES;
+	static final short[] PAWN_KING_SQUARES;
+	/** Number of king pairs without and with pawns. */
+	static final int PAIRS;
+	static final int PAWN_PAIRS;
+
+	static {
+		short[] squares = new short[64 * 64];
+		short[] pawnSquares = new short[64 * 64];
+		int pairs = 0;
+		int pawnPairs = 0;
+		for (int white = 0; white < 64; white++) {
+			int file = Square.file(white);
+			int rank = Square.rank(white);
+			for (int black = 0; black < 64; black++) {
+				int pair = white << 6 | black;
+				KING_PAIRS[pair] = -1;
+				PAWN_KING_PAIRS[pair] = -1;
+				if (white == black || (Bitboard.kingAttacks(white) & Bitboard.bit(black)) != 0 || file > 3) {
+					continue;
+				}
+				PAWN_KING_PAIRS[pair] = (short) pawnPairs;
+				pawnSquares[pawnPairs++] = (short) pair;
+				if (rank < file || (rank == file && Square.rank(black) <= Square.file(black))) {
+					KING_PAIRS[pair] = (short) pairs;
+					squares[pairs++] = (short) pair;
+				}
+			}
+		}
+		PAIRS = pairs;
+		PAWN_PAIRS = pawnPairs;
+		KING_SQUARES = Arrays.copyOf(squares, pairs);
+		PAWN_KING_SQUARES = Arrays.copyOf(pawnSquares, pawnPairs);
+	}
+
+	private final File dir;
+	/** Mapped table of each material index, null until first looked up. */
+	private final AtomicReferenceArray<ByteBuffer> tables = new AtomicReferenceArray<ByteBuffer>(MATERIALS);
+
+	/**
+	 * Creates a tablebase reading the tables of a directory.
+	 *
+	 * @param dir Directory holding the .tb files
+	 */
+	public Tablebase(String dir) {
+		this.dir = new File(dir);
+	}
+
+	/**
+	 * Looks up a position.
+	 *
+	 * @param board ChessBoard object
+	 * @return The value for the player to move, or -1 if the position
+	 * has too many pieces, its table is missing, or castling or en
+	 * passant is possible
+	 */
+	public int probe(ChessBoard board) {
+		return probe(board, new int[MAX_PIECES], new int[MAX_PIECES]);
+	}
+
+	/**
+	 * Looks up a position using scratch arrays of the caller, so that
+	 * nothing is allocated; the search keeps a pair per thread.
+	 *
+	 * @param board ChessBoard object
+	 * @param codes Scratch array of at least MAX_PIECES ints
+	 * @param squares Scratch array of at least MAX_PIECES ints
+	 * @return The value for the player to move, or -1 if the position
+	 * has too many pieces, its table is missing, or castling or en
+	 * passant is possible
+	 */
+	public int probe(ChessBoard board, int[] codes, int[] squares) {
+		long occupied = board.getOccupied();
+		int n = Long.bitCount(occupied);
+		if (n > MAX_PIECES || board.canCaptureEnPassant()
+				|| board.canCastle(ChessBoard.WHITE_KINGSIDE | ChessBoard.WHITE_QUEENSIDE
+						| ChessBoard.BLACK_KINGSIDE | ChessBoard.BLACK_QUEENSIDE)) {
+			return -1;
+		}
+		int i = 0;
+		for (long bits = occupied; bits != 0; bits &= bits - 1) {
+			squares[i] = Long.numberOfTrailingZeros(bits);
+			codes[i] = board.getCode(squares[i]);
+			i++;
+		}
+		int value = probe(codes, squares, n, board.getSideToMove());
+		return value == ILLEGAL ? -1 : value;
+	}
+
+	/**
+	 * Looks up a placement of pieces. The pieces may be given in any
+	 * order and either color may have the stronger pieces; the arrays
+	 * are sorted, and turned over if needed, in place.
+	 *
+	 * @param codes Piece code of each piece, color * 6 + kind
+	 * @param squares Square of each piece
+	 * @param n Number of pieces, kings included
+	 * @param side Player to move, Bitboard.WHITE or Bitboard.BLACK
+	 * @return The value for the player to move, or -1 if the table is
+	 * missing, the pieces are not one king of each color and others, or
+	 * the kings stand next to each other
+	 */
+	public int probe(int[] codes, int[] squares, int n, int side) {
+		if (!hasKings(codes, n)) {
+			// a king was taken: no table holds the position
+			return -1;
+		}
+		if (n == 2) {
+			// two bare kings
+			return DRAW;
+		}
+		sort(codes, squares, n);
+		if (!isCanonical(codes, n)) {
+			// swap the colors and turn the board over
+			for (int i = 0; i < n; i++) {
+				codes[i] = (codes[i] + 6) % 12;
+				squares[i] ^= 56;
+			}
+			sort(codes, squares, n);
+			side ^= 1;
+		}
+
+		ByteBuffer table = table(codes, n);
+		int index = index(side, squares, codes, n);
+		if (table == MISSING || index < 0) {
+			return -1;
+		}
+		return table.get(HEADER + index) & 0xFF;
+	}
+
+	/**
+	 * Checks if a set of pieces has exactly one white king and one black
+	 * king, as every table does.
+	 *
+	 * @param codes Piece codes
+	 * @param n Number of pieces
+	 * @return True if there is one king of each color
+	 */
+	static boolean hasKings(int[] codes, int n) {
+		int white = 0;
+		int black = 0;
+		for (int i = 0; i < n; i++) {
+			if (codes[i] == Bitboard.WHITE * 6 + Bitboard.KING) {
+				white++;
+			} else if (codes[i] == Bitboard.BLACK * 6 + Bitboard.KING) {
+				black++;
+			}
+		}
+		return white == 1 && black == 1;
+	}
+
+	/**
+	 * Finds the state of the game for the player to move, as
+	 * ChessBoard.status does, but also finds positions that are drawn
+	 * whatever is played.
+	 *
+	 * @param board ChessBoard object
+	 * @return GameStatus.DRAWN if the tables show neither player can
+	 * mate, otherwise the status of the board
+	 */
+	public GameStatus status(ChessBoard board) {
+		GameStatus status = board.status(board.getSideToMove());
+		if (!status.isOver() && probe(board) == DRAW) {
+			return GameStatus.DRAWN;
+		}
+		return status;
+	}
+
+	/**
+	 * Returns the mapped table of a set of pieces, mapping it the first
+	 * time.
+	 *
+	 * @param codes Piece codes, sorted
+	 * @param n Number of pieces
+	 * @return The table, or MISSING if it has no file
+	 */
+	private ByteBuffer table(int[] codes, int n) {
+		int material = material(codes, n);
+		ByteBuffer table = tables.get(material);
+		if (table == null) {
+			table = map(new File(dir, fileName(signature(codes, n))), n, size(codes, n));
+			if (!tables.compareAndSet(material, null, table)) {
+				table = tables.get(material);
+			}
+		}
+		return table;
+	}
+
+	/**
+	 * Returns the material index of a set of pieces, the same for every
+	 * order of the pieces.
+	 *
+	 * @param codes Piece codes
+	 * @param n Number of pieces, at most MAX_PIECES
+	 * @return The index, from 0 to MATERIALS - 1
+	 */
+	static int material(int[] codes, int n) {
+		int material = 0;
+		for (int i = 0; i < n; i++) {
+			material += MATERIAL_WEIGHTS[codes[i]];
+		}
+		return material;
+	}
+
+	/**
+	 * Maps a table file.
+	 *
+	 * @param file The table file
+	 * @param n Number of pieces of the table
+	 * @param size Number of values of the table
+	 * @return The mapping, or MISSING if the file cannot be read or is
+	 * not a table of n pieces and size values
+	 */
+	private static ByteBuffer map(File file, int n, int size) {
+		if (!file.isFile()) {
+			return MISSING;
+		}
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+				FileChannel channel = raf.getChannel()) {
+			ByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (map.capacity() < HEADER || map.getInt(0) != MAGIC) {
+				return MISSING;
+			}
+			int pieces = map.getInt(4);
+			if (pieces != n || map.capacity() != HEADER + size) {
+				return MISSING;
+			}
+			return map;
+		} catch (IOException e) {
+			return MISSING;
+		}
+	}
+
+	/**
+	 * Returns the number of values in a table.
+	 *
+	 * @param codes Piece codes, sorted
+	 * @param n Number of pieces, kings included
+	 * @return 2 sides to move times the king pairs times 64 squares per
+	 * other piece, 48 per pawn
+	 */
+	public static int size(int[] codes, int n) {
+		int size = 2 * (hasPawns(codes, n) ? PAWN_PAIRS : PAIRS);
+		for (int i = 0; i < n; i++) {
+			if (codes[i] % 6 == Bitboard.PAWN) {
+				size *= 48;
+			} else if (codes[i] % 6 != Bitboard.KING) {
+				size *= 64;
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Returns the index of a placement in its table: the side to move,
+	 * the pair of king squares, then the square of each other piece in
+	 * the order of the table name. The board is first turned so that the
+	 * kings make one of the pairs kept; when two ways of turning it do,
+	 * as with both kings on the a1-h8 diagonal, the smaller index is
+	 * taken, so that every position has a single index.
+	 *
+	 * @param side Player to move
+	 * @param squares Square of each piece, in the order of the table name
+	 * @param codes Piece codes, sorted
+	 * @param n Number of pieces
+	 * @return The index, or -1 if the kings stand next to each other or
+	 * a pawn is on the first or last rank
+	 */
+	public static int index(int side, int[] squares, int[] codes, int n) {
+		boolean pawns = hasPawns(codes, n);
+		short[] pairs = pawns ? PAWN_KING_PAIRS : KING_PAIRS;
+		int black = blackKing(codes, n);
+		int best = -1;
+		for (int turn = 0; turn < (pawns ? 2 : 8); turn++) {
+			int pair = pairs[turn(squares[0], turn) << 6 | turn(squares[black], turn)];
+			if (pair < 0) {
+				continue;
+			}
+			int index = side * (pawns ? PAWN_PAIRS : PAIRS) + pair;
+			for (int i = 1; i < n; i++) {
+				int square = turn(squares[i], turn);
+				if (codes[i] % 6 == Bitboard.PAWN) {
+					if (square < 8 || square >= 56) {
+						return -1;
+					}
+					index = index * 48 + square - 8;
+				} else if (i != black) {
+					index = index * 64 + square;
+				}
+			}
+			if (best < 0 || index < best) {
+				best = index;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Reads the side to move and squares of an index, undoing index.
+	 *
+	 * @param index Index of a placement
+	 * @param codes Piece codes, sorted
+	 * @param n Number of pieces
+	 * @param squares Filled with the square of each piece
+	 * @return The player to move
+	 */
+	public static int decode(int index, int[] codes, int n, int[] squares) {
+		boolean pawns = hasPawns(codes, n);
+		int black = blackKing(codes, n);
+		for (int i = n - 1; i > 0; i--) {
+			if (codes[i] % 6 == Bitboard.PAWN) {
+				squares[i] = index % 48 + 8;
+				index /= 48;
+			} else if (i != black) {
+				squares[i] = index & 63;
+				index >>>= 6;
+			}
+		}
+		int pairs = pawns ? PAWN_PAIRS : PAIRS;
+		int kings = (pawns ? PAWN_KING_SQUARES : KING_SQUARES)[index % pairs];
+		squares[0] = kings >> 6;
+		squares[black] = kings & 63;
+		return index / pairs;
+	}
+
+	/**
+	 * Turns a square with one of the 8 symmetries of the board. Turns 0
+	 * and 1 keep the ranks, so they are the only ones used with pawns.
+	 *
+	 * @param square Square index
+	 * @param turn Bit 2 flips the board over the a1-h8 diagonal, then bit
+	 * 0 mirrors the files and bit 1 the ranks
+	 * @return The turned square
+	 */
+	static int turn(int square, int turn) {
+		if ((turn & 4) != 0) {
+			square = (square & 7) << 3 | square >>> 3;
+		}
+		if ((turn & 1) != 0) {
+			square ^= 7;
+		}
+		if ((turn & 2) != 0) {
+			square ^= 56;
+		}
+		return square;
+	}
+
+	/**
+	 * Checks if a set of pieces has a pawn, which keeps the board from
+	 * being turned other than left to right.
+	 *
+	 * @param codes Piece codes
+	 * @param n Number of pieces
+	 * @return True if one of the pieces is a pawn
+	 */
+	static boolean hasPawns(int[] codes, int n) {
+		for (int i = 0; i < n; i++) {
+			if (codes[i] % 6 == Bitboard.PAWN) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns where black's king is in a sorted set of pieces, which is
+	 * the number of white pieces.
+	 *
+	 * @param codes Piece codes, sorted
+	 * @param n Number of pieces
+	 * @return Index of black's king
+	 */
+	static int blackKing(int[] codes, int n) {
+		int black = 1;
+		while (black < n && codes[black] != Bitboard.BLACK * 6 + Bitboard.KING) {
+			black++;
+		}
+		return black;
+	}
+
+	/**
+	 * Returns the name of the table of a set of pieces.
+	 *
+	 * @param codes Piece codes, sorted
+	 * @param n Number of pieces
+	 * @return The name, ex. "KQKR"
+	 */
+	public static String signature(int[] codes, int n) {
+		StringBuilder sb = new StringBuilder(n);
+		for (int i = 0; i < n; i++) {
+			sb.append(KINDS.charAt(codes[i] % 6));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Reads the pieces of a table name.
+	 *
+	 * @param signature Name of the table, ex. "KQKR"
+	 * @param codes Filled with the piece codes, sorted
+	 * @return The number of pieces
+	 * @throws IllegalArgumentException If the name is not a white king
+	 * and pieces followed by a black king and pieces, MAX_PIECES at most
+	 */
+	public static int codes(String signature, int[] codes) {
+		int black = signature.indexOf('K', 1);
+		if (!signature.startsWith("K") || black < 0 || signature.indexOf('K', black + 1) >= 0
+				|| signature.length() > Math.min(MAX_PIECES, codes.length)) {
+			throw new IllegalArgumentException("Not a table name: " + signature);
+		}
+		for (int i = 0; i < signature.length(); i++) {
+			int kind = KINDS.indexOf(signature.charAt(i));
+			if (kind < 0) {
+				throw new IllegalArgumentException("Not a table name: " + signature);
+			}
+			codes[i] = (i < black ? Bitboard.WHITE : Bitboard.BLACK) * 6 + kind;
+		}
+		sort(codes, new int[codes.length], signature.length());
+		return signature.length();
+	}
+
+	/**
+	 * Checks if a set of pieces has its own table, rather than being
+	 * looked up with the colors swapped: white has more pieces than
+	 * black, or as many and pieces at least as strong.
+	 *
+	 * @param codes Piece codes, sorted
+	 * @param n Number of pieces
+	 * @return True if white's pieces come first in the table name
+	 */
+	public static boolean isCanonical(int[] codes, int n) {
+		int white = 0;
+		while (white < n && codes[white] < 6) {
+			white++;
+		}
+		if (white != n - white) {
+			return white > n - white;
+		}
+		for (int i = 0; i < white; i++) {
+			if (codes[i] % 6 != codes[white + i] % 6) {
+				return codes[i] % 6 < codes[white + i] % 6;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the file name of a table.
+	 *
+	 * @param signature Name of the table
+	 * @return The file name, ex. "KQK.tb"
+	 */
+	public static String fileName(String signature) {
+		return signature + ".tb";
+	}
+
+	/**
+	 * Checks if a value is a win for the player to move.
+	 *
+	 * @param value Table value
+	 * @return True if the player to move mates
+	 */
+	public static boolean isWin(int value) {
+		return value > DRAW && value < ILLEGAL && (value - 1) % 2 == 1;
+	}
+
+	/**
+	 * Checks if a value is a loss for the player to move.
+	 *
+	 * @param value Table value
+	 * @return True if the player to move is mated
+	 */
+	public static boolean isLoss(int value) {
+		return value > DRAW && value < ILLEGAL && (value - 1) % 2 == 0;
+	}
+
+	/**
+	 * Returns the number of plies to mate of a won or lost value.
+	 *
+	 * @param value Table value, neither DRAW nor ILLEGAL
+	 * @return Plies until the mate
+	 */
+	public static int distance(int value) {
+		return value - 1;
+	}
+
+	/**
+	 * Returns the value of a move for the player who makes it, one ply
+	 * further from mate than the value of the position it leads to.
+	 *
+	 * @param child Value of the position after the move, for the
+	 * opponent
+	 * @return The value for the player making the move
+	 */
+	public static int parent(int child) {
+		return child == DRAW ? DRAW : child + 1;
+	}
+
+	/**
+	 * Sorts pieces by code, which is the order of a table name, keeping
+	 * each square with its piece.
+	 *
+	 * @param codes Piece codes
+	 * @param squares Square of each piece
+	 * @param n Number of pieces
+	 */
+	static void sort(int[] codes, int[] squares, int n) {
+		for (int i = 1; i < n; i++) {
+			int code = codes[i];
+			int square = squares[i];
+			int j = i;
+			while (j > 0 && codes[j - 1] > code) {
+				codes[j] = codes[j - 1];
+				squares[j] = squares[j - 1];
+				j--;
+			}
+			codes[j] = code;
+			squares[j] = square;
+		}
+	}
+
+}
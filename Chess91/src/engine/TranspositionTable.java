@@ -0,0 +1,232 @@
+package engine;
+
+import java.util.Arrays;
+
+/**
+ * TranspositionTable stores search results by position hash so that a
+ * position reached again, by another move order or by another search
+ * thread, does not have to be searched twice.
+ *
+ * The table is one long array sized in megabytes when it is created.
+ * Entries take two longs: the hash XORed with the data, then the data.
+ * A probe only accepts an entry if XORing the two gives back the hash,
+ * so an entry torn by two threads writing it at once reads as a miss
+ * and no locks are needed.
+ *
+ * Entries are kept in buckets of two. The first slot keeps the deepest
+ * result of the current search, the second always takes the newest
+ * result, so deep results are not pushed out by shallow ones.
+ *
+ * <pre>
+ * bits  0-19  best move (packed board.Move)
+ * bits 20-35  score + 32768
+ * bits 36-43  depth
+ * bits 44-45  bound (UPPER, LOWER or EXACT)
+ * bits 46-53  search generation
+ * </pre>
+ *
+ * @author Omar Khalil
+ * @author Michelle Hwang
+ */
+public class TranspositionTable {
+
+	/** Score is at most the stored score (the search failed low). */
+	public static final int UPPER = 1;
+	/** Score is at least the stored score (the search failed high). */
+	public static final int LOWER = 2;
+	/** Score is exactly the stored score. */
+	public static final int EXACT = 3;
+
+	/** Entry returned by probe when the position is not in the table. */
+	public static final long MISS = 0;
+
+	/** Longs per entry: the checked key and the data. */
+	static final int ENTRY = 2;
+	/** Longs per bucket of two entries. */
+	static final int BUCKET = 2 * ENTRY;
+
+	long[] table;
+	int mask;
+	int generation;
+
+	/**
+	 * Creates a table using at most the given amount of memory. The
+	 * number of buckets is rounded down to a power of two.
+	 *
+	 * @param megabytes Size of the table in megabytes, at least 1
+	 */
+	public TranspositionTable(int megabytes) {
+		resize(megabytes);
+	}
+
+	/**
+	 * Reallocates the table with a new size, dropping every entry.
+	 *
+	 * @param megabytes Size of the table in megabytes, at least 1
+	 */
+	public void resize(int megabytes) {
+		long longs = Math.max(1, megabytes) * (1024L * 1024L / 8);
+		long buckets = Long.highestOneBit(Math.min(longs / BUCKET, (Integer.MAX_VALUE - 8) / BUCKET));
+		table = new long[(int) buckets * BUCKET];
+		mask = (int) buckets - 1;
+		generation = 0;
+	}
+
+	/**
+	 * Drops every entry.
+	 */
+	public void clear() {
+		Arrays.fill(table, 0);
+		generation = 0;
+	}
+
+	/**
+	 * Starts a new search, so entries left by earlier searches are
+	 * replaced first.
+	 */
+	public void newSearch() {
+		generation = (generation + 1) & 0xFF;
+	}
+
+	/**
+	 * Looks up a position.
+	 *
+	 * @param key Hash of the position
+	 * @return The entry's data, or MISS
+	 */
+	public long probe(long key) {
+		int index = bucket(key);
+		for (int slot = index; slot < index + BUCKET; slot += ENTRY) {
+			long data = table[slot + 1];
+			if ((table[slot] ^ data) == key && data != MISS) {
+				return data;
+			}
+		}
+		return MISS;
+	}
+
+	/**
+	 * Stores a search result. The deep slot of the bucket is replaced
+	 * if it holds the same position, a result from an earlier search, or
+	 * a result no deeper than the new one; otherwise the result goes in
+	 * the second slot.
+	 *
+	 * @param key Hash of the position
+	 * @param move Best move found, or board.Move.NONE
+	 * @param score Score of the position, -32767 to 32767
+	 * @param depth Depth searched, 0 to 255
+	 * @param bound UPPER, LOWER or EXACT
+	 */
+	public void store(long key, int move, int score, int depth, int bound) {
+		int slot = bucket(key);
+		long old = table[slot + 1];
+		if ((table[slot] ^ old) != key && generation(old) == generation && depth(old) > depth) {
+			slot += ENTRY;
+			old = table[slot + 1];
+		}
+		// keep the move of a result that did not find one
+		if (move == 0 && (table[slot] ^ old) == key) {
+			move = move(old);
+		}
+		long data = pack(move, score, depth, bound, generation);
+		table[slot] = key ^ data;
+		table[slot + 1] = data;
+	}
+
+	/**
+	 * Returns the permille of sampled entries written by the current
+	 * search.
+	 *
+	 * @return Entries used, 0 to 1000
+	 */
+	public int hashfull() {
+		int used = 0;
+		int sample = Math.min(1000, table.length / ENTRY);
+		for (int i = 0; i < sample; i++) {
+			long data = table[i * ENTRY + 1];
+			if (data != MISS && generation(data) == generation) {
+				used++;
+			}
+		}
+		return used * 1000 / sample;
+	}
+
+	/**
+	 * Returns the index of the first long of a position's bucket.
+	 *
+	 * @param key Hash of the position
+	 * @return Index into the table
+	 */
+	int bucket(long key) {
+		return ((int) (key ^ (key >>> 32)) & mask) * BUCKET;
+	}
+
+	/**
+	 * Packs the fields of an entry into a long.
+	 *
+	 * @param move Best move
+	 * @param score Score
+	 * @param depth Depth searched
+	 * @param bound UPPER, LOWER or EXACT
+	 * @param generation Search generation
+	 * @return The entry's data
+	 */
+	static long pack(int move, int score, int depth, int bound, int generation) {
+		return (move & 0xFFFFFL)
+				| ((long) (score + 32768) << 20)
+				| ((long) depth << 36)
+				| ((long) bound << 44)
+				| ((long) generation << 46);
+	}
+
+	/**
+	 * Returns the best move of an entry.
+	 *
+	 * @param data Entry returned by probe
+	 * @return The packed move, or board.Move.NONE
+	 */
+	public static int move(long data) {
+		return (int) (data & 0xFFFFF);
+	}
+
+	/**
+	 * Returns the score of an entry.
+	 *
+	 * @param data Entry returned by probe
+	 * @return The score
+	 */
+	public static int score(long data) {
+		return (int) ((data >>> 20) & 0xFFFF) - 32768;
+	}
+
+	/**
+	 * Returns the depth of an entry.
+	 *
+	 * @param data Entry returned by probe
+	 * @return The depth searched
+	 */
+	public static int depth(long data) {
+		return (int) ((data >>> 36) & 0xFF);
+	}
+
+	/**
+	 * Returns the bound of an entry.
+	 *
+	 * @param data Entry returned by probe
+	 * @return UPPER, LOWER or EXACT
+	 */
+	public static int bound(long data) {
+		return (int) ((data >>> 44) & 3);
+	}
+
+	/**
+	 * Returns the search generation of an entry.
+	 *
+	 * @param data Entry returned by probe
+	 * @return The generation
+	 */
+	static int generation(long data) {
+		return (int) ((data >>> 46) & 0xFF);
+	}
+
+}
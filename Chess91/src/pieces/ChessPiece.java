@@ -1,14 +1,17 @@
 package pieces;
 
-import java.util.ArrayList;
-import java.util.List;
-
+import board.Bitboard;
 import board.ChessBoard;
-import board.FileRank;
+import board.Move;
 
 /**
  * ChessPiece is the superclass to all pieces. Possess the common 
  * characteristics and behavior.
+ * 
+ * Pieces hold no position: there is one shared, unchangeable piece 
+ * for each color and kind, found by its piece code, and the square 
+ * a piece stands on is passed to each of its methods. The board 
+ * itself only stores the codes.
  *  
  * @author Omar Khalil
  * @author Michelle Hwang
@@ -16,44 +19,60 @@ import board.FileRank;
  */
 public class ChessPiece {
 	
-	FileRank fr = new FileRank();
+	/**
+	 * The shared piece of each code, indexed by color * 6 + kind.
+	 */
+	static final ChessPiece[] PIECES = new ChessPiece[12];
+	
+	static {
+		for (int side = Bitboard.WHITE; side <= Bitboard.BLACK; side++) {
+			PIECES[side * 6 + Bitboard.KING] = new King(side);
+			PIECES[side * 6 + Bitboard.QUEEN] = new Queen(side);
+			PIECES[side * 6 + Bitboard.ROOK] = new Rook(side);
+			PIECES[side * 6 + Bitboard.BISHOP] = new Bishop(side);
+			PIECES[side * 6 + Bitboard.KNIGHT] = new Knight(side);
+			PIECES[side * 6 + Bitboard.PAWN] = new Pawn(side);
+		}
+	}
+	
+	public final String color;
+	public final String type;
 	
-	public String color;
-	public String type;
-	protected String row;
-	protected String col;
+	/** Color index of the piece, Bitboard.WHITE or Bitboard.BLACK. */
+	final int side;
+	/** Kind index of the piece, ex. Bitboard.ROOK. */
+	final int kind;
 	
 	/**
 	 * Initializes a ChessPiece object.
 	 * 
-	 * @param color Color of the piece - either black or white
-	 * @param type A label or symbol that identifies the piece
-	 * @param row The row coordinate of the piece
-	 * @param col The column coordinate of the piece
+	 * @param side Color index of the piece, Bitboard.WHITE or Bitboard.BLACK
+	 * @param kind Kind index of the piece, ex. Bitboard.ROOK
 	 */
-	public ChessPiece(String color, String type, String row, String col) {
-		this.color = color;
-		this.type = type;
-		this.row = row;
-		this.col = col;
+	ChessPiece(int side, int kind) {
+		this.side = side;
+		this.kind = kind;
+		this.color = Bitboard.colorName(side);
+		this.type = Bitboard.TYPES[side * 6 + kind];
 	}
 	
 	/**
-	 * Returns the color field.
+	 * Returns the shared piece of a piece code.
 	 * 
-	 * @return color Color of piece
+	 * @param code Piece code, color * 6 + kind
+	 * @return The piece
 	 */
-	public String getColor() {
-		return color;
+	public static ChessPiece of(int code) {
+		return PIECES[code];
 	}
 	
 	/**
-	 * Sets the value of the color field.
+	 * Returns the color field.
 	 * 
-	 * @param color Color of piece
+	 * @return color Color of piece
 	 */
-	public void setColor(String color) {
-		this.color = color;
+	public String getColor() {
+		return color;
 	}
 	
 	/**
@@ -66,290 +85,146 @@ public class ChessPiece {
 	}
 	
 	/**
-	 * Sets the type of the chess piece.
+	 * Returns the piece code, the index of the piece's bitboard.
 	 * 
-	 * @param type Type of piece
+	 * @return code Color * 6 + kind
 	 */
-	public void setType(String type) {
-		this.type = type;
+	public int getCode() {
+		return side * 6 + kind;
 	}
 	
 	/**
-	 * Returns the row where the piece is located.
+	 * Returns fields of the object as a string
 	 * 
-	 * @return row Row number
+	 * @return piece String description of piece
 	 */
-	public String getRow() {
-		return row;
+	public String toString() {
+		return this.getColor() + " " + this.getType();
 	}
 	
 	/**
-	 * Sets the row.
+	 * Writes the chess piece's legal diagonal moves into a move buffer.
+	 * The piece cannot move diagonally over another object if that 
+	 * object is in its path. The squares come from the bishop attack 
+	 * table, so no ray is walked.
 	 * 
-	 * @param row Row number
+	 * @param board ChessBoard object
+	 * @param square Square index of the piece
+	 * @param moves Buffer the packed moves are written into
+	 * @param count Number of moves already in the buffer
+	 * @return The new number of moves in the buffer
 	 */
-	public void setRow(String row) {
-		this.row = row;
+	public int possibleDiagonal(ChessBoard board, int square, int[] moves, int count) {
+		long own = board.getOccupancy(side);
+		return addMoves(board, square, diagonalAttacks(board, square) & ~own, moves, count);
 	}
 	
 	/**
-	 * Returns the column where the piece is located.
+	 * Writes the chess piece's legal forward/backward and sideways 
+	 * moves into a move buffer. The piece cannot jump over and object 
+	 * if that object is in its path. The squares come from the rook 
+	 * attack table, so no ray is walked.
 	 * 
-	 * @return col Column letter
+	 * @param board ChessBoard object
+	 * @param square Square index of the piece
+	 * @param moves Buffer the packed moves are written into
+	 * @param count Number of moves already in the buffer
+	 * @return The new number of moves in the buffer
 	 */
-	public String getCol() {
-		return col;
+	public int possibleXY(ChessBoard board, int square, int[] moves, int count) {
+		long own = board.getOccupancy(side);
+		return addMoves(board, square, xyAttacks(board, square) & ~own, moves, count);
 	}
 	
 	/**
-	 * Sets the column.
+	 * Returns the squares attacked along the diagonals, up to and
+	 * including the first piece on each diagonal.
 	 * 
-	 * @param col Column letter
+	 * @param board ChessBoard object
+	 * @param square Square index of the piece
+	 * @return Bitboard of the attacked squares
 	 */
-	public void setCol(String col) {
-		this.col = col;
+	public long diagonalAttacks(ChessBoard board, int square) {
+		return Bitboard.bishopAttacks(square, board.getOccupied());
 	}
 	
 	/**
-	 * Returns fields of the object as a string
+	 * Returns the squares attacked along the row and column, up to and
+	 * including the first piece in each direction.
 	 * 
-	 * @return piece String description of piece
+	 * @param board ChessBoard object
+	 * @param square Square index of the piece
+	 * @return Bitboard of the attacked squares
 	 */
-	public String toString() {
-		return this.getColor() + " " + this.getType() + " " + this.getRow() + " " + this.getCol();
+	public long xyAttacks(ChessBoard board, int square) {
+		return Bitboard.rookAttacks(square, board.getOccupied());
 	}
 	
 	/**
-	 * Returns a list of Strings detailing the chess piece's legal
-	 * diagonal moves. The piece cannot move diagonally over another
-	 * object if that object is in its path.
+	 * Writes a move to each square of a set into a move buffer, flagging
+	 * the ones that land on an opponent piece as captures.
 	 * 
-	 * @param color Color of the piece
 	 * @param board ChessBoard object
-	 * @return moves A list of possible diagonal moves
+	 * @param square Square index of the piece
+	 * @param targets Bitboard of destination squares
+	 * @param moves Buffer the packed moves are written into
+	 * @param count Number of moves already in the buffer
+	 * @return The new number of moves in the buffer
 	 */
-	public List<String> possibleDiagonal(String color, ChessBoard board) {
-		ChessPiece p;
-		List<String> moves = new ArrayList<String>();
-
-		String row = this.getRow();
-		String col = this.getCol();
-		String pos;
-		
-		int rowNum = Integer.parseInt(row);
-		int colNum = fr.letterToNumber(col.charAt(0));
-		//System.out.println(this);
-		
-		// stop when
-			// 1 - piece of same color is found, do not include this coordinate
-			// 2 - opponent piece is found, include this coordinate
-	
-		// get left increasing diagonal
-		int j = rowNum + 1;
-		int k = colNum - 1;
-		while (j < 9 && k > 0) {
-			p = board.getPiece(j + "", fr.numberToLetter(k));
-			if (p != null) {
-				if (p.getColor().equals(color)) {
-					// do not include
-				} else {
-					pos = j + " " + fr.numberToLetter(k);
-					moves.add(pos);
-				}
-				break;
-			} else {
-				pos = j + " " + fr.numberToLetter(k);
-				moves.add(pos);
-			
-				j++;
-				k--;
-			}
+	int addMoves(ChessBoard board, int square, long targets, int[] moves, int count) {
+		long opponent = board.getOccupancy(side ^ 1);
+		while (targets != 0) {
+			int to = Long.numberOfTrailingZeros(targets);
+			targets &= targets - 1;
+			int flags = (opponent & Bitboard.bit(to)) != 0 ? Move.CAPTURE : 0;
+			moves[count++] = Move.encode(square, to, Move.NO_PROMOTION, flags);
 		}
-		
-		// get right increasing diagonal
-		j = rowNum + 1;
-		k = colNum + 1;
-		while (j < 9 && k < 9) {
-			p = board.getPiece(j + "", fr.numberToLetter(k));
-			if (p != null) {
-				if (p.getColor().equals(color)) {
-					// do not include
-				} else {
-					pos = j + " " + fr.numberToLetter(k);
-					moves.add(pos);
-				}
-				break;
-			} else {
-				pos = j + " " + fr.numberToLetter(k);
-				moves.add(pos);
-			
-				j++;
-				k++;
-			}
-		}
-		
-		// get right decreasing diagonal
-		j = rowNum - 1;
-		k = colNum + 1;
-		while (j > 0 && k < 9) {
-			p = board.getPiece(j + "", fr.numberToLetter(k));
-			if (p != null) {
-				if (p.getColor().equals(color)) {
-					// do not include
-				} else {
-					pos = j + " " + fr.numberToLetter(k);
-					moves.add(pos);
-				}
-				break;
-			} else {
-				pos = j + " " + fr.numberToLetter(k);
-				moves.add(pos);
-			
-				j--;
-				k++;
-			}
-		}
-		
-		// get left decreasing diagonal
-		j = rowNum - 1;
-		k = colNum - 1;
-		while (j > 0 && k > 0) {
-			p = board.getPiece(j + "", fr.numberToLetter(k));
-			if (p != null) {
-				if (p.getColor().equals(color)) {
-					// do not include
-				} else {
-					pos = j + " " + fr.numberToLetter(k);
-					moves.add(pos);
-				}
-				break;
-			} else {
-				pos = j + " " + fr.numberToLetter(k);
-				moves.add(pos);
-			
-				j--;
-				k--;
-			}
-		}
-		
-		return moves;
+		return count;
 	}
 	
 	/**
-	 * Returns a list of Strings detailing the chess piece's legal
-	 * forward/backward and sideways moves. The piece cannot jump 
-	 * over and object if that object is in its path. 
+	 * Writes the chess piece's legal moves into a move buffer.
 	 * 
-	 * @param color Color of the piece
 	 * @param board ChessBoard object
-	 * @return moves A list of possible moves
+	 * @param square Square index of the piece
+	 * @param moves Buffer the packed moves are written into
+	 * @param count Number of moves already in the buffer
+	 * @return The new number of moves in the buffer
 	 */
-	public List<String> possibleXY(String color, ChessBoard board) {
-		List<String> moves = new ArrayList<String>();
-
-		String row = this.getRow();
-		String col = this.getCol();
-		String pos;
-		
-		int rowNum = Integer.parseInt(row);
-		int colNum = fr.letterToNumber(col.charAt(0));
-		
-		// stop when
-			// 1 - piece of same color is found, do not include this coordinate
-			// 2 - opponent piece is found, include this coordinate
-		
-		// get coordinates of increasing row number
-		int j = rowNum + 1;
-		while (j < 9) {
-			ChessPiece p = board.getPiece(j + "", col);
-			if (p != null) {
-				if (p.getColor().equals(color)) {
-					// do not include
-				} else {
-					pos = j + " " + col;
-					moves.add(pos);
-				}
-				break;
-			} else {
-				pos = j + " " + col;
-				moves.add(pos);
-
-				j++;
-			}
-		}
-		
-		j = rowNum - 1;
-		// get coordinates of decreasing row number
-		while (j > 0) {
-			ChessPiece p = board.getPiece(j + "", col);
-			if (p != null) {
-				if (p.getColor().equals(color)) {
-					// do not include
-				} else {
-					pos = j + " " + col;
-					moves.add(pos);
-				}
-				break;
-			} else {
-				pos = j + " " + col;
-				moves.add(pos);
-				j--;
-			}
-		}
-		
-		// get coordinates of increasing col number
-		int k = colNum + 1;
-		while (k < 9) {
-			ChessPiece p = board.getPiece(row, fr.numberToLetter(k));
-			if (p != null) {
-				if (p.getColor().equals(color)) {
-					// do not include
-				} else {
-					pos = row + " " + fr.numberToLetter(k);
-					moves.add(pos);
-				}
-				break;
-			} else {
-				pos = row + " " + fr.numberToLetter(k);
-				moves.add(pos);
-
-				k++;
-			}
-		}
-		
-		k = colNum - 1;
-		// get coordinates of decreasing row number
-		while (k > 0) {
-			ChessPiece p = board.getPiece(row, fr.numberToLetter(k));
-			if (p != null) {
-				if (p.getColor().equals(color)) {
-					// do not include
-				} else {
-					pos = row + " " + fr.numberToLetter(k);
-					moves.add(pos);
-				}
-				break;
-			} else {
-				pos = row + " " + fr.numberToLetter(k);
-				moves.add(pos);
-				k--;
-			}
-		}
-		return moves;
-
+	public int possibleMoves(ChessBoard board, int square, int[] moves, int count) {
+		return count;
 	}
 	
 	/**
-	 * Returns a list of Strings detailing the chess piece's legal
-	 * moves.
+	 * Returns the squares the chess piece attacks, whether they are 
+	 * empty or hold a piece of either color.
 	 * 
-	 * @param color Color of the piece
 	 * @param board ChessBoard object
-	 * @return moves A list of possible moves
+	 * @param square Square index of the piece
+	 * @return Bitboard of the attacked squares
 	 */
-	public List<String> possibleMoves(String color, ChessBoard board) {
-		List<String> moves = new ArrayList<String>();
-		return moves;
+	public long attacks(ChessBoard board, int square) {
+		return 0;
+	}
+	
+	/**
+	 * Looks up the move of this piece to a destination square among 
+	 * its possible moves. 
+	 * 
+	 * @param from Square index of the piece
+	 * @param to Square index of the destination
+	 * @param board ChessBoard object
+	 * @return The packed move, or Move.NONE if the piece cannot go there
+	 */
+	public int getMove(int from, int to, ChessBoard board) {
+		int[] moves = board.getMoveBuffer();
+		int count = this.possibleMoves(board, from, moves, 0);
+		for (int i = 0; i < count; i++) {
+			if (Move.to(moves[i]) == to) {
+				return moves[i];
+			}
+		}
+		return Move.NONE;
 	}
 	
 	/**
@@ -357,13 +232,13 @@ public class ChessPiece {
 	 * by checking if the specified move exists in the list of all 
 	 * possible moves
 	 * 
-	 * @param row Row number
-	 * @param col Column letter
+	 * @param from Square index of the piece
+	 * @param to Square index of the destination
 	 * @param board ChessBoard object
 	 * @return True, if the move is legal, false otherwise
 	 */
-	public boolean validPieceMove(String row, String col, ChessBoard board) {
-		return false;
+	public boolean validPieceMove(int from, int to, ChessBoard board) {
+		return getMove(from, to, board) != Move.NONE;
 	}
 
 }
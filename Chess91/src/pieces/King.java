@@ -1,10 +1,9 @@
 package pieces;
 
-import java.util.ArrayList;
-import java.util.List;
-
+import board.Bitboard;
 import board.ChessBoard;
-import board.FileRank;
+import board.Move;
+import board.Square;
 
 /**
  * King comprises the characteristics and behavior of the 
@@ -15,200 +14,83 @@ import board.FileRank;
  * @author Michelle Hwang
  *
  */
-public class King extends ChessPiece {
+public final class King extends ChessPiece {
 
-	FileRank fr = new FileRank();
-	
 	/**
 	 * Initializes the King object.
 	 * 
-	 * @param color Color of the piece - either black or white
-	 * @param type A label or symbol that identifies the piece, "bK" or "wK"
-	 * @param row The row coordinate of the piece
-	 * @param col The column coordinate of the piece
+	 * @param side Color index of the piece, Bitboard.WHITE or Bitboard.BLACK
 	 */
-	public King(String color, String type, String row, String col) {
-		super(color, type, row, col);
+	King(int side) {
+		super(side, Bitboard.KING);
 	}
 	
 	/**
-	 * Returns a list of all possible moves this piece can go to. 
+	 * Writes all possible moves this piece can go to into a move buffer. 
 	 *  
-	 * @param color The color of the King object
 	 * @param board ChessBoard object
-	 * @return moves A list detailing all possible moves of the piece 
+	 * @param square Square index of the piece
+	 * @param moves Buffer the packed moves are written into
+	 * @param count Number of moves already in the buffer
+	 * @return The new number of moves in the buffer
 	 */
-	public List<String> possibleMoves(String color, ChessBoard board) {
-		List<String> moves = new ArrayList<String>();
-		String row = this.getRow();
-		String col = this.getCol();
-		String pos;
-		int r, c;
-		
-		// move up 1
-		r = Integer.parseInt(row) + 1;
-		row = Integer.toString(r);
-		if (board.isValidMove(row, col)) {
-			pos = row + " " + col;
-			moves.add(pos);
-		}
-		
-		// move down 1
-		row = this.getRow();
-		col = this.getCol();
-		r = Integer.parseInt(row) - 1;
-		row = Integer.toString(r);
-		if (board.isValidMove(row, col)) {
-			pos = row + " " + col;
-			moves.add(pos);
-		}
-		
-		// move left 1
-		row = this.getRow();
-		col = this.getCol();
-		c = fr.letterToNumber(col.charAt(0)) - 1;
-		col = fr.numberToLetter(c);
-		if (board.isValidMove(row, col)) {
-			pos = row + " " + col;
-			moves.add(pos);
-		}
+	public int possibleMoves(ChessBoard board, int square, int[] moves, int count) {
+		long own = board.getOccupancy(side);
+		count = addMoves(board, square, attacks(board, square) & ~own, moves, count);
 		
-		// move right 1
-		row = this.getRow();
-		col = this.getCol();
-		c = fr.letterToNumber(col.charAt(0)) + 1;
-		col = fr.numberToLetter(c);
-		if (board.isValidMove(row, col)) {
-			pos = row + " " + col;
-			moves.add(pos);
-		}
-
-		// move up 1 right 1
-		row = this.getRow();
-		col = this.getCol();
-		r = Integer.parseInt(row) + 1;
-		row = Integer.toString(r);
-		c = fr.letterToNumber(col.charAt(0)) + 1;
-		col = fr.numberToLetter(c);
-		if (board.isValidMove(row, col)) {
-			pos = row + " " + col;
-			moves.add(pos);
-		}
-		
-		// move up 1 left 1
-		row = this.getRow();
-		col = this.getCol();
-		r = Integer.parseInt(row) + 1;
-		row = Integer.toString(r);
-		c = fr.letterToNumber(col.charAt(0)) - 1;
-		col = fr.numberToLetter(c);
-		if (board.isValidMove(row, col)) {
-			pos = row + " " + col;
-			moves.add(pos);
-		}
-		
-		// move down 1 left 1
-		row = this.getRow();
-		col = this.getCol();
-		r = Integer.parseInt(row) - 1;
-		row = Integer.toString(r);
-		c = fr.letterToNumber(col.charAt(0)) - 1;
-		col = fr.numberToLetter(c);
-		if (board.isValidMove(row, col)) {
-			pos = row + " " + col;
-			moves.add(pos);
-		}
-		
-		// move down 1 right 1
-		row = this.getRow();
-		col = this.getCol();
-		r = Integer.parseInt(row) - 1;
-		row = Integer.toString(r);
-		c = fr.letterToNumber(col.charAt(0)) + 1;
-		col = fr.numberToLetter(c);
-		if (board.isValidMove(row, col)) {
-			pos = row + " " + col;
-			moves.add(pos);
-		}
-		
-		// castling moves
-		row = this.getRow();
-		col = this.getCol();
-		if (color.equals("white")) {
-			if (row.equals("1") && col.equals("e")) {
-				
-				if (!board.isEmpty(board, "1", "a")) {
-					if (board.isEmpty(board, "1", "b") && board.isEmpty(board, "1", "c") && board.isEmpty(board, "1", "d")
-							&& board.getPiece("1", "a").type.equals("wR")) {
-						c = fr.letterToNumber(col.charAt(0)) - 2;
-						col = fr.numberToLetter(c);
-						pos = row + " " + col;
-						moves.add(pos);
-					}
-				}
-				
-				if (!board.isEmpty(board, "1", "h")) {
-					if (board.isEmpty(board, "1", "f") && board.isEmpty(board, "1", "g") 
-							&& board.getPiece("1", "h").type.equals("wR")) {
-						col = this.getCol();
-						c = fr.letterToNumber(col.charAt(0)) + 2;
-						col = fr.numberToLetter(c);
-						pos = row + " " + col;
-						moves.add(pos);
-					}
-				}
+		// castling moves -- king and rook have not moved, squares between are empty,
+		// and the king is not in check and does not pass through or land on an attacked square
+		if (side == Bitboard.WHITE) {
+			if (board.canCastle(ChessBoard.WHITE_QUEENSIDE)
+					&& board.isEmpty(Square.B1) && board.isEmpty(Square.C1) && board.isEmpty(Square.D1)
+					&& isSafe(board, Square.E1, Square.D1, Square.C1)) {
+				moves[count++] = Move.encode(square, Square.C1, Move.NO_PROMOTION, Move.CASTLE);
+			}
+			if (board.canCastle(ChessBoard.WHITE_KINGSIDE)
+					&& board.isEmpty(Square.F1) && board.isEmpty(Square.G1)
+					&& isSafe(board, Square.E1, Square.F1, Square.G1)) {
+				moves[count++] = Move.encode(square, Square.G1, Move.NO_PROMOTION, Move.CASTLE);
 			}
 		} else {
-			if (row.equals("8") && col.equals("e")) {
-				
-				if (!board.isEmpty(board, "8", "a")) {
-					if (board.isEmpty(board, "8", "b") && board.isEmpty(board, "8", "c") && board.isEmpty(board, "8", "d")
-							&& board.getPiece("8", "a").type.equals("bR")) {
-						c = fr.letterToNumber(col.charAt(0)) - 2;
-						col = fr.numberToLetter(c);
-						pos = row + " " + col;
-						moves.add(pos);
-					}
-				}
-
-				if (!board.isEmpty(board, "8", "h")) {
-					if (board.isEmpty(board, "8", "f") && board.isEmpty(board, "8", "g")
-							&& board.getPiece("8", "h").type.equals("bR")) {
-						col = this.getCol();
-						c = fr.letterToNumber(col.charAt(0)) + 2;
-						col = fr.numberToLetter(c);
-						pos = row + " " + col;
-						moves.add(pos);
-					}
-				}
+			if (board.canCastle(ChessBoard.BLACK_QUEENSIDE)
+					&& board.isEmpty(Square.B8) && board.isEmpty(Square.C8) && board.isEmpty(Square.D8)
+					&& isSafe(board, Square.E8, Square.D8, Square.C8)) {
+				moves[count++] = Move.encode(square, Square.C8, Move.NO_PROMOTION, Move.CASTLE);
+			}
+			if (board.canCastle(ChessBoard.BLACK_KINGSIDE)
+					&& board.isEmpty(Square.F8) && board.isEmpty(Square.G8)
+					&& isSafe(board, Square.E8, Square.F8, Square.G8)) {
+				moves[count++] = Move.encode(square, Square.G8, Move.NO_PROMOTION, Move.CASTLE);
 			}
 		}
 		
-		return moves;
+		return count;
 	}
 	
 	/**
-	 * Checks for all possible moves from possibleMoves(). If row and 
-	 * col equals one of the moves, then return true. Otherwise, 
-	 * return false.
+	 * Checks that none of the squares the king crosses while castling
+	 * are attacked by the opponent.
 	 * 
-	 * @param row The row of the destination coordinate
-	 * @param col The column of the destination coordinate
 	 * @param board ChessBoard object
-	 * @return Returns true if the specified coordinate is a valid move
+	 * @param start Square the king starts on
+	 * @param pass Square the king passes through
+	 * @param end Square the king lands on
+	 * @return True if none of the squares are attacked, false otherwise
 	 */
-	public boolean validPieceMove(String row, String col, ChessBoard board) {
-		List<String> moves = this.possibleMoves(this.color, board);
-		//System.out.println();
-		for (String m : moves) {
-			String r = m.substring(0,1);
-			String c = m.substring(2);
-			//System.out.println(r + " " + c);
-			if (row.equals(r) && col.equals(c)) {
-				return true;
-			}
-		}
-		return false;
+	boolean isSafe(ChessBoard board, int start, int pass, int end) {
+		long path = Bitboard.bit(start) | Bitboard.bit(pass) | Bitboard.bit(end);
+		return (board.getAttacks(side ^ 1) & path) == 0;
+	}
+	
+	/**
+	 * Returns the squares this piece attacks. 
+	 *  
+	 * @param board ChessBoard object
+	 * @param square Square index of the piece
+	 * @return Bitboard of the attacked squares
+	 */
+	public long attacks(ChessBoard board, int square) {
+		return Bitboard.kingAttacks(square);
 	}
 	
 }
@@ -1,10 +1,9 @@
 package pieces;
 
-import java.util.ArrayList;
-import java.util.List;
-
+import board.Bitboard;
 import board.ChessBoard;
-import board.FileRank;
+import board.Move;
+import board.Square;
 
 /**
  * Pawn comprises the characteristics and behavior of the 
@@ -15,269 +14,115 @@ import board.FileRank;
  * @author Michelle Hwang
  *
  */
-public class Pawn extends ChessPiece {
-	
-	FileRank fr = new FileRank();
+public final class Pawn extends ChessPiece {
 	
-	/**
-	 * Marker for whether the pawn has moved forward by 2
-	 * from its starting position. True, if it has, false
-	 * otherwise. 
-	 */
-	private boolean forward;
-
 	/**
 	 * Initializes the Pawn object.
 	 * 
-	 * @param color Color of the piece - either black or white
-	 * @param type A label or symbol that identifies the piece, "bp" or "wp"
-	 * @param row The row coordinate of the piece
-	 * @param col The column coordinate of the piece
+	 * @param side Color index of the piece, Bitboard.WHITE or Bitboard.BLACK
 	 */
-	public Pawn(String color, String type, String row, String col) {
-		super(color, type, row, col);
+	Pawn(int side) {
+		super(side, Bitboard.PAWN);
 	}
 	
 	/**
-	 * Returns boolean forward value.
-	 * 
-	 * @return forward Value of forward
-	 */
-	public boolean getForward() {
-		return this.forward;
-	}
-	
-	/**
-	 * Sets the boolean value of the forward field.
-	 * 
-	 * @param b True, if the pawn has just moved forward by 2,
-	 * false otherwise
-	 */
-	public void setForward(boolean b) {
-		this.forward = b;
-	}
-	
-	/**
-	 * Returns a list of all possible attack moves this piece can go to. 
+	 * Returns the squares this piece attacks, which are the two 
+	 * diagonal squares in front of it. 
 	 *  
-	 * @param color The color of the Pawn object
 	 * @param board ChessBoard object
-	 * @return moves A list detailing all possible attacks of the piece 
+	 * @param square Square index of the piece
+	 * @return Bitboard of the attacked squares
 	 */
-	public List<String> possibleAttacks(String color, ChessBoard board) {
-		List<String> moves = new ArrayList<String>();
-		String row = this.getRow();
-		String col = this.getCol();
-		String pos;
-		int r, c;
-		
-		/**
-		 * Returns a list of all possible attack moves this piece can go to.
-		 */
-		if (color.equals("white")) {
-			// move diagonal up left to attack
-			row = this.getRow();
-			col = this.getCol();
-			r = Integer.parseInt(row) + 1;
-			row = Integer.toString(r);
-			c = fr.letterToNumber(col.charAt(0)) - 1;
-			col = fr.numberToLetter(c);
-			if (board.isValidMove(row, col)) {
-				pos = row + " " + col;
-				moves.add(pos);
-			}
-			
-			// move diagonal up right to attack
-			row = this.getRow();
-			col = this.getCol();
-			r = Integer.parseInt(row) + 1;
-			row = Integer.toString(r);
-			c = fr.letterToNumber(col.charAt(0)) + 1;
-			col = fr.numberToLetter(c);
-			if (board.isValidMove(row, col)) {
-				pos = row + " " + col;
-				moves.add(pos);
-			}
-		} else {
-			// move diagonal up left to attack
-			row = this.getRow();
-			col = this.getCol();
-			r = Integer.parseInt(row) - 1;
-			row = Integer.toString(r);
-			c = fr.letterToNumber(col.charAt(0)) - 1;
-			col = fr.numberToLetter(c);
-			if (board.isValidMove(row, col)) {
-				pos = row + " " + col;
-				moves.add(pos);
-			}
-
-			// move diagonal up right to attack
-			row = this.getRow();
-			col = this.getCol();
-			r = Integer.parseInt(row) - 1;
-			row = Integer.toString(r);
-			c = fr.letterToNumber(col.charAt(0)) + 1;
-			col = fr.numberToLetter(c);
-			if (board.isValidMove(row, col)) {
-				pos = row + " " + col;
-				moves.add(pos);
-			}
-		}
-		return moves;
+	public long attacks(ChessBoard board, int square) {
+		return Bitboard.pawnAttacks(side, square);
 	}
 	
 	/**
-	 * Returns a list of all possible moves this piece can go to. 
+	 * Writes all possible moves this piece can go to into a move buffer. 
+	 * Moves onto the last row are written once for each piece the pawn 
+	 * can be promoted to.
 	 *  
-	 * @param color The color of the Pawn object
 	 * @param board ChessBoard object
-	 * @return moves A list detailing all possible moves of the piece 
+	 * @param square Square index of the piece
+	 * @param moves Buffer the packed moves are written into
+	 * @param count Number of moves already in the buffer
+	 * @return The new number of moves in the buffer
 	 */
-	public List<String> possibleMoves(String color, ChessBoard board) {
-		List<String> moves = new ArrayList<String>();
-		String row = this.getRow();
-		String col = this.getCol();
-		String pos;
-		int r, c;
+	public int possibleMoves(ChessBoard board, int square, int[] moves, int count) {
+		int r = Square.rank(square);
+		int c = Square.file(square);
+		int dir, start;
 		
-		ChessPiece p;
-		
-		if (color.equals("white")) {
-			// move up 1
-			r = Integer.parseInt(row) + 1;
-			row = Integer.toString(r);
-			if (board.isValidMove(row, col)) {
-				p = board.getPiece(row, col);
-				if (p == null) {
-					pos = row + " " + col;
-					moves.add(pos);	
-				}
-			}		
-			
-			// move up 2 -- only if at start
-			row = this.getRow();
-			col = this.getCol();
-			if (row.equals("2")) {
-				r = Integer.parseInt(row) + 2;
-				row = Integer.toString(r);
-				if (board.isValidMove(row, col)) {
-					p = board.getPiece(row, col);
-					
-					// forward 2 is available
-					if (p == null) {
-						int r2 = Integer.parseInt(row) - 1;
-						String row2 = Integer.toString(r2);
-						p = board.getPiece(row2, col);
-						
-						// forward 1 is available
-						if (p == null) {
-							pos = row + " " + col;
-							moves.add(pos);	
-						}	
-					}
-				}
-			}
-			
-			// move diagonal up left to attack
-			row = this.getRow();
-			col = this.getCol();
-			r = Integer.parseInt(row) + 1;
-			row = Integer.toString(r);
-			c = fr.letterToNumber(col.charAt(0)) - 1;
-			col = fr.numberToLetter(c);
-			if (board.isValidMove(row, col) && (board.getPiece(row, col) != null) && (board.getPiece(row, col).color.equals("black"))) {
-				pos = row + " " + col;
-				moves.add(pos);
-			}
-			
-			// move diagonal up right to attack
-			row = this.getRow();
-			col = this.getCol();
-			r = Integer.parseInt(row) + 1;
-			row = Integer.toString(r);
-			c = fr.letterToNumber(col.charAt(0)) + 1;
-			col = fr.numberToLetter(c);
-			if (board.isValidMove(row, col) &&  (board.getPiece(row, col) != null) &&(board.getPiece(row, col).color.equals("black"))) {
-				pos = row + " " + col;
-				moves.add(pos);
-			}
-			
+		if (side == Bitboard.WHITE) {
+			dir = 1;
+			start = 1;
 		} else {
-			// move down 1
-			r = Integer.parseInt(row) - 1;
-			row = Integer.toString(r);
-			if (board.isValidMove(row, col)) {
-				p = board.getPiece(row, col);
-				if (p == null) {
-					pos = row + " " + col;
-					moves.add(pos);	
-				}
-			}
-
-			// move up 2 -- only if at start
-			row = this.getRow();
-			col = this.getCol();
-			if (row.equals("7")) {
-				r = Integer.parseInt(row) - 2;
-				row = Integer.toString(r);
-				if (board.isValidMove(row, col)) {
-					p = board.getPiece(row, col);
-					
-					// forward 2 is available
-					if (p == null) {
-						int r2 = Integer.parseInt(row) + 1;
-						String row2 = Integer.toString(r2);
-						p = board.getPiece(row2, col);
-						
-						// forward 1 is available
-						if (p == null) {
-							pos = row + " " + col;
-							moves.add(pos);	
-						}	
+			dir = -1;
+			start = 6;
+		}
+		
+		// move forward 1
+		if (r + dir >= 0 && r + dir < 8) {
+			int one = Square.of(r + dir, c);
+			if (board.isEmpty(one)) {
+				count = addPawnMove(square, moves, count, one, 0);
+				
+				// move forward 2 -- only if at start and forward 1 is available
+				if (r == start) {
+					int two = Square.of(r + 2 * dir, c);
+					if (board.isEmpty(two)) {
+						moves[count++] = Move.encode(square, two, Move.NO_PROMOTION, Move.DOUBLE_PUSH);
 					}
 				}
 			}
-			
-			// move diagonal up left to attack
-			row = this.getRow();
-			col = this.getCol();
-			r = Integer.parseInt(row) - 1;
-			row = Integer.toString(r);
-			c = fr.letterToNumber(col.charAt(0)) - 1;
-			col = fr.numberToLetter(c);
-			if (board.isValidMove(row, col) &&  (board.getPiece(row, col) != null) &&(board.getPiece(row, col).color.equals("white"))) {
-				pos = row + " " + col;
-				moves.add(pos);
-			}
-
-			// move diagonal up right to attack
-			row = this.getRow();
-			col = this.getCol();
-			r = Integer.parseInt(row) - 1;
-			row = Integer.toString(r);
-			c = fr.letterToNumber(col.charAt(0)) + 1;
-			col = fr.numberToLetter(c);
-			if (board.isValidMove(row, col) &&  (board.getPiece(row, col) != null) &&(board.getPiece(row, col).color.equals("white"))) {
-				pos = row + " " + col;
-				moves.add(pos);
-			}
 		}
 		
-		List<String> moves2 = getEnpassant(color, board);
-		moves.addAll(moves2);
+		// move diagonal left and right to attack
+		long targets = attacks(board, square) & board.getOccupancy(side ^ 1);
+		while (targets != 0) {
+			int to = Long.numberOfTrailingZeros(targets);
+			targets &= targets - 1;
+			count = addPawnMove(square, moves, count, to, Move.CAPTURE);
+		}
 		
-		return moves;
+		return getEnpassant(board, square, moves, count);
+	}
+	
+	/**
+	 * Writes a pawn move into a move buffer, once for each promotion
+	 * kind if the destination is on the last row.
+	 * 
+	 * @param square Square index of the piece
+	 * @param moves Buffer the packed moves are written into
+	 * @param count Number of moves already in the buffer
+	 * @param to Destination square
+	 * @param flags Move flags
+	 * @return The new number of moves in the buffer
+	 */
+	int addPawnMove(int square, int[] moves, int count, int to, int flags) {
+		int r = Square.rank(to);
+		if (r == 0 || r == 7) {
+			moves[count++] = Move.encode(square, to, Bitboard.QUEEN, flags);
+			moves[count++] = Move.encode(square, to, Bitboard.KNIGHT, flags);
+			moves[count++] = Move.encode(square, to, Bitboard.ROOK, flags);
+			moves[count++] = Move.encode(square, to, Bitboard.BISHOP, flags);
+		} else {
+			moves[count++] = Move.encode(square, to, Move.NO_PROMOTION, flags);
+		}
+		return count;
 	}
 	
 	/**
-	 * Checks if the en passant criteria is satisfied and if so, returns a list
-	 * of possible en passant moves.
+	 * Checks if the en passant criteria is satisfied and if so, writes
+	 * the en passant moves into a move buffer.
 	 * 
-	 * @param color Color of pawn that will capture the opponent's
 	 * @param board ChessBoard object
-	 * @return Return a list of possible moves in en passant
+	 * @param square Square index of the piece
+	 * @param moves Buffer the packed moves are written into
+	 * @param count Number of moves already in the buffer
+	 * @return The new number of moves in the buffer
 	 */
-	public List<String> getEnpassant(String color, ChessBoard board) {
+	public int getEnpassant(ChessBoard board, int square, int[] moves, int count) {
 		// check appropriate rows: row 4, col c for black, row 5 col c for white
 		// check presence of opponent pawn
 		// row 4, c+1 or c-1 has white pawn
@@ -285,120 +130,44 @@ public class Pawn extends ChessPiece {
 		// ** opponent's pawn must have just used the forward 2 move
 		// if enpassant criteria is satisfied add coordinate to list (attack & possible)
 
-		List<String> moves = new ArrayList<String>();
-		ChessPiece p;
-		String row = this.getRow();
-		String col = this.getCol();
-		String pos = null;
-		int c;
-
-		if (color.equals("white")) {
-			if (row.equals("5")) {
-				c = fr.letterToNumber(col.charAt(0)) + 1;
-				if (c < 9) {
-					col = fr.numberToLetter(c);
-					if (board.getPiece(row, col) != null) {
-						p = board.getPiece(row, col);
-						//System.out.println(p);
-
-						if (p.getColor().equals("black") && p instanceof Pawn
-								&& board.getPiece((Integer.parseInt(row) + 1) + "", col) == null) {
-							if (((Pawn) p).getForward()) {
-								// enpassant OK
-								pos = Integer.toString(Integer.parseInt(row) + 1) + " " + col;
-								//System.out.println(pos);
-								moves.add(pos);	
-							}
-						}
-					}	
-				}
-				c = fr.letterToNumber(this.getCol().charAt(0)) - 1;
-				if (c > 0) {
-					col = fr.numberToLetter(c);
-					if (board.getPiece(row, col) != null) {
-						p = board.getPiece(row, col);
-						//System.out.println(p);
-
-						if (p.getColor().equals("black") && p instanceof Pawn 
-								&& board.getPiece((Integer.parseInt(row) + 1) + "", col) == null) {
-							if (((Pawn) p).getForward()) {
-								// enpassant OK
-								pos = Integer.toString(Integer.parseInt(row) + 1) + " " + col;
-								//System.out.println(pos);
-
-								moves.add(pos);
-							}
-						}
-					}	
-				}
+		int r = Square.rank(square);
+		int c = Square.file(square);
+		int dir;
+		
+		if (side == Bitboard.WHITE) {
+			if (r != 4) {
+				return count;
 			}
+			dir = 1;
 		} else {
-			if (row.equals("4")) {
-				c = fr.letterToNumber(col.charAt(0)) + 1;
-				if (c < 9) {
-					col = fr.numberToLetter(c);
-					if (board.getPiece(row, col) != null) {
-						p = board.getPiece(row, col);
-						//System.out.println(p);
-						if (p.getColor().equals("white") && p instanceof Pawn 
-								&& board.getPiece((Integer.parseInt(row) - 1) + "", col) == null) {
-							//System.out.println(((Pawn) p).getForward());
-							if (((Pawn) p).getForward()) {
-								// enpassant OK
-								pos = Integer.toString(Integer.parseInt(row) - 1) + " " + col;
-								//System.out.println(pos);
-
-								moves.add(pos);
-							}
-						}
-					}	
-				}
-				c = fr.letterToNumber(this.getCol().charAt(0)) - 1;
-				if (c > 0) {
-					col = fr.numberToLetter(c);
-					if (board.getPiece(row, col) != null) {
-						p = board.getPiece(row, col);
-						//System.out.println(p);
-						if (p.getColor().equals("white") && p instanceof Pawn 
-								&& board.getPiece((Integer.parseInt(row) - 1) + "", col) == null) {
-							if (((Pawn) p).getForward()) {
-								// enpassant OK
-								pos = Integer.toString(Integer.parseInt(row) - 1) + " " + col;
-								//System.out.println(pos);
-
-								moves.add(pos);
-							}
-						}
-					}	
-				}
+			if (r != 3) {
+				return count;
 			}
+			dir = -1;
 		}
-		return moves;
+		
+		if (c < 7 && isEnpassant(board, Square.of(r, c + 1), Square.of(r + dir, c + 1))) {
+			moves[count++] = Move.encode(square, Square.of(r + dir, c + 1), Move.NO_PROMOTION, Move.CAPTURE | Move.EN_PASSANT);
+		}
+		if (c > 0 && isEnpassant(board, Square.of(r, c - 1), Square.of(r + dir, c - 1))) {
+			moves[count++] = Move.encode(square, Square.of(r + dir, c - 1), Move.NO_PROMOTION, Move.CAPTURE | Move.EN_PASSANT);
+		}
+		return count;
 	}
-
+	
 	/**
-	 * Checks for all possible moves from possibleMoves(). If row and 
-	 * col equals one of the moves, then return true. Otherwise, 
-	 * return false.
+	 * Checks if the square beside the pawn holds an opponent pawn that 
+	 * has just moved forward by 2, with the square behind it empty.
 	 * 
-	 * @param row The row of the destination coordinate
-	 * @param col The column of the destination coordinate
 	 * @param board ChessBoard object
-	 * @return Returns true if the specified coordinate is a valid move
+	 * @param beside Square beside the pawn
+	 * @param target Square behind the opponent pawn
+	 * @return True if en passant is possible, false otherwise
 	 */
-	public boolean validPieceMove(String row, String col, ChessBoard board) {
-		List<String> moves = this.possibleMoves(this.color, board);
-		//System.out.println();
-		for (String m : moves) {
-			String r = m.substring(0,1);
-			String c = m.substring(2);
-			//System.out.println(r + " " + c);
-			if (row.equals(r) && col.equals(c)) {
-				return true;
-			}
-		}
-		return false;
+	boolean isEnpassant(ChessBoard board, int beside, int target) {
+		// enpassant OK
+		return board.getEnPassantPawn() == beside && board.isOccupiedBy(side ^ 1, beside)
+				&& board.isEmpty(target);
 	}
 	
-	
 }
@@ -1,9 +1,7 @@
 package pieces;
 
-import java.util.List;
-
+import board.Bitboard;
 import board.ChessBoard;
-import board.FileRank;
 
 /**
  * Queen comprises the characteristics and behavior of the 
@@ -14,61 +12,42 @@ import board.FileRank;
  * @author Michelle Hwang
  *
  */
-public class Queen extends ChessPiece {
+public final class Queen extends ChessPiece {
 	
-	FileRank fr = new FileRank();
-
 	/**
 	 * Initializes the Queen object.
 	 * 
-	 * @param color Color of the piece - either black or white
-	 * @param type A label or symbol that identifies the piece, "bQ" or "wQ"
-	 * @param row The row coordinate of the piece
-	 * @param col The column coordinate of the piece
+	 * @param side Color index of the piece, Bitboard.WHITE or Bitboard.BLACK
 	 */
-	public Queen(String color, String type, String row, String col) {
-		super(color, type, row, col);
+	Queen(int side) {
+		super(side, Bitboard.QUEEN);
 	}
 	
 	/**
-	 * Returns a list of all possible moves this piece can go to. The
-	 * Queen's possible moves are diagonally, forward/backward and 
+	 * Writes all possible moves this piece can go to into a move buffer.
+	 * The Queen's possible moves are diagonally, forward/backward and 
 	 * sideways. 
 	 *  
-	 * @param color The color of the Queen object
 	 * @param board ChessBoard object
-	 * @return moves A list detailing all possible moves of the piece 
+	 * @param square Square index of the piece
+	 * @param moves Buffer the packed moves are written into
+	 * @param count Number of moves already in the buffer
+	 * @return The new number of moves in the buffer
 	 */
-	public List<String> possibleMoves(String color, ChessBoard board) {
-		List<String> moves1 = possibleXY(color, board);
-		List<String> moves2 = possibleDiagonal(color, board);
-		moves1.addAll(moves2);
-		return moves1;
+	public int possibleMoves(ChessBoard board, int square, int[] moves, int count) {
+		long own = board.getOccupancy(side);
+		return addMoves(board, square, attacks(board, square) & ~own, moves, count);
 	}
 	
 	/**
-	 * Checks for all possible moves from possibleMoves(). If row and 
-	 * col equals one of the moves, then return true. Otherwise, 
-	 * return false.
-	 * 
-	 * @param row The row of the destination coordinate
-	 * @param col The column of the destination coordinate
+	 * Returns the squares this piece attacks. 
+	 *  
 	 * @param board ChessBoard object
-	 * @return Returns true if the specified coordinate is a valid move
+	 * @param square Square index of the piece
+	 * @return Bitboard of the attacked squares
 	 */
-	public boolean validPieceMove(String row, String col, ChessBoard board) {
-		List<String> moves = this.possibleMoves(this.color, board);
-		//System.out.println();
-		for (String m : moves) {
-			String r = m.substring(0,1);
-			String c = m.substring(2);
-			//System.out.println(r + " " + c);
-			if (row.equals(r) && col.equals(c)) {
-				return true;
-			}
-		}
-		return false;
-		
+	public long attacks(ChessBoard board, int square) {
+		return Bitboard.queenAttacks(square, board.getOccupied());
 	}
-	
+
 }